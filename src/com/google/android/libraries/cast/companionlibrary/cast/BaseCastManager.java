@@ -16,16 +16,14 @@
 
 package com.google.android.libraries.cast.companionlibrary.cast;
 
-import android.annotation.SuppressLint;
-import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.PendingIntent;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.OnLifecycleEvent;
 import android.content.Context;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
@@ -60,12 +58,14 @@ import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.common.api.Status;
 import com.google.android.libraries.cast.companionlibrary.R;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.BaseCastConsumer;
+import com.google.android.libraries.cast.companionlibrary.cast.callbacks.ConsumerEvents;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.OnFailedListener;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
 import com.google.android.libraries.cast.companionlibrary.cast.reconnection.ReconnectionJobService;
 import com.google.android.libraries.cast.companionlibrary.cast.reconnection.ReconnectionService;
+import com.google.android.libraries.cast.companionlibrary.utils.DistinctLiveData;
 import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
 import com.google.android.libraries.cast.companionlibrary.utils.PreferenceAccessor;
 import com.google.android.libraries.cast.companionlibrary.utils.Utils;
@@ -75,8 +75,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
@@ -105,6 +105,8 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     public static final String PREFS_KEY_CAST_ACTIVITY_NAME = "cast-activity-name";
     public static final String PREFS_KEY_CAST_CUSTOM_DATA_NAMESPACE = "cast-custom-data-namespace";
     public static final String PREFS_KEY_ROUTE_ID = "route-id";
+    public static final String PREFS_KEY_CAST_DEVICE = "cast-device";
+    public static final String PREFS_KEY_ROUTE_CACHE = "route-cache";
 
     public static final int CLEAR_ALL = 0;
     public static final int CLEAR_ROUTE = 1;
@@ -128,6 +130,20 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     public @interface DisconnectReason {
     }
 
+    public static final int CONNECTION_STATE_DISCONNECTED = 0;
+    public static final int CONNECTION_STATE_CONNECTING = 1;
+    public static final int CONNECTION_STATE_CONNECTED = 2;
+    public static final int CONNECTION_STATE_SUSPENDED = 3;
+
+    /**
+     * Enumerates the states of the connection to the cast device
+     */
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({CONNECTION_STATE_DISCONNECTED, CONNECTION_STATE_CONNECTING, CONNECTION_STATE_CONNECTED,
+            CONNECTION_STATE_SUSPENDED})
+    public @interface ConnectionState {
+    }
+
     public static final int NO_APPLICATION_ERROR = 0;
 
     public static final int NO_STATUS_CODE = -1;
@@ -146,14 +162,35 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     protected String mDeviceName;
     protected PreferenceAccessor mPreferenceAccessor;
 
-    private final Set<BaseCastConsumer> mBaseCastConsumers = new CopyOnWriteArraySet<>();
+    private final ConsumerDispatcher<BaseCastConsumer> mConsumerDispatcher = new ConsumerDispatcher<>();
+    private final AtomicReference<CastState> mCastState = new AtomicReference<>(CastState.EMPTY);
+    private final Object mCastStateLock = new Object();
+    private final ServiceCoordinator mServiceCoordinator = new ServiceCoordinator();
+    RouteCache mRouteCache;
+    final ReconnectionStateMachine mReconnection = new ReconnectionStateMachine(
+            new ReconnectionStateMachine.Callback() {
+
+                @Override
+                public boolean isConnected() {
+                    return BaseCastManager.this.isConnected();
+                }
+
+                @Override
+                public void onReconnectionTimedOut() {
+                    LOGD(TAG, "Couldn't reconnect, dropping connection");
+                    setReconnectionStatus(RECONNECTION_STATUS_INACTIVE);
+                    onDeviceSelected(null /* CastDevice */, null /* RouteInfo */);
+                }
+            });
+    private final DistinctLiveData<Integer> mConnectionStateData =
+            new DistinctLiveData<>(CONNECTION_STATE_DISCONNECTED);
+    private final DistinctLiveData<CastDevice> mCastDeviceData = new DistinctLiveData<>(null);
     private boolean mDestroyOnDisconnect = false;
     protected String mApplicationId;
     protected int mReconnectionStatus = RECONNECTION_STATUS_INACTIVE;
     protected int mVisibilityCounter;
     protected boolean mUiVisible;
     protected GoogleApiClient mApiClient;
-    protected AsyncTask<Void, Integer, Boolean> mReconnectionTask;
     protected int mCapabilities;
     protected boolean mConnectionSuspended;
     protected String mSessionId;
@@ -212,6 +249,8 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         mPreferenceAccessor = new PreferenceAccessor(mContext);
         mUiVisibilityHandler = new Handler(new UpdateUiVisibilityHandlerCallback());
         mPreferenceAccessor.saveStringToPreference(PREFS_KEY_APPLICATION_ID, mApplicationId);
+        mRouteCache = new RouteCache(mPreferenceAccessor);
+        mRouteCache.setNetwork(Utils.getWifiSsid(mContext));
 
         mMediaRouter = MediaRouter.getInstance(mContext);
         mMediaRouteSelector = new MediaRouteSelector.Builder().addControlCategory(CastMediaControlIntent
@@ -221,6 +260,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         mMediaRouterCallback = new CastMediaRouterCallback(this);
         mMediaRouter.addCallback(mMediaRouteSelector, mMediaRouterCallback, MediaRouter
                 .CALLBACK_FLAG_REQUEST_DISCOVERY);
+        mMediaRouterCallback.startProvisionalAvailability(mMediaRouter);
     }
 
     /**
@@ -236,10 +276,8 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * Called when a {@link CastDevice} is extracted from the {@link RouteInfo}. This is where all
      * the fun starts!
      */
-    public final void onDeviceSelected(CastDevice device, RouteInfo routeInfo) {
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onDeviceSelected(device, routeInfo);
-        }
+    public final void onDeviceSelected(final CastDevice device, final RouteInfo routeInfo) {
+        notifyDeviceSelected(device, routeInfo);
         if (device == null) {
             disconnectDevice(mDestroyOnDisconnect, true, false);
         } else {
@@ -247,6 +285,16 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         }
     }
 
+    private void notifyDeviceSelected(final CastDevice device, final RouteInfo routeInfo) {
+        dispatch(ConsumerEvents.EVENT_DEVICE_SELECTED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onDeviceSelected(device, routeInfo);
+            }
+        });
+    }
+
     /**
      * This is called from
      * {@link com.google.android.libraries.cast.companionlibrary.cast.CastMediaRouterCallback} to
@@ -255,10 +303,14 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * @param castDevicePresent Indicates where a cast device is present, <code>true</code>, or not,
      *                          <code>false</code>.
      */
-    public final void onCastAvailabilityChanged(boolean castDevicePresent) {
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onCastAvailabilityChanged(castDevicePresent);
-        }
+    public final void onCastAvailabilityChanged(final boolean castDevicePresent) {
+        dispatch(ConsumerEvents.EVENT_CAST_AVAILABILITY_CHANGED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onCastAvailabilityChanged(castDevicePresent);
+            }
+        });
     }
 
     /**
@@ -279,9 +331,10 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         }
         mSelectedCastDevice = null;
         mDeviceName = null;
+        publishState();
 
         String message = "disconnectDevice() Disconnect Reason: ";
-        int reason;
+        final int reason;
         if (mConnectionSuspended) {
             message += "Connectivity lost";
             reason = DISCONNECT_REASON_CONNECTIVITY;
@@ -301,9 +354,13 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
             }
         }
         LOGD(TAG, message);
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onDisconnectionReason(reason);
-        }
+        dispatch(ConsumerEvents.EVENT_DISCONNECTION_REASON, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onDisconnectionReason(reason);
+            }
+        });
 
         LOGD(TAG, "mConnectionSuspended: " + mConnectionSuspended);
         if (!mConnectionSuspended && clearPersistedConnectionData) {
@@ -335,6 +392,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
             mApiClient = null;
         }
         mSessionId = null;
+        publishState();
         onDisconnected(stopAppOnExit, clearPersistedConnectionData, setDefaultRoute);
     }
 
@@ -357,6 +415,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     protected void setDevice(CastDevice device) {
         mSelectedCastDevice = device;
         mDeviceName = mSelectedCastDevice.getFriendlyName();
+        publishState();
 
         if (mApiClient == null) {
             LOGD(TAG, "acquiring a connection to Google Play services for " + mSelectedCastDevice);
@@ -377,19 +436,27 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * A client, for example, can use this to show a quick help screen to educate the user on the
      * cast concept and the usage of the cast button.
      */
-    public final void onCastDeviceDetected(RouteInfo info) {
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onCastDeviceDetected(info);
-        }
+    public final void onCastDeviceDetected(final RouteInfo info) {
+        dispatch(ConsumerEvents.EVENT_CAST_DEVICE_DETECTED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onCastDeviceDetected(info);
+            }
+        });
     }
 
     /**
      * Called when a route is removed.
      */
-    public final void onRouteRemoved(RouteInfo info) {
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onRouteRemoved(info);
-        }
+    public final void onRouteRemoved(final RouteInfo info) {
+        dispatch(ConsumerEvents.EVENT_ROUTE_REMOVED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onRouteRemoved(info);
+            }
+        });
     }
 
     /**
@@ -487,7 +554,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      *
      * @param visible The updated visibility status
      */
-    protected void onUiVisibilityChanged(boolean visible) {
+    protected void onUiVisibilityChanged(final boolean visible) {
         if (visible) {
             if (mMediaRouter != null && mMediaRouterCallback != null) {
                 LOGD(TAG, "onUiVisibilityChanged() addCallback called");
@@ -502,9 +569,13 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
                 stopCastDiscovery();
             }
         }
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onUiVisibilityChanged(visible);
-        }
+        dispatch(ConsumerEvents.EVENT_UI_VISIBILITY_CHANGED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onUiVisibilityChanged(visible);
+            }
+        });
     }
 
     /**
@@ -512,6 +583,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * .MediaRouter.Callback}
      */
     public final void startCastDiscovery() {
+        mRouteCache.setNetwork(Utils.getWifiSsid(mContext));
         mMediaRouter.addCallback(mMediaRouteSelector, mMediaRouterCallback, MediaRouter
                 .CALLBACK_FLAG_REQUEST_DISCOVERY);
     }
@@ -522,6 +594,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      */
     public final void stopCastDiscovery() {
         mMediaRouter.removeCallback(mMediaRouterCallback);
+        mMediaRouterCallback.endProvisionalAvailability(mMediaRouter, false);
     }
 
     /**
@@ -706,14 +779,19 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     public final void setReconnectionStatus(int status) {
         if (mReconnectionStatus != status) {
             mReconnectionStatus = status;
+            publishState();
             onReconnectionStatusChanged(mReconnectionStatus);
         }
     }
 
-    private void onReconnectionStatusChanged(int status) {
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onReconnectionStatusChanged(status);
-        }
+    private void onReconnectionStatusChanged(final int status) {
+        dispatch(ConsumerEvents.EVENT_RECONNECTION_STATUS_CHANGED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onReconnectionStatusChanged(status);
+            }
+        });
     }
 
     /**
@@ -767,13 +845,11 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     }
 
     /*
-     * Cancels the task responsible for recovery of prior sessions, is used internally.
+     * Cancels the attempt to recover a prior session, is used internally.
      */
     public final void cancelReconnectionTask() {
         LOGD(TAG, "cancelling reconnection task");
-        if (mReconnectionTask != null && !mReconnectionTask.isCancelled()) {
-            mReconnectionTask.cancel(true);
-        }
+        mReconnection.cancel();
     }
 
     /**
@@ -810,79 +886,139 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * </ul>
      * Under these conditions, a best-effort attempt will be made to continue with the same
      * session.
-     * This attempt will go on for <code>timeoutInSeconds</code> seconds.
+     * This attempt will go on for <code>timeoutInSeconds</code> seconds. If the previous attempts
+     * have failed, it is deferred by a delay that doubles with each failure, up to a few minutes.
      *
      * @param timeoutInSeconds the length of time, in seconds, to attempt reconnection before giving
      *                         up
      * @param ssidName         The name of Wifi SSID
      */
-    @SuppressLint("StaticFieldLeak")
-    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
-    public void reconnectSessionIfPossible(final int timeoutInSeconds, String ssidName) {
+    public void reconnectSessionIfPossible(final int timeoutInSeconds, final String ssidName) {
         LOGD(TAG, String.format(Locale.US, "reconnectSessionIfPossible(%d, %s)", timeoutInSeconds, ssidName));
         if (isConnected()) {
             return;
         }
         String routeId = mPreferenceAccessor.getStringFromPreference(PREFS_KEY_ROUTE_ID);
         if (canConsiderSessionRecovery(ssidName)) {
-            List<RouteInfo> routes = mMediaRouter.getRoutes();
-            RouteInfo theRoute = null;
-            if (routes != null) {
-                for (RouteInfo route : routes) {
-                    if (route.getId().equals(routeId)) {
-                        theRoute = route;
-                        break;
+            long backoff = mReconnection.getBackoffDelay();
+            if (backoff > 0) {
+                mReconnection.defer(new Runnable() {
+                    @Override
+                    public void run() {
+                        reconnectSessionIfPossible(timeoutInSeconds, ssidName);
                     }
-                }
+                }, backoff);
+                return;
+            }
+            RouteInfo theRoute = findRoute(routeId);
+            CastDevice device = null;
+            if (theRoute == null && !isConnecting()) {
+                device = Utils.stringToCastDevice(mContext,
+                        mPreferenceAccessor.getStringFromPreference(PREFS_KEY_CAST_DEVICE));
             }
+            // the attempt ends when we connect or, at the latest, when its deadline passes
+            mReconnection.start(TimeUnit.SECONDS.toMillis(timeoutInSeconds), theRoute != null, device != null);
             if (theRoute != null) {
                 // route has already been discovered, so lets just get the device
                 reconnectSessionIfPossibleInternal(theRoute);
+            } else if (device != null) {
+                // we connect to the device we had persisted and, at the same time, let
+                // onRouteAdded callback of CastMediaRouterCallback validate it once discovered;
+                // consumers are told about the device only then, with its route
+                LOGD(TAG, "reconnectSessionIfPossible(): connecting directly to " + device);
+                setReconnectionStatus(RECONNECTION_STATUS_IN_PROGRESS);
+                setDevice(device);
             } else {
                 // we set a flag so if the route is discovered within a short period, we let
                 // onRouteAdded callback of CastMediaRouterCallback take care of that
                 setReconnectionStatus(RECONNECTION_STATUS_STARTED);
             }
+        }
+    }
 
-            // cancel any prior reconnection task
-            if (mReconnectionTask != null && !mReconnectionTask.isCancelled()) {
-                mReconnectionTask.cancel(true);
+    private RouteInfo findRoute(String routeId) {
+        List<RouteInfo> routes = mMediaRouter.getRoutes();
+        if (routes != null && routeId != null) {
+            for (RouteInfo route : routes) {
+                if (route.getId().equals(routeId)) {
+                    return route;
+                }
             }
+        }
+        return null;
+    }
 
-            // we may need to reconnect to an existing session
-            mReconnectionTask = new AsyncTask<Void, Integer, Boolean>() {
-
-                @Override
-                protected Boolean doInBackground(Void... params) {
-                    for (int i = 0; i < timeoutInSeconds; i++) {
-                        LOGD(TAG, "Reconnection: Attempt " + (i + 1));
-                        if (isCancelled()) {
-                            return true;
-                        }
-                        try {
-                            if (isConnected()) {
-                                cancel(true);
-                            }
-                            Thread.sleep(1000);
-                        } catch (InterruptedException e) {
-                            // ignore
-                        }
-                    }
-                    return false;
+    /*
+     * Called by CastMediaRouterCallback when it has found the route of the session being
+     * recovered. If we are connecting directly to the persisted device, the route validates it;
+     * otherwise, the device of the route gets selected.
+     */
+    void onReconnectionRouteFound(RouteInfo route) {
+        CastDevice device = CastDevice.getFromBundle(route.getExtras());
+        if (mReconnection.isDirectPending()) {
+            if (device != null && mSelectedCastDevice != null && device.isSameDevice(mSelectedCastDevice)
+                    && (isConnected() || isSameAddress(device, mSelectedCastDevice))) {
+                LOGD(TAG, "onReconnectionRouteFound(): the route validates the direct reconnection");
+                mReconnection.onRouteFound();
+                notifyDeviceSelected(mSelectedCastDevice, route);
+                if (mSessionId != null && mReconnectionStatus == RECONNECTION_STATUS_IN_PROGRESS) {
+                    // the session has already been joined, only the route was missing
+                    mReconnectionStatus = RECONNECTION_STATUS_FINALIZED;
+                    publishState();
+                    mMediaRouter.selectRoute(route);
                 }
+                return;
+            }
+            // the device has moved since it was persisted, so we go with the route instead
+            LOGD(TAG, "onReconnectionRouteFound(): the route does not match the persisted device");
+            mReconnection.onDirectFailed();
+            abandonDirectConnection();
+        } else if (mReconnectionStatus != RECONNECTION_STATUS_STARTED) {
+            return;
+        }
+        mReconnection.onRouteFound();
+        setReconnectionStatus(RECONNECTION_STATUS_IN_PROGRESS);
+        LOGD(TAG, "onReconnectionRouteFound(): Attempting to recover a session with device: "
+                + (device != null ? device.getFriendlyName() : "Null"));
+        onDeviceSelected(device, route);
+    }
 
-                @Override
-                protected void onPostExecute(Boolean result) {
-                    if (result == null || !result) {
-                        LOGD(TAG, "Couldn't reconnect, dropping connection");
-                        setReconnectionStatus(RECONNECTION_STATUS_INACTIVE);
-                        onDeviceSelected(null /* CastDevice */, null /* RouteInfo */);
-                    }
-                }
+    /*
+     * Called by CastMediaRouterCallback when the route of the recovered session has been selected.
+     */
+    void onReconnectionRouteSelected() {
+        mReconnection.onRouteFound();
+        setReconnectionStatus(RECONNECTION_STATUS_INACTIVE);
+    }
+
+    private static boolean isSameAddress(CastDevice device, CastDevice other) {
+        return device.getServicePort() == other.getServicePort() && device.getIpAddress() != null
+                && device.getIpAddress().equals(other.getIpAddress());
+    }
 
-            };
-            mReconnectionTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    /*
+     * Drops the client that was connecting to the persisted device, without going through a
+     * disconnection; the recovery goes on.
+     */
+    private void abandonDirectConnection() {
+        if (mApiClient != null) {
+            mApiClient.unregisterConnectionCallbacks(this);
+            mApiClient.unregisterConnectionFailedListener(this);
+            if (mApiClient.isConnected() || mApiClient.isConnecting()) {
+                mApiClient.disconnect();
+            }
+            mApiClient = null;
         }
+        mSelectedCastDevice = null;
+        mDeviceName = null;
+        publishState();
+    }
+
+    /**
+     * Returns the timing of the last attempts to recover a session, the most recent one last.
+     */
+    public final List<ReconnectionAttempt> getReconnectionAttempts() {
+        return mReconnection.getAttempts();
     }
 
     /**
@@ -890,9 +1026,13 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * disconnect. Note: this is not called by SDK.
      */
     public void onConnectivityRecovered() {
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onConnectivityRecovered();
-        }
+        dispatch(ConsumerEvents.EVENT_CONNECTIVITY_RECOVERED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onConnectivityRecovered();
+            }
+        });
     }
 
     /*
@@ -905,6 +1045,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         LOGD(TAG, "onConnected() reached with prior suspension: " + mConnectionSuspended);
         if (mConnectionSuspended) {
             mConnectionSuspended = false;
+            publishState();
             if (hint != null && hint.getBoolean(Cast.EXTRA_APP_NO_LONGER_RUNNING)) {
                 // the same app is not running any more
                 LOGD(TAG, "onConnected(): App no longer running, so disconnecting");
@@ -920,6 +1061,11 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
             }
             return;
         }
+        mReconnection.onConnected();
+        publishState();
+        // saving the device so that the next recovery can connect to it without discovery
+        mPreferenceAccessor.saveStringToPreference(PREFS_KEY_CAST_DEVICE,
+                Utils.castDeviceToString(mContext, mSelectedCastDevice));
         try {
             if (isFeatureEnabled(CastConfiguration.FEATURE_WIFI_RECONNECT)) {
                 String ssid = Utils.getWifiSsid(mContext);
@@ -930,9 +1076,13 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
                 launchApp();
             }
 
-            for (BaseCastConsumer consumer : mBaseCastConsumers) {
-                consumer.onConnected();
-            }
+            dispatch(ConsumerEvents.EVENT_CONNECTED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+                @Override
+                public void deliver(BaseCastConsumer consumer) {
+                    consumer.onConnected();
+                }
+            });
 
         } catch (IOException | IllegalStateException e) {
             LOGE(TAG, "requestStatus()", e);
@@ -948,9 +1098,14 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
             setDefaultRoute) {
         LOGD(TAG, "onDisconnected() reached");
         mDeviceName = null;
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onDisconnected();
-        }
+        publishState();
+        dispatch(ConsumerEvents.EVENT_DISCONNECTED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onDisconnected();
+            }
+        });
     }
 
     /*
@@ -959,18 +1114,36 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * onConnectionFailed(com.google.android.gms.common.ConnectionResult)
      */
     @Override
-    public void onConnectionFailed(@NonNull ConnectionResult result) {
+    public void onConnectionFailed(@NonNull final ConnectionResult result) {
         LOGD(TAG, "onConnectionFailed() reached, error code: " + result.getErrorCode() + ", reason: " + result
                 .toString());
+        if (mReconnection.isDirectPending()) {
+            // the persisted device is not where it was, so we fall back on discovery
+            LOGD(TAG, "onConnectionFailed(): direct reconnection failed, waiting for the route");
+            mReconnection.onDirectFailed();
+            mPreferenceAccessor.saveStringToPreference(PREFS_KEY_CAST_DEVICE, null);
+            abandonDirectConnection();
+            setReconnectionStatus(RECONNECTION_STATUS_STARTED);
+            RouteInfo route = findRoute(mPreferenceAccessor.getStringFromPreference(PREFS_KEY_ROUTE_ID));
+            if (route != null) {
+                onReconnectionRouteFound(route);
+            }
+            return;
+        }
         disconnectDevice(mDestroyOnDisconnect, false /* clearPersistentConnectionData */, false /* setDefaultRoute */);
         mConnectionSuspended = false;
+        publishState();
         if (mMediaRouter != null) {
             mMediaRouter.selectRoute(mMediaRouter.getDefaultRoute());
         }
 
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onConnectionFailed(result);
-        }
+        dispatch(ConsumerEvents.EVENT_CONNECTION_FAILED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onConnectionFailed(result);
+            }
+        });
 
         PendingIntent pendingIntent = result.getResolution();
         if (pendingIntent != null) {
@@ -983,12 +1156,17 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     }
 
     @Override
-    public void onConnectionSuspended(int cause) {
+    public void onConnectionSuspended(final int cause) {
         mConnectionSuspended = true;
+        publishState();
         LOGD(TAG, "onConnectionSuspended() was called with cause: " + cause);
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onConnectionSuspended(cause);
-        }
+        dispatch(ConsumerEvents.EVENT_CONNECTION_SUSPENDED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onConnectionSuspended(cause);
+            }
+        });
     }
 
     /**
@@ -1089,24 +1267,183 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
      * @see com.google.android.libraries.cast.companionlibrary.cast.callbacks.BaseCastConsumerImpl
      */
     public final void addBaseCastConsumer(BaseCastConsumer listener) {
+        addBaseCastConsumer(listener, ConsumerEvents.BASE_EVENTS);
+    }
+
+    /**
+     * Registers a {@link BaseCastConsumer} that is only called for the given {@code interests}, a
+     * mask of the {@link ConsumerEvents} identifiers (see {@link ConsumerEvents#maskOf(int...)}).
+     * A listener that overrides a few callbacks of
+     * {@link com.google.android.libraries.cast.companionlibrary.cast.callbacks.BaseCastConsumerImpl}
+     * should only register for those.
+     */
+    public final void addBaseCastConsumer(BaseCastConsumer listener, long interests) {
+        addBaseCastConsumer(listener, interests, ConsumerDispatcher.DELIVERY_DIRECT,
+                ConsumerDispatcher.POLICY_DELIVER_ALL);
+    }
+
+    /**
+     * Registers a {@link BaseCastConsumer} that is called through the given {@code delivery}, one
+     * of the {@code ConsumerDispatcher.DELIVERY_*} modes, and {@code policy}, one of the
+     * {@code ConsumerDispatcher.POLICY_*} policies. Registering a listener again replaces its
+     * delivery and policy.
+     *
+     * @see ConsumerDispatcher
+     */
+    public final void addBaseCastConsumer(BaseCastConsumer listener, int delivery, int policy) {
+        addBaseCastConsumer(listener, ConsumerEvents.BASE_EVENTS, delivery, policy);
+    }
+
+    /**
+     * Registers a {@link BaseCastConsumer} for the given {@code interests}, through the given
+     * {@code delivery} and {@code policy}. Registering a listener again replaces the interests
+     * it registered through this method, and its delivery and policy; interests registered through
+     * the other consumer methods are kept.
+     */
+    public final void addBaseCastConsumer(BaseCastConsumer listener, long interests, int delivery,
+            int policy) {
+        addConsumer(listener, ConsumerDispatcher.SCOPE_BASE, ConsumerEvents.BASE_EVENTS & interests, delivery,
+                policy);
+    }
+
+    /**
+     * Unregisters a {@link BaseCastConsumer}. A listener that was also added through the API of
+     * the manager, e.g. {@code addVideoCastConsumer()}, stays registered for those events.
+     */
+    public final void removeBaseCastConsumer(BaseCastConsumer listener) {
+        removeConsumer(listener, ConsumerDispatcher.SCOPE_BASE);
+    }
+
+    /**
+     * Returns the delivery statistics of the registered consumers, the slowest first; a consumer
+     * that holds up the others shows up with a high latency.
+     */
+    public final List<ConsumerDispatcher.DeliveryStats> getConsumerDeliveryStats() {
+        return mConsumerDispatcher.getStats();
+    }
+
+    /**
+     * Returns the number of consumers that are registered for each event, indexed by the
+     * {@link ConsumerEvents} identifiers.
+     */
+    public final int[] getConsumerCounts() {
+        return mConsumerDispatcher.getSubscriberCounts();
+    }
+
+    /*
+     * Registers a consumer in one of the ConsumerDispatcher.SCOPE_* scopes for the given events, a
+     * mask of the ConsumerEvents identifiers.
+     */
+    protected final void addConsumer(BaseCastConsumer listener, int scope, long events, int delivery,
+            int policy) {
         if (listener != null) {
-            if (mBaseCastConsumers.add(listener)) {
-                LOGD(TAG, "Successfully added the new BaseCastConsumer listener " + listener);
+            if (mConsumerDispatcher.add(listener, scope, events, delivery, policy)) {
+                LOGD(TAG, "Successfully added the new consumer " + listener);
             }
         }
     }
 
-    /**
-     * Unregisters a {@link BaseCastConsumer}.
+    /*
+     * Unregisters a consumer from one of the ConsumerDispatcher.SCOPE_* scopes.
      */
-    public final void removeBaseCastConsumer(BaseCastConsumer listener) {
+    protected final void removeConsumer(BaseCastConsumer listener, int scope) {
         if (listener != null) {
-            if (mBaseCastConsumers.remove(listener)) {
-                LOGD(TAG, "Successfully removed the existing BaseCastConsumer listener " + listener);
+            if (mConsumerDispatcher.remove(listener, scope)) {
+                LOGD(TAG, "Successfully removed the existing consumer " + listener);
             }
         }
     }
 
+    /**
+     * Returns the latest snapshot of the state of the session. This only reads a reference, so it
+     * can be called on any thread and as often as needed; the values of the snapshot are
+     * consistent with each other.
+     */
+    public final CastState getCastState() {
+        return mCastState.get();
+    }
+
+    /*
+     * Publishes a new snapshot of the state if it has changed. This must be called after the
+     * fields that the snapshot is built from have been updated.
+     */
+    protected final void publishState() {
+        synchronized (mCastStateLock) {
+            CastState.Builder builder = new CastState.Builder();
+            onBuildState(builder);
+            CastState previous = mCastState.get();
+            CastState next = builder.build(previous.getVersion() + 1);
+            if (!next.hasSameContent(previous)) {
+                mCastState.set(next);
+            }
+        }
+        onUpdateStreams();
+    }
+
+    /*
+     * Pushes the current state to the observable streams; they drop the values that have not
+     * changed. Subclasses update their own streams.
+     */
+    void onUpdateStreams() {
+        mConnectionStateData.update(getConnectionState());
+        mCastDeviceData.update(mSelectedCastDevice);
+    }
+
+    /**
+     * Returns the state of the connection to the cast device, one of the
+     * {@code CONNECTION_STATE_*} values.
+     */
+    @ConnectionState
+    public final int getConnectionState() {
+        if (mSelectedCastDevice == null) {
+            return CONNECTION_STATE_DISCONNECTED;
+        }
+        if (mConnectionSuspended) {
+            return CONNECTION_STATE_SUSPENDED;
+        }
+        return isConnected() ? CONNECTION_STATE_CONNECTED : CONNECTION_STATE_CONNECTING;
+    }
+
+    /**
+     * Returns an observable stream of the state of the connection to the cast device; see
+     * {@link #getConnectionState()}. It only emits when the state changes.
+     */
+    public final LiveData<Integer> getConnectionStateData() {
+        return mConnectionStateData;
+    }
+
+    /**
+     * Returns an observable stream of the selected cast device, or {@code null} when no device is
+     * selected. It only emits when the device changes.
+     */
+    public final LiveData<CastDevice> getCastDeviceData() {
+        return mCastDeviceData;
+    }
+
+    /*
+     * Fills the values of a new snapshot of the state; subclasses add their own values.
+     */
+    void onBuildState(CastState.Builder builder) {
+        builder.setDeviceName(mDeviceName)
+                .setSessionId(mSessionId)
+                .setReconnectionStatus(mReconnectionStatus);
+    }
+
+    /*
+     * Returns true if a consumer is registered for the given event.
+     */
+    protected final boolean hasConsumers(int event) {
+        return mConsumerDispatcher.hasSubscribers(event);
+    }
+
+    /*
+     * Delivers an event to the consumers that are registered for it.
+     */
+    protected final <C extends BaseCastConsumer> void dispatch(int event,
+            ConsumerDispatcher.Event<C> delivery) {
+        mConsumerDispatcher.dispatch(event, delivery);
+    }
+
     /**
      * A simple method that throws an exception if there is no connectivity to the cast device.
      *
@@ -1124,11 +1461,15 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
     }
 
     @Override
-    public void onFailed(int resourceId, int statusCode) {
+    public void onFailed(final int resourceId, final int statusCode) {
         LOGD(TAG, "onFailed() was called with statusCode: " + statusCode);
-        for (BaseCastConsumer consumer : mBaseCastConsumers) {
-            consumer.onFailed(resourceId, statusCode);
-        }
+        dispatch(ConsumerEvents.EVENT_FAILED, new ConsumerDispatcher.Event<BaseCastConsumer>() {
+
+            @Override
+            public void deliver(BaseCastConsumer consumer) {
+                consumer.onFailed(resourceId, statusCode);
+            }
+        });
     }
 
     /**
@@ -1161,6 +1502,7 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         }
         if (isFlagSet(what, CLEAR_ROUTE)) {
             mPreferenceAccessor.saveStringToPreference(PREFS_KEY_ROUTE_ID, null);
+            mPreferenceAccessor.saveStringToPreference(PREFS_KEY_CAST_DEVICE, null);
         }
         if (isFlagSet(what, CLEAR_WIFI_ID)) {
             mPreferenceAccessor.saveStringToPreference(PREFS_KEY_SSID, null);
@@ -1181,8 +1523,11 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         if (!isFeatureEnabled(CastConfiguration.FEATURE_WIFI_RECONNECT)) {
             return;
         }
-        LOGD(TAG, "startReconnectionService() for media length lef = " + mediaDurationLeft);
         long endTime = SystemClock.elapsedRealtime() + mediaDurationLeft;
+        if (!mServiceCoordinator.shouldStartReconnection(endTime)) {
+            return;
+        }
+        LOGD(TAG, "startReconnectionService() for media length lef = " + mediaDurationLeft);
         mPreferenceAccessor.saveLongToPreference(PREFS_KEY_MEDIA_END, endTime);
         Context applicationContext = mContext.getApplicationContext();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -1194,10 +1539,26 @@ public abstract class BaseCastManager implements ConnectionCallbacks, OnConnecti
         }
     }
 
+    /**
+     * Signals that the reconnection service has been destroyed. Clients should not call this
+     * directly.
+     */
+    public void onReconnectionServiceStopped() {
+        LOGD(TAG, "onReconnectionServiceStopped() reached");
+        mServiceCoordinator.onReconnectionStopped();
+    }
+
+    final ServiceCoordinator getServiceCoordinator() {
+        return mServiceCoordinator;
+    }
+
     protected void stopReconnectionService() {
         if (!isFeatureEnabled(CastConfiguration.FEATURE_WIFI_RECONNECT)) {
             return;
         }
+        if (!mServiceCoordinator.shouldStopReconnection()) {
+            return;
+        }
         LOGD(TAG, "stopReconnectionService()");
         Context applicationContext = mContext.getApplicationContext();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -20,10 +20,15 @@ import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.
 
 import com.google.android.gms.cast.CastDevice;
 import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
 
 import androidx.mediarouter.media.MediaRouter;
 import androidx.mediarouter.media.MediaRouter.RouteInfo;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Provides a handy implementation of {@link MediaRouter.Callback}. When a {@link RouteInfo} is
  * selected by user from the list of available routes, this class will call the
@@ -32,11 +37,25 @@ import androidx.mediarouter.media.MediaRouter.RouteInfo;
  * {@link BaseCastManager#onCastDeviceDetected(RouteInfo))} is called.
  * <p>
  * There is also some logic in this class to help with the process of previous session recovery.
+ * <p>
+ * At startup, if routes were seen recently on the current wifi network, cast devices are reported
+ * as available before the discovery finds them; the discovery then has
+ * {@link #PROVISIONAL_TIMEOUT_MS} to confirm them, after which the routes it has not found are
+ * forgotten.
  */
 public class CastMediaRouterCallback extends MediaRouter.Callback {
     private static final String TAG = LogUtils.makeLogTag(CastMediaRouterCallback.class);
     private final BaseCastManager mCastManager;
+
+    /**
+     * How long the discovery has to confirm the routes that were reported as available from the
+     * cache at startup.
+     */
+    public static final long PROVISIONAL_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
     private boolean mRouteAvailable = false;
+    private boolean mProvisional;
+    private TickBus.Subscription mProvisionalTimeout;
 
     public CastMediaRouterCallback(BaseCastManager castManager) {
         mCastManager = castManager;
@@ -47,8 +66,7 @@ public class CastMediaRouterCallback extends MediaRouter.Callback {
         LOGD(TAG, "onRouteSelected: info=" + info);
         if (mCastManager.getReconnectionStatus()
                 == BaseCastManager.RECONNECTION_STATUS_FINALIZED) {
-            mCastManager.setReconnectionStatus(BaseCastManager.RECONNECTION_STATUS_INACTIVE);
-            mCastManager.cancelReconnectionTask();
+            mCastManager.onReconnectionRouteSelected();
             return;
         }
         mCastManager.getPreferenceAccessor().saveStringToPreference(
@@ -68,22 +86,20 @@ public class CastMediaRouterCallback extends MediaRouter.Callback {
     @Override
     public void onRouteAdded(MediaRouter router, RouteInfo routeInfo) {
         if (!router.getDefaultRoute().equals(routeInfo)) {
+            cacheRouteIfMatching(routeInfo);
             notifyRouteAvailabilityChangedIfNeeded(router);
             mCastManager.onCastDeviceDetected(routeInfo);
         }
-        if (mCastManager.getReconnectionStatus()
-                == BaseCastManager.RECONNECTION_STATUS_STARTED) {
+        int reconnectionStatus = mCastManager.getReconnectionStatus();
+        if (reconnectionStatus == BaseCastManager.RECONNECTION_STATUS_STARTED
+                || reconnectionStatus == BaseCastManager.RECONNECTION_STATUS_IN_PROGRESS) {
             String routeId = mCastManager.getPreferenceAccessor().getStringFromPreference(
                     BaseCastManager.PREFS_KEY_ROUTE_ID);
             if (routeInfo.getId().equals(routeId)) {
-                // we found the route, so lets go with that
+                // we found the route, so lets go with that, or validate the device we are
+                // already connecting to
                 LOGD(TAG, "onRouteAdded: Attempting to recover a session with info=" + routeInfo);
-                mCastManager.setReconnectionStatus(BaseCastManager.RECONNECTION_STATUS_IN_PROGRESS);
-
-                CastDevice device = CastDevice.getFromBundle(routeInfo.getExtras());
-                LOGD(TAG, "onRouteAdded: Attempting to recover a session with device: "
-                        + (device != null ? device.getFriendlyName() : "Null"));
-                mCastManager.onDeviceSelected(device, routeInfo);
+                mCastManager.onReconnectionRouteFound(routeInfo);
             }
         }
     }
@@ -96,11 +112,74 @@ public class CastMediaRouterCallback extends MediaRouter.Callback {
 
     @Override
     public void onRouteChanged(MediaRouter router, RouteInfo route) {
+        if (!router.getDefaultRoute().equals(route)) {
+            cacheRouteIfMatching(route);
+        }
+        notifyRouteAvailabilityChangedIfNeeded(router);
+    }
+
+    /*
+     * Reports the cast devices as available if routes were seen recently on the current network and
+     * the discovery has not found any yet.
+     */
+    void startProvisionalAvailability(final MediaRouter router) {
+        if (isRouteAvailable(router) || mCastManager.mRouteCache.getRouteIds().isEmpty()) {
+            notifyRouteAvailabilityChangedIfNeeded(router);
+            return;
+        }
+        LOGD(TAG, "startProvisionalAvailability(): reporting the cached routes as available");
+        mProvisional = true;
+        mProvisionalTimeout = TickBus.getInstance().schedule(new Runnable() {
+            @Override
+            public void run() {
+                endProvisionalAvailability(router, true);
+            }
+        }, PROVISIONAL_TIMEOUT_MS, TickBus.LANE_MAIN);
+        if (!mRouteAvailable) {
+            mRouteAvailable = true;
+            mCastManager.onCastAvailabilityChanged(true);
+        }
+    }
+
+    /*
+     * Stops reporting the cached routes as available; if {@code discovered}, the discovery has run
+     * long enough for the cached routes that it has not found to be forgotten.
+     */
+    void endProvisionalAvailability(MediaRouter router, boolean discovered) {
+        if (!mProvisional) {
+            return;
+        }
+        mProvisional = false;
+        mProvisionalTimeout.cancel();
+        mProvisionalTimeout = null;
+        if (discovered) {
+            List<String> routeIds = new ArrayList<>();
+            for (RouteInfo route : router.getRoutes()) {
+                routeIds.add(route.getId());
+            }
+            mCastManager.mRouteCache.retainOnly(routeIds);
+        }
         notifyRouteAvailabilityChangedIfNeeded(router);
     }
 
+    private void cacheRouteIfMatching(RouteInfo route) {
+        if (route.matchesSelector(mCastManager.getMediaRouteSelector())) {
+            mCastManager.mRouteCache.onRouteSeen(route.getId());
+        }
+    }
+
     private void notifyRouteAvailabilityChangedIfNeeded(MediaRouter router) {
         boolean routeAvailable = isRouteAvailable(router);
+        if (mProvisional) {
+            if (!routeAvailable) {
+                // the cached routes stand until the discovery confirms or refutes them
+                return;
+            }
+            LOGD(TAG, "notifyRouteAvailabilityChangedIfNeeded(): the discovery confirmed availability");
+            mProvisional = false;
+            mProvisionalTimeout.cancel();
+            mProvisionalTimeout = null;
+        }
         if (routeAvailable != mRouteAvailable) {
             // availability of routes have changed
             mRouteAvailable = routeAvailable;
@@ -116,7 +195,8 @@ public class CastMediaRouterCallback extends MediaRouter.Callback {
 
     /**
      * Returns {@code true} if and only if there is at least one route matching the
-     * {@link BaseCastManager#getMediaRouteSelector()}.
+     * {@link BaseCastManager#getMediaRouteSelector()}, or, at startup, if such routes were seen
+     * recently on the current wifi network and the discovery has not refuted them yet.
      */
     public boolean isRouteAvailable() {
         return mRouteAvailable;
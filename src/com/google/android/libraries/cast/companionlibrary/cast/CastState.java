@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import android.text.TextUtils;
+
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaQueueItem;
+import com.google.android.gms.cast.MediaStatus;
+
+/**
+ * An immutable snapshot of the state of a cast session. The cast managers publish a new snapshot,
+ * with a higher version, every time the state changes; see {@link BaseCastManager#getCastState()}.
+ * Reading the snapshot does not block and gives a consistent view of all its values, on any
+ * thread.
+ */
+public final class CastState {
+
+    /**
+     * The state before anything has been published.
+     */
+    static final CastState EMPTY = new Builder().build(0);
+
+    private final long mVersion;
+    private final String mDeviceName;
+    private final String mSessionId;
+    private final int mReconnectionStatus;
+    private final int mPlayerState;
+    private final int mIdleReason;
+    private final MediaInfo mMediaInfo;
+    private final long mStreamPosition;
+    private final int mLoadingItemId;
+    private final MediaQueue mMediaQueue;
+    private final MediaQueueItem mPreloadingItem;
+
+    private CastState(Builder builder, long version) {
+        mVersion = version;
+        mDeviceName = builder.mDeviceName;
+        mSessionId = builder.mSessionId;
+        mReconnectionStatus = builder.mReconnectionStatus;
+        mPlayerState = builder.mPlayerState;
+        mIdleReason = builder.mIdleReason;
+        mMediaInfo = builder.mMediaInfo;
+        mStreamPosition = builder.mStreamPosition;
+        mLoadingItemId = builder.mLoadingItemId;
+        mMediaQueue = builder.mMediaQueue;
+        mPreloadingItem = builder.mPreloadingItem;
+    }
+
+    /**
+     * Returns the version of this snapshot; a snapshot published later has a higher version.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    public String getDeviceName() {
+        return mDeviceName;
+    }
+
+    public String getSessionId() {
+        return mSessionId;
+    }
+
+    /**
+     * Returns one of the {@code BaseCastManager.RECONNECTION_STATUS_*} values.
+     */
+    public int getReconnectionStatus() {
+        return mReconnectionStatus;
+    }
+
+    /**
+     * Returns one of the {@code MediaStatus.PLAYER_STATE_*} values.
+     */
+    public int getPlayerState() {
+        return mPlayerState;
+    }
+
+    /**
+     * Returns one of the {@code MediaStatus.IDLE_REASON_*} values.
+     */
+    public int getIdleReason() {
+        return mIdleReason;
+    }
+
+    /**
+     * Returns the media that the receiver is playing, or {@code null}.
+     */
+    public MediaInfo getMediaInfo() {
+        return mMediaInfo;
+    }
+
+    /**
+     * Returns the stream position, in milliseconds, reported by the media status this snapshot was
+     * built from. The position moves on between snapshots while playing; see
+     * {@link VideoCastManager#getCurrentMediaPosition()} for the current one.
+     */
+    public long getStreamPosition() {
+        return mStreamPosition;
+    }
+
+    /**
+     * Returns the id of the item that the receiver is loading, or
+     * {@link MediaQueueItem#INVALID_ITEM_ID}.
+     */
+    public int getLoadingItemId() {
+        return mLoadingItemId;
+    }
+
+    /**
+     * Returns the queue of the receiver, or {@code null} if there is none.
+     */
+    public MediaQueue getMediaQueue() {
+        return mMediaQueue;
+    }
+
+    public MediaQueueItem getPreloadingItem() {
+        return mPreloadingItem;
+    }
+
+    public boolean isRemoteStreamLive() {
+        return mMediaInfo != null && mMediaInfo.getStreamType() == MediaInfo.STREAM_TYPE_LIVE;
+    }
+
+    /*
+     * Returns true if this snapshot holds the same values as the given one, regardless of their
+     * versions.
+     */
+    boolean hasSameContent(CastState other) {
+        return TextUtils.equals(mDeviceName, other.mDeviceName)
+                && TextUtils.equals(mSessionId, other.mSessionId)
+                && mReconnectionStatus == other.mReconnectionStatus
+                && mPlayerState == other.mPlayerState
+                && mIdleReason == other.mIdleReason
+                && mMediaInfo == other.mMediaInfo
+                && mStreamPosition == other.mStreamPosition
+                && mLoadingItemId == other.mLoadingItemId
+                && mMediaQueue == other.mMediaQueue
+                && mPreloadingItem == other.mPreloadingItem;
+    }
+
+    @Override
+    public String toString() {
+        return "CastState{version=" + mVersion + ", device=" + mDeviceName + ", playerState="
+                + mPlayerState + ", idleReason=" + mIdleReason + ", reconnectionStatus="
+                + mReconnectionStatus + "}";
+    }
+
+    /**
+     * Collects the values of a new snapshot.
+     */
+    static final class Builder {
+
+        private String mDeviceName;
+        private String mSessionId;
+        private int mReconnectionStatus = BaseCastManager.RECONNECTION_STATUS_INACTIVE;
+        private int mPlayerState = MediaStatus.PLAYER_STATE_IDLE;
+        private int mIdleReason = MediaStatus.IDLE_REASON_NONE;
+        private MediaInfo mMediaInfo;
+        private long mStreamPosition;
+        private int mLoadingItemId = MediaQueueItem.INVALID_ITEM_ID;
+        private MediaQueue mMediaQueue;
+        private MediaQueueItem mPreloadingItem;
+
+        Builder setDeviceName(String deviceName) {
+            mDeviceName = deviceName;
+            return this;
+        }
+
+        Builder setSessionId(String sessionId) {
+            mSessionId = sessionId;
+            return this;
+        }
+
+        Builder setReconnectionStatus(int reconnectionStatus) {
+            mReconnectionStatus = reconnectionStatus;
+            return this;
+        }
+
+        Builder setPlayerState(int playerState, int idleReason) {
+            mPlayerState = playerState;
+            mIdleReason = idleReason;
+            return this;
+        }
+
+        /*
+         * Copies the values of the status, which the Cast SDK may update in place.
+         */
+        Builder setMediaStatus(MediaStatus status) {
+            mMediaInfo = status == null ? null : status.getMediaInfo();
+            mStreamPosition = status == null ? 0 : status.getStreamPosition();
+            mLoadingItemId = status == null ? MediaQueueItem.INVALID_ITEM_ID : status.getLoadingItemId();
+            return this;
+        }
+
+        Builder setMediaQueue(MediaQueue mediaQueue) {
+            mMediaQueue = mediaQueue;
+            return this;
+        }
+
+        Builder setPreloadingItem(MediaQueueItem preloadingItem) {
+            mPreloadingItem = preloadingItem;
+            return this;
+        }
+
+        CastState build(long version) {
+            return new CastState(this, version);
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGW;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.libraries.cast.companionlibrary.cast.callbacks.ConsumerEvents;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the events of a cast manager to its consumers. Each consumer is registered with a
+ * delivery mode and a policy:
+ * <ul>
+ * <li>{@link #DELIVERY_DIRECT} calls the consumer on the thread that raised the event, as the
+ * managers always did.</li>
+ * <li>{@link #DELIVERY_MAIN_THREAD} calls it on the main thread; inline if the event is raised on
+ * the main thread and nothing is pending for the consumer.</li>
+ * <li>{@link #DELIVERY_BACKGROUND} calls it on a background thread of its own, so that it cannot
+ * hold up the manager or the other consumers.</li>
+ * </ul>
+ * Events that cannot be delivered right away are queued for the consumer and delivered in order.
+ * With {@link #POLICY_LATEST_WINS}, an event that reports a state (see
+ * {@link ConsumerEvents#isStateEvent(int)}) replaces the pending occurrence of the same event, so a
+ * consumer that lags behind only receives the newest state.
+ * <p>
+ * Consumers are registered for a mask of events, and the dispatcher keeps, for each event, the
+ * array of the consumers that are registered for it, so that an event is never offered to a
+ * consumer that has no interest in it, and costs nothing when nobody is; see
+ * {@link #getSubscriberCounts()}.
+ * <p>
+ * The time from the dispatch of each event to the return of the consumer is recorded; see
+ * {@link #getStats()}.
+ */
+public final class ConsumerDispatcher<T> {
+
+    private static final String TAG = LogUtils.makeLogTag(ConsumerDispatcher.class);
+
+    public static final int DELIVERY_DIRECT = 0;
+    public static final int DELIVERY_MAIN_THREAD = 1;
+    public static final int DELIVERY_BACKGROUND = 2;
+
+    public static final int POLICY_DELIVER_ALL = 0;
+    public static final int POLICY_LATEST_WINS = 1;
+
+    /**
+     * The registration APIs a consumer can be added through: {@code addBaseCastConsumer()}, and
+     * the one of the manager, e.g. {@code addVideoCastConsumer()}. Each keeps its own events, so
+     * that adding or removing a consumer through one does not affect the other; the consumer gets
+     * the union of the events, each of them once.
+     */
+    public static final int SCOPE_BASE = 0;
+    public static final int SCOPE_MANAGER = 1;
+    private static final int SCOPE_COUNT = 2;
+
+    // deliveries slower than this are logged, along with the consumer
+    private static final long SLOW_DELIVERY_MS = 50;
+
+    private static ExecutorService sBackgroundExecutor;
+
+    /**
+     * A callback of the consumers, with its arguments.
+     */
+    interface Event<C> {
+
+        void deliver(C consumer);
+    }
+
+    /**
+     * The delivery statistics of a consumer.
+     */
+    public static final class DeliveryStats {
+
+        private final Object mConsumer;
+        private final long mEvents;
+        private final int mDelivery;
+        private final int mPolicy;
+        private final long mDeliveredCount;
+        private final long mCoalescedCount;
+        private final int mPendingCount;
+        private final long mTotalLatencyNanos;
+        private final long mMaxLatencyNanos;
+
+        private DeliveryStats(Registration<?> registration) {
+            mConsumer = registration.mConsumer;
+            mEvents = registration.mEvents;
+            mDelivery = registration.mDelivery;
+            mPolicy = registration.mPolicy;
+            mDeliveredCount = registration.mDeliveredCount;
+            mCoalescedCount = registration.mCoalescedCount;
+            mPendingCount = registration.mPending.size();
+            mTotalLatencyNanos = registration.mTotalLatencyNanos;
+            mMaxLatencyNanos = registration.mMaxLatencyNanos;
+        }
+
+        public Object getConsumer() {
+            return mConsumer;
+        }
+
+        /**
+         * Returns the mask of the {@link ConsumerEvents} identifiers the consumer is registered for.
+         */
+        public long getEvents() {
+            return mEvents;
+        }
+
+        public int getDelivery() {
+            return mDelivery;
+        }
+
+        public int getPolicy() {
+            return mPolicy;
+        }
+
+        /**
+         * Returns the number of events that the consumer has returned from.
+         */
+        public long getDeliveredCount() {
+            return mDeliveredCount;
+        }
+
+        /**
+         * Returns the number of events that were dropped because a newer occurrence replaced them.
+         */
+        public long getCoalescedCount() {
+            return mCoalescedCount;
+        }
+
+        public int getPendingCount() {
+            return mPendingCount;
+        }
+
+        /**
+         * Returns the average time from the dispatch of an event to the return of the consumer.
+         */
+        public double getAverageLatencyMillis() {
+            return mDeliveredCount == 0 ? 0
+                    : (double) mTotalLatencyNanos / mDeliveredCount / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public double getMaxLatencyMillis() {
+            return (double) mMaxLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return "DeliveryStats{consumer=" + mConsumer + ", events=" + Long.toHexString(mEvents)
+                    + ", delivery=" + mDelivery + ", policy=" + mPolicy + ", delivered="
+                    + mDeliveredCount + ", coalesced=" + mCoalescedCount + ", pending=" + mPendingCount
+                    + ", avgMs=" + getAverageLatencyMillis() + ", maxMs=" + getMaxLatencyMillis() + "}";
+        }
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final List<Registration<T>> mRegistrations = new CopyOnWriteArrayList<>();
+
+    // the consumers registered for each event, rebuilt when the registrations change
+    private volatile Registration<?>[][] mSubscribers = buildSubscribers(
+            Collections.<Registration<T>>emptyList());
+
+    /**
+     * Registers {@code consumer} for the given {@code events}, a mask of the
+     * {@link ConsumerEvents} identifiers, in the given {@code scope}. If it is already registered,
+     * the events replace the previous ones of that scope, and the delivery and policy replace the
+     * previous ones.
+     *
+     * @return {@code true} if the consumer was not registered yet
+     */
+    synchronized boolean add(T consumer, int scope, long events, int delivery, int policy) {
+        if (scope < 0 || scope >= SCOPE_COUNT) {
+            throw new IllegalArgumentException("Invalid scope " + scope);
+        }
+        if (delivery < DELIVERY_DIRECT || delivery > DELIVERY_BACKGROUND) {
+            throw new IllegalArgumentException("Invalid delivery " + delivery);
+        }
+        if (policy != POLICY_DELIVER_ALL && policy != POLICY_LATEST_WINS) {
+            throw new IllegalArgumentException("Invalid policy " + policy);
+        }
+        Registration<T> registration = find(consumer);
+        if (registration != null) {
+            synchronized (registration) {
+                registration.setEvents(scope, events);
+                registration.mDelivery = delivery;
+                registration.mPolicy = policy;
+            }
+            mSubscribers = buildSubscribers(mRegistrations);
+            return false;
+        }
+        registration = new Registration<>(this, consumer, delivery, policy);
+        registration.setEvents(scope, events);
+        mRegistrations.add(registration);
+        mSubscribers = buildSubscribers(mRegistrations);
+        return true;
+    }
+
+    /**
+     * Unregisters {@code consumer} from the given {@code scope}. Once it is registered in no scope,
+     * the events that are pending for it are dropped.
+     *
+     * @return {@code true} if the consumer was registered in that scope
+     */
+    synchronized boolean remove(T consumer, int scope) {
+        Registration<T> registration = find(consumer);
+        if (registration == null || scope < 0 || scope >= SCOPE_COUNT
+                || (registration.mScopes & (1 << scope)) == 0) {
+            return false;
+        }
+        synchronized (registration) {
+            registration.setEvents(scope, 0);
+        }
+        registration.mScopes &= ~(1 << scope);
+        if (registration.mScopes != 0) {
+            mSubscribers = buildSubscribers(mRegistrations);
+            return true;
+        }
+        mRegistrations.remove(registration);
+        mSubscribers = buildSubscribers(mRegistrations);
+        synchronized (registration) {
+            registration.mRemoved = true;
+            registration.mPending.clear();
+        }
+        return true;
+    }
+
+    /**
+     * Delivers {@code event}, one of the {@link ConsumerEvents} identifiers, to the consumers that
+     * are registered for it. The consumers must be instances of {@code C}, which the event masks
+     * given to {@link #add(Object, int, long, int, int)} guarantee.
+     */
+    @SuppressWarnings("unchecked")
+    <C extends T> void dispatch(int event, Event<C> delivery) {
+        Registration<?>[] subscribers = mSubscribers[event];
+        if (subscribers.length == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Registration<?> registration : subscribers) {
+            ((Registration<T>) registration).offer(event, (Event<T>) delivery, now);
+        }
+    }
+
+    /**
+     * Returns {@code true} if a consumer is registered for {@code event}; callers can skip the
+     * work of building an event that nobody receives.
+     */
+    boolean hasSubscribers(int event) {
+        return mSubscribers[event].length > 0;
+    }
+
+    /**
+     * Returns the number of consumers registered for each event, indexed by the
+     * {@link ConsumerEvents} identifiers.
+     */
+    public int[] getSubscriberCounts() {
+        Registration<?>[][] subscribers = mSubscribers;
+        int[] counts = new int[subscribers.length];
+        for (int event = 0; event < subscribers.length; event++) {
+            counts[event] = subscribers[event].length;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the delivery statistics of the registered consumers, the slowest first.
+     */
+    public List<DeliveryStats> getStats() {
+        List<DeliveryStats> stats = new ArrayList<>();
+        for (Registration<T> registration : mRegistrations) {
+            synchronized (registration) {
+                stats.add(new DeliveryStats(registration));
+            }
+        }
+        Collections.sort(stats, new Comparator<DeliveryStats>() {
+            @Override
+            public int compare(DeliveryStats lhs, DeliveryStats rhs) {
+                return Long.compare(rhs.mMaxLatencyNanos, lhs.mMaxLatencyNanos);
+            }
+        });
+        return stats;
+    }
+
+    private Registration<T> find(T consumer) {
+        for (Registration<T> registration : mRegistrations) {
+            if (registration.mConsumer == consumer) {
+                return registration;
+            }
+        }
+        return null;
+    }
+
+    private static <T> Registration<?>[][] buildSubscribers(List<Registration<T>> registrations) {
+        Registration<?>[][] subscribers = new Registration<?>[ConsumerEvents.EVENT_COUNT][];
+        for (int event = 0; event < ConsumerEvents.EVENT_COUNT; event++) {
+            List<Registration<T>> registered = new ArrayList<>();
+            for (Registration<T> registration : registrations) {
+                if ((registration.mEvents & (1L << event)) != 0) {
+                    registered.add(registration);
+                }
+            }
+            subscribers[event] = registered.toArray(new Registration<?>[registered.size()]);
+        }
+        return subscribers;
+    }
+
+    private static synchronized Executor getBackgroundExecutor() {
+        if (sBackgroundExecutor == null) {
+            sBackgroundExecutor = Executors.newCachedThreadPool();
+        }
+        return sBackgroundExecutor;
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private static final class Pending<T> {
+
+        final int mEvent;
+        final Event<T> mDelivery;
+        final long mDispatchedAt;
+
+        Pending(int event, Event<T> delivery, long dispatchedAt) {
+            mEvent = event;
+            mDelivery = delivery;
+            mDispatchedAt = dispatchedAt;
+        }
+    }
+
+    /*
+     * A consumer with its pending events. At most one task drains the events of a consumer at a
+     * time, so they are delivered in order on every executor.
+     */
+    private static final class Registration<T> implements Runnable {
+
+        final ConsumerDispatcher<T> mDispatcher;
+        final T mConsumer;
+        volatile long mEvents;
+        // guarded by the dispatcher
+        final long[] mScopeEvents = new long[SCOPE_COUNT];
+        int mScopes;
+        volatile int mDelivery;
+        volatile int mPolicy;
+
+        // guarded by this
+        final LinkedList<Pending<T>> mPending = new LinkedList<>();
+        boolean mScheduled;
+        boolean mRemoved;
+        long mDeliveredCount;
+        long mCoalescedCount;
+        long mTotalLatencyNanos;
+        long mMaxLatencyNanos;
+
+        Registration(ConsumerDispatcher<T> dispatcher, T consumer, int delivery, int policy) {
+            mDispatcher = dispatcher;
+            mConsumer = consumer;
+            mDelivery = delivery;
+            mPolicy = policy;
+        }
+
+        /*
+         * Sets the events of a scope; the consumer is registered for those of all its scopes.
+         */
+        void setEvents(int scope, long events) {
+            mScopeEvents[scope] = events;
+            mScopes |= 1 << scope;
+            long all = 0;
+            for (long scopeEvents : mScopeEvents) {
+                all |= scopeEvents;
+            }
+            mEvents = all;
+        }
+
+        void offer(int event, Event<T> delivery, long dispatchedAt) {
+            int mode = mDelivery;
+            if (mode == DELIVERY_DIRECT) {
+                deliver(delivery, dispatchedAt);
+                return;
+            }
+            synchronized (this) {
+                if (mRemoved) {
+                    return;
+                }
+                if (mode == DELIVERY_MAIN_THREAD && !mScheduled && isMainThread()) {
+                    // nothing is pending, so delivering now keeps the order
+                    mScheduled = true;
+                } else {
+                    if (mPolicy == POLICY_LATEST_WINS && ConsumerEvents.isStateEvent(event)) {
+                        Iterator<Pending<T>> iterator = mPending.iterator();
+                        while (iterator.hasNext()) {
+                            if (iterator.next().mEvent == event) {
+                                iterator.remove();
+                                mCoalescedCount++;
+                            }
+                        }
+                    }
+                    mPending.add(new Pending<>(event, delivery, dispatchedAt));
+                    if (mScheduled) {
+                        return;
+                    }
+                    mScheduled = true;
+                    delivery = null;
+                }
+            }
+            if (delivery != null) {
+                try {
+                    deliver(delivery, dispatchedAt);
+                } finally {
+                    // events raised by the consumer itself may have been queued meanwhile
+                    drain();
+                }
+            } else if (mode == DELIVERY_MAIN_THREAD) {
+                mDispatcher.mMainHandler.post(this);
+            } else {
+                getBackgroundExecutor().execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            drain();
+        }
+
+        private void drain() {
+            while (true) {
+                Pending<T> next;
+                synchronized (this) {
+                    next = mPending.poll();
+                    if (next == null) {
+                        mScheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    deliver(next.mDelivery, next.mDispatchedAt);
+                } catch (RuntimeException e) {
+                    LOGE(TAG, "Failed to deliver event " + next.mEvent + " to " + mConsumer, e);
+                }
+            }
+        }
+
+        private void deliver(Event<T> delivery, long dispatchedAt) {
+            delivery.deliver(mConsumer);
+            long latency = System.nanoTime() - dispatchedAt;
+            synchronized (this) {
+                mDeliveredCount++;
+                mTotalLatencyNanos += latency;
+                mMaxLatencyNanos = Math.max(mMaxLatencyNanos, latency);
+            }
+            if (latency > TimeUnit.MILLISECONDS.toNanos(SLOW_DELIVERY_MS)) {
+                LOGW(TAG, "Slow delivery to " + mConsumer + ": "
+                        + TimeUnit.NANOSECONDS.toMillis(latency) + "ms");
+            }
+        }
+    }
+}
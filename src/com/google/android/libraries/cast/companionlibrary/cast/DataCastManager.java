@@ -28,6 +28,7 @@ import com.google.android.gms.cast.CastDevice;
 import com.google.android.gms.cast.CastStatusCodes;
 import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.common.api.Status;
+import com.google.android.libraries.cast.companionlibrary.cast.callbacks.ConsumerEvents;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.DataCastConsumer;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.DataCastConsumerImpl;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
@@ -38,7 +39,6 @@ import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 
 import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
@@ -77,7 +77,6 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
 
     private static final String TAG = LogUtils.makeLogTag(DataCastManager.class);
     private final Set<String> mNamespaceList = new HashSet<>();
-    private final Set<DataCastConsumer> mDataConsumers = new CopyOnWriteArraySet<>();
 
     public DataCastManager(Context context, CastConfiguration castConfiguration) {
         super(context, castConfiguration);
@@ -216,8 +215,8 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
     }
 
     @Override
-    public void onApplicationConnected(ApplicationMetadata appMetadata, String applicationStatus,
-            String sessionId, boolean wasLaunched) {
+    public void onApplicationConnected(final ApplicationMetadata appMetadata, final String applicationStatus,
+            final String sessionId, final boolean wasLaunched) {
         LOGD(TAG, "onApplicationConnected() reached with sessionId: " + sessionId);
 
         // saving session for future retrieval; we only save the last session info
@@ -235,15 +234,18 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
                         LOGD(TAG, "Found the correct route during reconnection attempt");
                         found = true;
                         mReconnectionStatus = RECONNECTION_STATUS_FINALIZED;
+                        publishState();
                         mMediaRouter.selectRoute(routeInfo);
                         break;
                     }
                 }
-                if (!found) {
+                if (!found && !mReconnection.isDirectPending()) {
                     // we were hoping to have the route that we wanted, but we
-                    // didn't so we deselect the device
+                    // didn't so we deselect the device; when we have connected directly to
+                    // the persisted device, the route is selected once discovered instead
                     onDeviceSelected(null /* CastDevice */, null /* RouteInfo */);
                     mReconnectionStatus = RECONNECTION_STATUS_INACTIVE;
+                    publishState();
                     return;
                 }
             }
@@ -252,10 +254,15 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
         try {
             attachDataChannels();
             mSessionId = sessionId;
-            for (DataCastConsumer consumer : mDataConsumers) {
-                consumer.onApplicationConnected(appMetadata, applicationStatus, sessionId,
-                        wasLaunched);
-            }
+            publishState();
+            dispatch(ConsumerEvents.EVENT_APPLICATION_CONNECTED, new ConsumerDispatcher.Event<DataCastConsumer>() {
+
+                @Override
+                public void deliver(DataCastConsumer consumer) {
+                    consumer.onApplicationConnected(appMetadata, applicationStatus, sessionId,
+                            wasLaunched);
+                }
+            });
         } catch (IllegalStateException | IOException e) {
             LOGE(TAG, "Failed to attach namespaces", e);
         }
@@ -300,19 +307,25 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
     }
 
     @Override
-    public void onApplicationConnectionFailed(int errorCode) {
+    public void onApplicationConnectionFailed(final int errorCode) {
         LOGE(TAG, "onApplicationConnectionFailed error: "+errorCode);
         if (mReconnectionStatus == RECONNECTION_STATUS_IN_PROGRESS) {
             if (errorCode == CastStatusCodes.APPLICATION_NOT_RUNNING) {
                 // while trying to re-establish session, we found out that the app is not running
                 // so we need to disconnect
                 mReconnectionStatus = RECONNECTION_STATUS_INACTIVE;
+                publishState();
                 onDeviceSelected(null /* CastDevice */, null /* RouteInfo */);
             }
         } else {
-            for (DataCastConsumer consumer : mDataConsumers) {
-                consumer.onApplicationConnectionFailed(errorCode);
-            }
+            dispatch(ConsumerEvents.EVENT_APPLICATION_CONNECTION_FAILED,
+                    new ConsumerDispatcher.Event<DataCastConsumer>() {
+
+                        @Override
+                        public void deliver(DataCastConsumer consumer) {
+                            consumer.onApplicationConnectionFailed(errorCode);
+                        }
+                    });
             onDeviceSelected(null /* CastDevice */, null /* RouteInfo */);
             if (mMediaRouter != null) {
                 LOGD(TAG, "onApplicationConnectionFailed(): Setting route to default");
@@ -321,10 +334,14 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
         }
     }
 
-    public void onApplicationDisconnected(int errorCode) {
-        for (DataCastConsumer consumer : mDataConsumers) {
-            consumer.onApplicationDisconnected(errorCode);
-        }
+    public void onApplicationDisconnected(final int errorCode) {
+        dispatch(ConsumerEvents.EVENT_APPLICATION_DISCONNECTED, new ConsumerDispatcher.Event<DataCastConsumer>() {
+
+            @Override
+            public void deliver(DataCastConsumer consumer) {
+                consumer.onApplicationDisconnected(errorCode);
+            }
+        });
         if (mMediaRouter != null) {
             mMediaRouter.selectRoute(mMediaRouter.getDefaultRoute());
         }
@@ -333,16 +350,19 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
     }
 
     public void onApplicationStatusChanged() {
-        String appStatus;
         if (!isConnected()) {
             return;
         }
         try {
-            appStatus = Cast.CastApi.getApplicationStatus(mApiClient);
+            final String appStatus = Cast.CastApi.getApplicationStatus(mApiClient);
             LOGD(TAG, "onApplicationStatusChanged() reached: " + appStatus);
-            for (DataCastConsumer consumer : mDataConsumers) {
-                consumer.onApplicationStatusChanged(appStatus);
-            }
+            dispatch(ConsumerEvents.EVENT_APPLICATION_STATUS_CHANGED, new ConsumerDispatcher.Event<DataCastConsumer>() {
+
+                @Override
+                public void deliver(DataCastConsumer consumer) {
+                    consumer.onApplicationStatusChanged(appStatus);
+                }
+            });
         } catch (IllegalStateException e) {
             LOGE(TAG, "onApplicationStatusChanged(): Failed", e);
         }
@@ -350,10 +370,14 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
     }
 
     @Override
-    public void onApplicationStopFailed(int errorCode) {
-        for (DataCastConsumer consumer : mDataConsumers) {
-            consumer.onApplicationStopFailed(errorCode);
-        }
+    public void onApplicationStopFailed(final int errorCode) {
+        dispatch(ConsumerEvents.EVENT_APPLICATION_STOP_FAILED, new ConsumerDispatcher.Event<DataCastConsumer>() {
+
+            @Override
+            public void deliver(DataCastConsumer consumer) {
+                consumer.onApplicationStopFailed(errorCode);
+            }
+        });
     }
 
     @Override
@@ -367,16 +391,24 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
     }
 
     @Override
-    public void onMessageReceived(CastDevice castDevice, String namespace, String message) {
-        for (DataCastConsumer consumer : mDataConsumers) {
-            consumer.onMessageReceived(castDevice, namespace, message);
-        }
+    public void onMessageReceived(final CastDevice castDevice, final String namespace, final String message) {
+        dispatch(ConsumerEvents.EVENT_MESSAGE_RECEIVED, new ConsumerDispatcher.Event<DataCastConsumer>() {
+
+            @Override
+            public void deliver(DataCastConsumer consumer) {
+                consumer.onMessageReceived(castDevice, namespace, message);
+            }
+        });
     }
 
-    public void onMessageSendFailed(Status result) {
-        for (DataCastConsumer consumer : mDataConsumers) {
-            consumer.onMessageSendFailed(result);
-        }
+    public void onMessageSendFailed(final Status result) {
+        dispatch(ConsumerEvents.EVENT_MESSAGE_SEND_FAILED, new ConsumerDispatcher.Event<DataCastConsumer>() {
+
+            @Override
+            public void deliver(DataCastConsumer consumer) {
+                consumer.onMessageSendFailed(result);
+            }
+        });
     }
 
     /**
@@ -386,26 +418,44 @@ public class DataCastManager extends BaseCastManager implements Cast.MessageRece
      * lifecycle and status changes through the callbacks that the interface provides.
      */
     public void addDataCastConsumer(DataCastConsumer listener) {
-        if (listener != null) {
-            addBaseCastConsumer(listener);
-            boolean result;
-            result = mDataConsumers.add(listener);
-            if (result) {
-                LOGD(TAG, "Successfully added the new DataCastConsumer listener " + listener);
-            } else {
-                LOGD(TAG, "Adding Listener " + listener + " was already registered, "
-                        + "skipping this step");
-            }
-        }
+        addDataCastConsumer(listener, ConsumerEvents.DATA_EVENTS);
+    }
+
+    /**
+     * Registers a {@link DataCastConsumer} that is only called for the given {@code interests}, a
+     * mask of the {@link ConsumerEvents} identifiers (see {@link ConsumerEvents#maskOf(int...)}).
+     */
+    public void addDataCastConsumer(DataCastConsumer listener, long interests) {
+        addDataCastConsumer(listener, interests, ConsumerDispatcher.DELIVERY_DIRECT,
+                ConsumerDispatcher.POLICY_DELIVER_ALL);
+    }
+
+    /**
+     * Registers a {@link DataCastConsumer} that is called through the given {@code delivery}, one
+     * of the {@code ConsumerDispatcher.DELIVERY_*} modes, and {@code policy}, one of the
+     * {@code ConsumerDispatcher.POLICY_*} policies.
+     *
+     * @see ConsumerDispatcher
+     */
+    public void addDataCastConsumer(DataCastConsumer listener, int delivery, int policy) {
+        addDataCastConsumer(listener, ConsumerEvents.DATA_EVENTS, delivery, policy);
+    }
+
+    /**
+     * Registers a {@link DataCastConsumer} for the given {@code interests}, through the given
+     * {@code delivery} and {@code policy}. Registering a listener again replaces the interests
+     * it registered through this method, and its delivery and policy; interests registered through
+     * the other consumer methods are kept.
+     */
+    public void addDataCastConsumer(DataCastConsumer listener, long interests, int delivery, int policy) {
+        addConsumer(listener, ConsumerDispatcher.SCOPE_MANAGER, ConsumerEvents.DATA_EVENTS & interests, delivery,
+                policy);
     }
 
     /**
      * Unregisters an {@link com.google.android.libraries.cast.companionlibrary.cast.callbacks.DataCastConsumer}.
      */
     public void removeDataCastConsumer(DataCastConsumer listener) {
-        if (listener != null) {
-            removeBaseCastConsumer(listener);
-            mDataConsumers.remove(listener);
-        }
+        removeConsumer(listener, ConsumerDispatcher.SCOPE_MANAGER);
     }
 }
@@ -0,0 +1,465 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.cast.CastStatusCodes;
+import com.google.android.gms.cast.RemoteMediaPlayer.MediaChannelResult;
+import com.google.android.gms.common.api.PendingResult;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.common.api.Status;
+import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastException;
+import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
+import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending outcome of a media or queue command sent through {@link VideoCastManager}.
+ * <p>
+ * A command always completes with a {@link MediaChannelResult}; a failure is a result whose status
+ * is not successful. Commands that time out (see {@link #withTimeout(long)}) complete with
+ * {@link CastStatusCodes#TIMEOUT} and commands that could not be sent complete with
+ * {@link CastStatusCodes#NETWORK_ERROR} or {@link CastStatusCodes#INTERNAL_ERROR}. A cancelled
+ * command completes with {@link CastStatusCodes#CANCELED}, but {@link #get()} throws a
+ * {@link CancellationException} for it, as required by {@link Future}.
+ * <p>
+ * Callbacks and continuations run on the executor they were registered with or, if none was
+ * given, on the executor set through {@link VideoCastManager#setCommandExecutor(Executor)}. The
+ * blocking {@link #get()} methods must not be called on the main thread, since that is where the
+ * results are delivered.
+ */
+public final class MediaCommandFuture implements Future<MediaChannelResult> {
+
+    private static final String TAG = LogUtils.makeLogTag(MediaCommandFuture.class);
+
+    /**
+     * Runs the tasks on the thread that completes the command.
+     */
+    static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Runs the tasks on the main thread; inline if called on the main thread.
+     */
+    static final Executor MAIN_THREAD_EXECUTOR = new Executor() {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                command.run();
+            } else {
+                mHandler.post(command);
+            }
+        }
+    };
+
+    /**
+     * The interface to be notified when a command completes, successfully or not.
+     */
+    public interface Callback {
+
+        void onComplete(MediaCommandFuture future, MediaChannelResult result);
+    }
+
+    /**
+     * The next step of a chain of commands, see {@link #then(Continuation)}.
+     */
+    public interface Continuation {
+
+        /**
+         * Called with the successful result of the previous command; returns the next command.
+         */
+        MediaCommandFuture then(MediaChannelResult result)
+                throws CastException, TransientNetworkDisconnectionException, NoConnectionException;
+    }
+
+    private final Executor mDefaultExecutor;
+    private final long mStartTime = SystemClock.elapsedRealtime();
+    private long mEndTime;
+    private MediaChannelResult mResult;
+    private boolean mCancelled;
+    private PendingResult<MediaChannelResult> mPendingResult;
+    private MediaCommandFuture mCurrentStage;
+    private TickBus.Subscription mTimeout;
+    private List<Runnable> mListeners = new ArrayList<>();
+
+    MediaCommandFuture(Executor defaultExecutor) {
+        mDefaultExecutor = defaultExecutor;
+    }
+
+    /**
+     * Returns a future that completes with the result of {@code pendingResult}.
+     */
+    static MediaCommandFuture of(PendingResult<MediaChannelResult> pendingResult,
+            Executor defaultExecutor) {
+        final MediaCommandFuture future = new MediaCommandFuture(defaultExecutor);
+        synchronized (future) {
+            future.mPendingResult = pendingResult;
+        }
+        pendingResult.setResultCallback(new ResultCallback<MediaChannelResult>() {
+
+            @Override
+            public void onResult(MediaChannelResult result) {
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns a future that has already completed with the given {@code statusCode}, for commands
+     * that did not need to be sent to the receiver.
+     */
+    static MediaCommandFuture completed(int statusCode, Executor defaultExecutor) {
+        MediaCommandFuture future = new MediaCommandFuture(defaultExecutor);
+        future.complete(newResult(statusCode));
+        return future;
+    }
+
+    /**
+     * Registers a {@code callback} to run on the default executor once this command completes. If
+     * it has already completed, the callback is scheduled right away.
+     */
+    public MediaCommandFuture addCallback(Callback callback) {
+        return addCallback(callback, mDefaultExecutor);
+    }
+
+    /**
+     * Registers a {@code callback} to run on the given {@code executor} once this command
+     * completes. If it has already completed, the callback is scheduled right away.
+     */
+    public MediaCommandFuture addCallback(final Callback callback, final Executor executor) {
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onComplete(MediaCommandFuture.this, getResult());
+                    }
+                });
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Chains a command after this one, see {@link #then(Continuation, Executor)}. The continuation
+     * runs on the default executor.
+     */
+    public MediaCommandFuture then(Continuation continuation) {
+        return then(continuation, mDefaultExecutor);
+    }
+
+    /**
+     * Chains a command after this one. If this command succeeds, the {@code continuation} runs on
+     * the given {@code executor} and the returned future completes with the outcome of the command
+     * it returns. If this command fails, the continuation is skipped and the returned future fails
+     * with the same result. Cancelling the returned future cancels the stage that is running.
+     */
+    public MediaCommandFuture then(final Continuation continuation, final Executor executor) {
+        final MediaCommandFuture next = new MediaCommandFuture(mDefaultExecutor);
+        synchronized (next) {
+            next.mCurrentStage = this;
+        }
+        addListener(new Runnable() {
+            @Override
+            public void run() {
+                final MediaChannelResult result = getResult();
+                if (!result.getStatus().isSuccess()) {
+                    next.complete(result);
+                    return;
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        next.runContinuation(continuation, result);
+                    }
+                });
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Fails this command with {@link CastStatusCodes#TIMEOUT} if it has not completed within
+     * {@code timeoutMs} milliseconds; the underlying request, if any, is cancelled.
+     */
+    public MediaCommandFuture withTimeout(long timeoutMs) {
+        synchronized (this) {
+            if (mResult != null) {
+                return this;
+            }
+            if (mTimeout != null) {
+                mTimeout.cancel();
+            }
+            mTimeout = TickBus.getInstance().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    LOGD(TAG, "Command timed out");
+                    abort(CastStatusCodes.TIMEOUT, false);
+                }
+            }, timeoutMs, TickBus.LANE_MAIN);
+        }
+        return this;
+    }
+
+    /**
+     * Cancels this command. The underlying request is cancelled, although the receiver may have
+     * already acted on it. The {@code mayInterruptIfRunning} flag is ignored.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return abort(CastStatusCodes.CANCELED, true);
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mResult != null;
+    }
+
+    /**
+     * Returns {@code true} if this command has completed successfully.
+     */
+    public synchronized boolean isSuccess() {
+        return mResult != null && mResult.getStatus().isSuccess();
+    }
+
+    /**
+     * Returns the status code of this command, or {@link BaseCastManager#NO_STATUS_CODE} if it has
+     * not completed yet.
+     */
+    public synchronized int getStatusCode() {
+        return mResult == null ? BaseCastManager.NO_STATUS_CODE : mResult.getStatus().getStatusCode();
+    }
+
+    /**
+     * Returns the time, in milliseconds, between the creation of this future and its completion,
+     * or -1 if it has not completed yet. A future returned by {@link #then(Continuation)} is
+     * created when {@code then()} is called, so its latency also includes the time that the stage
+     * it was chained on still had to run at that point, not only the stages that follow.
+     */
+    public synchronized long getLatencyMillis() {
+        return mResult == null ? -1 : mEndTime - mStartTime;
+    }
+
+    @Override
+    public synchronized MediaChannelResult get() throws InterruptedException {
+        while (mResult == null) {
+            wait();
+        }
+        return getResultOrThrow();
+    }
+
+    @Override
+    public synchronized MediaChannelResult get(long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        long deadline = SystemClock.elapsedRealtime() + unit.toMillis(timeout);
+        while (mResult == null) {
+            long remaining = deadline - SystemClock.elapsedRealtime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            wait(remaining);
+        }
+        return getResultOrThrow();
+    }
+
+    private MediaChannelResult getResultOrThrow() {
+        if (mCancelled) {
+            throw new CancellationException();
+        }
+        return mResult;
+    }
+
+    private synchronized MediaChannelResult getResult() {
+        return mResult;
+    }
+
+    private void addListener(Runnable listener) {
+        synchronized (this) {
+            if (mResult == null) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    private void runContinuation(Continuation continuation, MediaChannelResult result) {
+        synchronized (this) {
+            if (mResult != null) {
+                // cancelled or timed out while waiting for the executor
+                return;
+            }
+        }
+        MediaCommandFuture stage;
+        try {
+            stage = continuation.then(result);
+        } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+            LOGE(TAG, "Failed to send the next command of the chain", e);
+            complete(newResult(CastStatusCodes.NETWORK_ERROR));
+            return;
+        } catch (CastException | RuntimeException e) {
+            LOGE(TAG, "Failed to send the next command of the chain", e);
+            complete(newResult(CastStatusCodes.INTERNAL_ERROR));
+            return;
+        }
+        if (stage == null) {
+            complete(result);
+            return;
+        }
+        synchronized (this) {
+            mCurrentStage = stage;
+        }
+        if (isDone()) {
+            stage.cancel(false);
+            return;
+        }
+        stage.addListener(new StageListener(this, stage));
+    }
+
+    private boolean abort(int statusCode, boolean cancelled) {
+        PendingResult<MediaChannelResult> pendingResult;
+        MediaCommandFuture stage;
+        synchronized (this) {
+            if (mResult != null) {
+                return false;
+            }
+            pendingResult = mPendingResult;
+            stage = mCurrentStage;
+        }
+        if (!complete(newResult(statusCode), cancelled)) {
+            return false;
+        }
+        if (pendingResult != null) {
+            pendingResult.cancel();
+        }
+        if (stage != null) {
+            stage.cancel(false);
+        }
+        return true;
+    }
+
+    /*
+     * Completes this command with the given result; only the first call has any effect.
+     */
+    boolean complete(MediaChannelResult result) {
+        return complete(result, false);
+    }
+
+    /*
+     * The result and the cancellation are set together, so that a command that completed first
+     * is never reported as cancelled.
+     */
+    private boolean complete(MediaChannelResult result, boolean cancelled) {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mResult != null) {
+                return false;
+            }
+            mResult = result;
+            mCancelled = cancelled;
+            mEndTime = SystemClock.elapsedRealtime();
+            mPendingResult = null;
+            mCurrentStage = null;
+            if (mTimeout != null) {
+                mTimeout.cancel();
+                mTimeout = null;
+            }
+            listeners = mListeners;
+            mListeners = null;
+            notifyAll();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return true;
+    }
+
+    static MediaChannelResult newResult(int statusCode) {
+        return new LocalResult(new Status(statusCode));
+    }
+
+    /*
+     * Completes a chained future with the outcome of one of its stages.
+     */
+    private static final class StageListener implements Runnable {
+
+        private final MediaCommandFuture mChain;
+        private final MediaCommandFuture mStage;
+
+        StageListener(MediaCommandFuture chain, MediaCommandFuture stage) {
+            mChain = chain;
+            mStage = stage;
+        }
+
+        @Override
+        public void run() {
+            mChain.complete(mStage.getResult());
+        }
+    }
+
+    /*
+     * A result for commands that have been completed locally rather than by the receiver.
+     */
+    private static final class LocalResult implements MediaChannelResult {
+
+        private final Status mStatus;
+
+        LocalResult(Status status) {
+            mStatus = status;
+        }
+
+        @Override
+        public Status getStatus() {
+            return mStatus;
+        }
+
+        @Override
+        public JSONObject getCustomData() {
+            return null;
+        }
+    }
+}
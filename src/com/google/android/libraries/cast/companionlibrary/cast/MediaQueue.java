@@ -16,93 +16,502 @@
 
 package com.google.android.libraries.cast.companionlibrary.cast;
 
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGW;
+
 import com.google.android.gms.cast.MediaQueueItem;
+import com.google.android.gms.cast.MediaStatus;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.RandomAccess;
 
 /**
- * A simple class to model a queue for bookkeeping purposes.
+ * A versioned snapshot of the queue for bookkeeping purposes.
+ * <p>
+ * Items are stored in chunks so that a new version of the queue can share the chunks
+ * that have not been edited with the previous version. Use
+ * {@link #update(List, MediaQueueItem, boolean, int)} to obtain the next version; if nothing has
+ * changed, the same instance is returned and nothing is allocated.
+ * <p>
+ * A new version is aligned with the previous one on the items they have in common at the head and
+ * at the tail, so only the chunks that hold the edited region are copied, even when items are
+ * inserted or removed near the head of the queue.
+ * <p>
+ * The snapshots returned by {@link #update(List, MediaQueueItem, boolean, int)}, including the
+ * ones published by the manager, and {@link #EMPTY} are frozen. The deprecated setters are kept
+ * for compatibility only: they change a queue built with the public constructor in place, and
+ * they log a warning and do nothing on a frozen snapshot.
  */
 public class MediaQueue {
 
-    private List<MediaQueueItem> mQueueItems = new CopyOnWriteArrayList<>();
+    private static final String TAG = LogUtils.makeLogTag(MediaQueue.class);
+
     public static final int INVALID_POSITION = -1;
+
+    /**
+     * An empty queue that can be used as the starting point for
+     * {@link #update(List, MediaQueueItem, boolean, int)}.
+     */
+    public static final MediaQueue EMPTY = new MediaQueue(Items.create(null, null), null, false,
+            MediaStatus.REPEAT_MODE_REPEAT_OFF, 0, true);
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private Items mItems;
     private MediaQueueItem mCurrentItem;
     private boolean mShuffle;
     private int mRepeatMode;
+    private long mVersion;
+    private final boolean mFrozen;
 
     public MediaQueue(List<MediaQueueItem> queueItems,
             MediaQueueItem currentItem, boolean shuffle, int repeatMode) {
-        mQueueItems = queueItems;
+        this(Items.create(queueItems, null), currentItem, shuffle, repeatMode, 0, false);
+    }
+
+    private MediaQueue(Items items, MediaQueueItem currentItem, boolean shuffle, int repeatMode,
+            long version, boolean frozen) {
+        mItems = items;
         mCurrentItem = currentItem;
         mShuffle = shuffle;
         mRepeatMode = repeatMode;
+        mVersion = version;
+        mFrozen = frozen;
+    }
+
+    /**
+     * Returns a frozen snapshot of the queue that reflects the given state. If the state is
+     * identical to this snapshot and it is frozen, this same instance is returned. Otherwise, a new
+     * snapshot with the next version number is returned that shares all the unchanged parts with
+     * this one.
+     */
+    public final MediaQueue update(List<MediaQueueItem> queueItems, MediaQueueItem currentItem,
+            boolean shuffle, int repeatMode) {
+        boolean sameItems = mItems.matches(queueItems);
+        if (mFrozen && sameItems && shuffle == mShuffle && repeatMode == mRepeatMode
+                && isSameItem(currentItem, mCurrentItem)) {
+            return this;
+        }
+        Items items = sameItems ? mItems : Items.create(queueItems, mItems);
+        return new MediaQueue(items, currentItem, shuffle, repeatMode, mVersion + 1, true);
     }
 
+    /**
+     * Returns the version of this snapshot. Versions increase by one each time
+     * {@link #update(List, MediaQueueItem, boolean, int)} results in a change.
+     */
+    public final long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Returns a read-only view of the items in the queue.
+     */
     public final List<MediaQueueItem> getQueueItems() {
-        return mQueueItems;
+        return mItems.asList();
     }
 
+    /**
+     * Does nothing on a frozen snapshot.
+     *
+     * @deprecated Snapshots should not be changed; use
+     * {@link #update(List, MediaQueueItem, boolean, int)} instead.
+     */
+    @Deprecated
     public final void setQueueItems(List<MediaQueueItem> queue) {
-        if (queue == null) {
-            mQueueItems = null;
-        } else {
-            mQueueItems = new CopyOnWriteArrayList<>(queue);
+        if (!isMutable()) {
+            return;
         }
+        mItems = Items.create(queue, null);
+        mVersion++;
     }
 
     public final MediaQueueItem getCurrentItem() {
         return mCurrentItem;
     }
 
+    /**
+     * Does nothing on a frozen snapshot.
+     *
+     * @deprecated Snapshots should not be changed; use
+     * {@link #update(List, MediaQueueItem, boolean, int)} instead.
+     */
+    @Deprecated
     public final void setCurrentItem(MediaQueueItem currentItem) {
+        if (!isMutable()) {
+            return;
+        }
         mCurrentItem = currentItem;
+        mVersion++;
     }
 
     public final boolean isShuffle() {
         return mShuffle;
     }
 
+    /**
+     * Does nothing on a frozen snapshot.
+     *
+     * @deprecated Snapshots should not be changed; use
+     * {@link #update(List, MediaQueueItem, boolean, int)} instead.
+     */
+    @Deprecated
     public final void setShuffle(boolean shuffle) {
+        if (!isMutable()) {
+            return;
+        }
         mShuffle = shuffle;
+        mVersion++;
     }
 
     public final int getRepeatMode() {
         return mRepeatMode;
     }
 
+    /**
+     * Does nothing on a frozen snapshot.
+     *
+     * @deprecated Snapshots should not be changed; use
+     * {@link #update(List, MediaQueueItem, boolean, int)} instead.
+     */
+    @Deprecated
     public final void setRepeatMode(int repeatMode) {
+        if (!isMutable()) {
+            return;
+        }
         mRepeatMode = repeatMode;
+        mVersion++;
+    }
+
+    private boolean isMutable() {
+        if (mFrozen) {
+            LOGW(TAG, "Ignoring a change to a frozen queue snapshot, use update() instead");
+            return false;
+        }
+        return true;
     }
 
     /**
-     * Returns the size of queue, or 0 if it is {@code null}
+     * Returns the size of queue, or 0 if it is empty
      */
     public final int getCount() {
-        return mQueueItems == null || mQueueItems.isEmpty() ? 0 : mQueueItems.size();
+        return mItems.mCount;
     }
 
     /**
-     * Returns {@code true} if and only if the queue is empty or {@code null}
+     * Returns {@code true} if and only if the queue is empty
      */
     public final boolean isEmpty() {
-        return mQueueItems == null || mQueueItems.isEmpty();
+        return mItems.mCount == 0;
     }
 
     /**
-     * Returns the position of the current item in the queue. If the queue is {@code null}, it
+     * Returns the position of the current item in the queue. If there is no current item, it
      * will return {@link #INVALID_POSITION}. If the queue is empty, it returns 0.
      */
     public final int getCurrentItemPosition() {
-        if (mQueueItems == null) {
+        if (mItems.mCount == 0) {
+            return 0;
+        }
+        if (mCurrentItem == null) {
             return INVALID_POSITION;
         }
+        return mItems.indexOf(mCurrentItem.getItemId());
+    }
 
-        if (mQueueItems.isEmpty()) {
-            return 0;
+    /**
+     * Returns the position of the item with the given {@code itemId}, or {@link #INVALID_POSITION}
+     * if there is no such item in the queue. Items with {@link MediaQueueItem#INVALID_ITEM_ID},
+     * e.g. the ones that have not been sent to the receiver yet during a windowed load, cannot be
+     * found by id.
+     */
+    public final int indexOf(int itemId) {
+        return mItems.indexOf(itemId);
+    }
+
+    /**
+     * Returns the item at the given {@code position}, or {@code null} if the position is out of
+     * range.
+     */
+    public final MediaQueueItem getItemAt(int position) {
+        if (position < 0 || position >= mItems.mCount) {
+            return null;
+        }
+        return mItems.get(position);
+    }
+
+    /**
+     * Returns the item with the given {@code itemId}, or {@code null} if there is no such item in
+     * the queue.
+     */
+    public final MediaQueueItem getItemById(int itemId) {
+        int position = mItems.indexOf(itemId);
+        return position == INVALID_POSITION ? null : mItems.get(position);
+    }
+
+    /**
+     * Returns the item that follows the item with the given {@code itemId}, or {@code null} if
+     * there is no such item or it is the last one. The repeat mode is not taken into account.
+     */
+    public final MediaQueueItem getNext(int itemId) {
+        int position = mItems.indexOf(itemId);
+        return position == INVALID_POSITION ? null : getItemAt(position + 1);
+    }
+
+    /**
+     * Returns the item that precedes the item with the given {@code itemId}, or {@code null} if
+     * there is no such item or it is the first one. The repeat mode is not taken into account.
+     */
+    public final MediaQueueItem getPrevious(int itemId) {
+        int position = mItems.indexOf(itemId);
+        return position == INVALID_POSITION ? null : getItemAt(position - 1);
+    }
+
+    /**
+     * Returns a read-only view of the items between {@code fromPosition} (inclusive) and
+     * {@code toPosition} (exclusive).
+     */
+    public final List<MediaQueueItem> getItems(int fromPosition, int toPosition) {
+        return mItems.asList().subList(fromPosition, toPosition);
+    }
+
+    /**
+     * Returns the ids of the items between {@code fromPosition} (inclusive) and
+     * {@code toPosition} (exclusive), suitable for the queue APIs that take item ids.
+     */
+    public final int[] getItemIds(int fromPosition, int toPosition) {
+        if (fromPosition < 0 || toPosition > mItems.mCount || fromPosition > toPosition) {
+            throw new IndexOutOfBoundsException("Invalid range [" + fromPosition + ", " + toPosition + ")");
+        }
+        int[] ids = new int[toPosition - fromPosition];
+        for (int i = fromPosition; i < toPosition; i++) {
+            ids[i - fromPosition] = mItems.get(i).getItemId();
+        }
+        return ids;
+    }
+
+    private static boolean isSameItem(MediaQueueItem a, MediaQueueItem b) {
+        if (a == b) {
+            return true;
+        }
+        return a != null && b != null && a.getItemId() == b.getItemId() && a.equals(b);
+    }
+
+    /*
+     * The chunked item storage. Instances are immutable and can be shared between snapshots of the
+     * queue that only differ in the current item, shuffle or repeat mode. Chunks have at most
+     * CHUNK_SIZE items, and can be shorter where a previous version was edited.
+     */
+    private static final class Items {
+
+        private static final MediaQueueItem[][] NO_CHUNKS = new MediaQueueItem[0][];
+        private static final int[] NO_STARTS = new int[0];
+
+        private final MediaQueueItem[][] mChunks;
+        // the position of the first item of each chunk
+        private final int[] mStarts;
+        private final int mCount;
+        private final int mIdsHash;
+        private final int mContentHash;
+        private List<MediaQueueItem> mListView;
+
+        /*
+         * An open addressing hash table from item id to position; each slot holds position + 1,
+         * 0 marks an empty slot. It is built on first use.
+         */
+        private volatile int[] mIndex;
+
+        private Items(MediaQueueItem[][] chunks, int[] starts, int count, int idsHash, int contentHash) {
+            mChunks = chunks;
+            mStarts = starts;
+            mCount = count;
+            mIdsHash = idsHash;
+            mContentHash = contentHash;
         }
 
-        return mQueueItems.indexOf(mCurrentItem);
+        /*
+         * Builds the storage for the given items. The items that the previous storage (if any)
+         * has in common at the head and at the tail are aligned with it, as in QueueDiff, so that
+         * the chunks that lie entirely within them are reused and only the edited region between
+         * them is copied, wherever it is.
+         */
+        static Items create(List<MediaQueueItem> queueItems, Items previous) {
+            int count = queueItems == null ? 0 : queueItems.size();
+            if (count == 0) {
+                return new Items(NO_CHUNKS, NO_STARTS, 0, 1, 1);
+            }
+            List<MediaQueueItem[]> chunks = new ArrayList<>((count + CHUNK_MASK) >> CHUNK_SHIFT);
+            if (previous == null || previous.mCount == 0) {
+                addChunks(queueItems, 0, count, chunks);
+            } else {
+                int oldCount = previous.mCount;
+                int limit = Math.min(count, oldCount);
+                int prefix = 0;
+                while (prefix < limit && isSameItem(previous.get(prefix), queueItems.get(prefix))) {
+                    prefix++;
+                }
+                int suffix = 0;
+                while (suffix < limit - prefix && isSameItem(previous.get(oldCount - 1 - suffix),
+                        queueItems.get(count - 1 - suffix))) {
+                    suffix++;
+                }
+                // the chunks of the common head, then the edited region, then those of the tail
+                int head = 0;
+                int position = 0;
+                while (head < previous.mChunks.length && position + previous.mChunks[head].length <= prefix) {
+                    chunks.add(previous.mChunks[head]);
+                    position += previous.mChunks[head++].length;
+                }
+                int tail = previous.mChunks.length;
+                int tailStart = oldCount;
+                while (tail > head && previous.mStarts[tail - 1] >= oldCount - suffix) {
+                    tailStart = previous.mStarts[--tail];
+                }
+                addChunks(queueItems, position, count - (oldCount - tailStart), chunks);
+                for (int c = tail; c < previous.mChunks.length; c++) {
+                    chunks.add(previous.mChunks[c]);
+                }
+                // repeated edits leave short chunks behind; start over once there are too many
+                if (chunks.size() > 2 * ((count + CHUNK_MASK) >> CHUNK_SHIFT) + 2) {
+                    chunks.clear();
+                    addChunks(queueItems, 0, count, chunks);
+                }
+            }
+            int idsHash = 1;
+            int contentHash = 1;
+            int[] starts = new int[chunks.size()];
+            int position = 0;
+            for (int c = 0; c < starts.length; c++) {
+                starts[c] = position;
+                for (MediaQueueItem item : chunks.get(c)) {
+                    idsHash = 31 * idsHash + item.getItemId();
+                    contentHash = 31 * contentHash + item.hashCode();
+                }
+                position += chunks.get(c).length;
+            }
+            return new Items(chunks.toArray(new MediaQueueItem[chunks.size()][]), starts, count, idsHash,
+                    contentHash);
+        }
+
+        /*
+         * Copies the given range of the items into new chunks.
+         */
+        private static void addChunks(List<MediaQueueItem> items, int from, int to,
+                List<MediaQueueItem[]> chunks) {
+            for (int start = from; start < to; start += CHUNK_SIZE) {
+                MediaQueueItem[] chunk = new MediaQueueItem[Math.min(CHUNK_SIZE, to - start)];
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = items.get(start + i);
+                }
+                chunks.add(chunk);
+            }
+        }
+
+        /*
+         * A cheap check to see if the given list holds the same items as this storage; it
+         * compares the count, the item ids and a content hash of the items.
+         */
+        boolean matches(List<MediaQueueItem> queueItems) {
+            int count = queueItems == null ? 0 : queueItems.size();
+            if (count != mCount) {
+                return false;
+            }
+            int idsHash = 1;
+            for (int i = 0; i < count; i++) {
+                idsHash = 31 * idsHash + queueItems.get(i).getItemId();
+            }
+            if (idsHash != mIdsHash) {
+                return false;
+            }
+            int contentHash = 1;
+            for (int i = 0; i < count; i++) {
+                contentHash = 31 * contentHash + queueItems.get(i).hashCode();
+            }
+            return contentHash == mContentHash;
+        }
+
+        int indexOf(int itemId) {
+            if (mCount == 0 || itemId == MediaQueueItem.INVALID_ITEM_ID) {
+                return INVALID_POSITION;
+            }
+            int[] index = getIndex();
+            int mask = index.length - 1;
+            for (int slot = mix(itemId) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+                int position = index[slot] - 1;
+                if (get(position).getItemId() == itemId) {
+                    return position;
+                }
+            }
+            return INVALID_POSITION;
+        }
+
+        private int[] getIndex() {
+            int[] index = mIndex;
+            if (index == null) {
+                int capacity = Integer.highestOneBit(Math.max(mCount, 1) * 2) << 1;
+                index = new int[capacity];
+                int mask = capacity - 1;
+                for (int position = 0; position < mCount; position++) {
+                    int itemId = get(position).getItemId();
+                    if (itemId == MediaQueueItem.INVALID_ITEM_ID) {
+                        continue;
+                    }
+                    int slot = mix(itemId) & mask;
+                    while (index[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    index[slot] = position + 1;
+                }
+                mIndex = index;
+            }
+            return index;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        MediaQueueItem get(int position) {
+            int chunk = Arrays.binarySearch(mStarts, position);
+            if (chunk < 0) {
+                chunk = -chunk - 2;
+            }
+            return mChunks[chunk][position - mStarts[chunk]];
+        }
+
+        synchronized List<MediaQueueItem> asList() {
+            if (mListView == null) {
+                mListView = new ItemsList(this);
+            }
+            return mListView;
+        }
+    }
+
+    private static final class ItemsList extends AbstractList<MediaQueueItem> implements RandomAccess {
+
+        private final Items mItems;
+
+        ItemsList(Items items) {
+            mItems = items;
+        }
+
+        @Override
+        public MediaQueueItem get(int location) {
+            if (location < 0 || location >= mItems.mCount) {
+                throw new IndexOutOfBoundsException("Invalid position " + location);
+            }
+            return mItems.get(location);
+        }
+
+        @Override
+        public int size() {
+            return mItems.mCount;
+        }
     }
 }
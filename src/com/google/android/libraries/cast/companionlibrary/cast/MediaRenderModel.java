@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import android.net.Uri;
+import android.text.TextUtils;
+
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaMetadata;
+import com.google.android.libraries.cast.companionlibrary.utils.ArtworkRequests;
+
+/**
+ * What the surfaces of the library (mini controllers, notification, lock screen) render for a
+ * media, extracted once from its {@link MediaInfo}.
+ */
+public final class MediaRenderModel {
+
+    private final String mContentId;
+    private final String mTitle;
+    private final String mSubtitle;
+    private final Uri mIconUri;
+    private final Uri mLockScreenUri;
+    private final Uri mFullScreenUri;
+    private final int mStreamType;
+    private final long mDuration;
+
+    private MediaRenderModel(MediaInfo info) {
+        MediaMetadata metadata = info.getMetadata();
+        mContentId = info.getContentId();
+        mTitle = metadata == null ? null : metadata.getString(MediaMetadata.KEY_TITLE);
+        mSubtitle = metadata == null ? null : metadata.getString(MediaMetadata.KEY_SUBTITLE);
+        mIconUri = ArtworkRequests.getIconUri(info);
+        mLockScreenUri = ArtworkRequests.getLockScreenUri(info);
+        mFullScreenUri = ArtworkRequests.getFullScreenUri(info);
+        mStreamType = info.getStreamType();
+        mDuration = info.getStreamDuration();
+    }
+
+    /**
+     * Returns the model of the given {@code info}, or {@code null} if {@code info} is
+     * {@code null}.
+     */
+    public static MediaRenderModel from(MediaInfo info) {
+        return info == null ? null : new MediaRenderModel(info);
+    }
+
+    /**
+     * Returns {@code true} if this model was built from a media with the same content and the same
+     * values for everything that the model holds, including every image, and so can be used to
+     * render {@code info}.
+     */
+    public boolean isFor(MediaInfo info) {
+        if (info == null || !TextUtils.equals(mContentId, info.getContentId())
+                || mStreamType != info.getStreamType() || mDuration != info.getStreamDuration()) {
+            return false;
+        }
+        MediaMetadata metadata = info.getMetadata();
+        String title = metadata == null ? null : metadata.getString(MediaMetadata.KEY_TITLE);
+        String subtitle = metadata == null ? null : metadata.getString(MediaMetadata.KEY_SUBTITLE);
+        return TextUtils.equals(mTitle, title) && TextUtils.equals(mSubtitle, subtitle)
+                && isSameUri(mIconUri, ArtworkRequests.getIconUri(info))
+                && isSameUri(mLockScreenUri, ArtworkRequests.getLockScreenUri(info))
+                && isSameUri(mFullScreenUri, ArtworkRequests.getFullScreenUri(info));
+    }
+
+    private static boolean isSameUri(Uri a, Uri b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public String getContentId() {
+        return mContentId;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public String getSubtitle() {
+        return mSubtitle;
+    }
+
+    public Uri getIconUri() {
+        return mIconUri;
+    }
+
+    public Uri getLockScreenUri() {
+        return mLockScreenUri;
+    }
+
+    public Uri getFullScreenUri() {
+        return mFullScreenUri;
+    }
+
+    public int getStreamType() {
+        return mStreamType;
+    }
+
+    public long getDuration() {
+        return mDuration;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import android.os.SystemClock;
+
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaQueueItem;
+import com.google.android.gms.cast.MediaStatus;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable copy of the fields of a {@link MediaStatus} that drive the work done in
+ * {@link VideoCastManager} when a status update arrives. The {@link MediaStatus} returned by the
+ * {@link com.google.android.gms.cast.RemoteMediaPlayer} is updated in place, so we cannot keep a
+ * reference to it to compare with; we copy what we need instead.
+ *
+ * <p>Use {@link #diff(MediaStatusSnapshot)} to find out which groups of fields have changed
+ * between two updates.
+ */
+final class MediaStatusSnapshot {
+
+    static final int FIELD_PLAYER_STATE = 1;
+    static final int FIELD_IDLE_REASON = 1 << 1;
+    static final int FIELD_QUEUE = 1 << 2;
+    static final int FIELD_VOLUME = 1 << 3;
+    static final int FIELD_MUTE = 1 << 4;
+    static final int FIELD_ACTIVE_TRACKS = 1 << 5;
+    static final int FIELD_PRELOAD_ITEM = 1 << 6;
+    static final int FIELD_CURRENT_ITEM = 1 << 7;
+    static final int FIELD_POSITION = 1 << 8;
+    static final int FIELD_ALL = (1 << 9) - 1;
+
+    /*
+     * Allowed drift between the reported position and the position we expect from the previous
+     * update before we treat it as a discontinuity (e.g. a seek) rather than regular playback.
+     */
+    private static final long POSITION_JUMP_THRESHOLD_MS = 1500;
+
+    private final int mPlayerState;
+    private final int mIdleReason;
+    private final int mCurrentItemId;
+    private final int mLoadingItemId;
+    private final int mPreloadedItemId;
+    private final int mContentHash;
+    private final int mRepeatMode;
+    private final int mQueueCount;
+    private final int mQueueIdsHash;
+    private final int mQueueContentHash;
+    private final double mVolume;
+    private final boolean mMute;
+    private final long[] mActiveTrackIds;
+    private final long mStreamPosition;
+    private final double mPlaybackRate;
+    private final long mTimestamp;
+
+    MediaStatusSnapshot(MediaStatus status, double volume, boolean mute) {
+        mPlayerState = status.getPlayerState();
+        mIdleReason = status.getIdleReason();
+        mCurrentItemId = status.getCurrentItemId();
+        mLoadingItemId = status.getLoadingItemId();
+        mPreloadedItemId = status.getPreloadedItemId();
+        MediaInfo info = status.getMediaInfo();
+        mContentHash = info == null ? 0 : info.hashCode();
+        mRepeatMode = status.getQueueRepeatMode();
+        List<MediaQueueItem> items = status.getQueueItems();
+        int count = 0;
+        int idsHash = 1;
+        int contentHash = 1;
+        if (items != null) {
+            count = items.size();
+            for (int i = 0; i < count; i++) {
+                MediaQueueItem item = items.get(i);
+                idsHash = 31 * idsHash + item.getItemId();
+                contentHash = 31 * contentHash + item.hashCode();
+            }
+        }
+        mQueueCount = items == null ? -1 : count;
+        mQueueIdsHash = idsHash;
+        mQueueContentHash = contentHash;
+        mVolume = volume;
+        mMute = mute;
+        long[] trackIds = status.getActiveTrackIds();
+        mActiveTrackIds = trackIds == null ? null : trackIds.clone();
+        mStreamPosition = status.getStreamPosition();
+        mPlaybackRate = status.getPlaybackRate();
+        mTimestamp = SystemClock.elapsedRealtime();
+    }
+
+    double getVolume() {
+        return mVolume;
+    }
+
+    boolean isMute() {
+        return mMute;
+    }
+
+    /**
+     * Returns a bit mask of the {@code FIELD_*} groups that differ between this snapshot and the
+     * {@code previous} one. If {@code previous} is {@code null}, everything is considered to be
+     * changed.
+     */
+    int diff(MediaStatusSnapshot previous) {
+        if (previous == null) {
+            return FIELD_ALL;
+        }
+        int changes = 0;
+        if (mPlayerState != previous.mPlayerState) {
+            changes |= FIELD_PLAYER_STATE;
+        }
+        if (mIdleReason != previous.mIdleReason) {
+            changes |= FIELD_IDLE_REASON;
+        }
+        if (mQueueCount != previous.mQueueCount || mQueueIdsHash != previous.mQueueIdsHash
+                || mQueueContentHash != previous.mQueueContentHash || mRepeatMode != previous.mRepeatMode
+                || mCurrentItemId != previous.mCurrentItemId) {
+            changes |= FIELD_QUEUE;
+        }
+        if (Double.compare(mVolume, previous.mVolume) != 0) {
+            changes |= FIELD_VOLUME;
+        }
+        if (mMute != previous.mMute) {
+            changes |= FIELD_MUTE;
+        }
+        if (!Arrays.equals(mActiveTrackIds, previous.mActiveTrackIds)) {
+            changes |= FIELD_ACTIVE_TRACKS;
+        }
+        if (mPreloadedItemId != previous.mPreloadedItemId) {
+            changes |= FIELD_PRELOAD_ITEM;
+        }
+        if (mCurrentItemId != previous.mCurrentItemId || mLoadingItemId != previous.mLoadingItemId
+                || mContentHash != previous.mContentHash) {
+            changes |= FIELD_CURRENT_ITEM;
+        }
+        if (Double.compare(mPlaybackRate, previous.mPlaybackRate) != 0
+                || Math.abs(mStreamPosition - previous.getProjectedPosition(mTimestamp))
+                > POSITION_JUMP_THRESHOLD_MS) {
+            changes |= FIELD_POSITION;
+        }
+        return changes;
+    }
+
+    /*
+     * Returns where we expect the stream to be at the given time, assuming nothing but regular
+     * playback happened since this snapshot was taken.
+     */
+    private long getProjectedPosition(long timestamp) {
+        if (mPlayerState != MediaStatus.PLAYER_STATE_PLAYING) {
+            return mStreamPosition;
+        }
+        return mStreamPosition + (long) ((timestamp - mTimestamp) * mPlaybackRate);
+    }
+
+    static boolean hasChanged(int changes, int fields) {
+        return (changes & fields) != 0;
+    }
+}
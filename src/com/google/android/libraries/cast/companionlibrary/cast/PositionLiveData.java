@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import com.google.android.libraries.cast.companionlibrary.utils.DistinctLiveData;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
+
+/**
+ * The position of the media, in milliseconds, or -1 if it is unknown. The position is read from
+ * the {@link ProgressClock}, so the receiver is never polled; it only ticks while the stream has
+ * active observers.
+ */
+final class PositionLiveData extends DistinctLiveData<Long> implements TickBus.TickListener {
+
+    private final ProgressClock mClock;
+    private final long mResolutionMs;
+    private TickBus.Subscription mSubscription;
+
+    PositionLiveData(ProgressClock clock, long resolutionMs) {
+        super(-1L);
+        mClock = clock;
+        mResolutionMs = resolutionMs;
+    }
+
+    @Override
+    protected void onActive() {
+        refresh();
+        mSubscription = TickBus.getInstance().subscribe(this, mResolutionMs, TickBus.LANE_MAIN);
+    }
+
+    @Override
+    protected void onInactive() {
+        if (mSubscription != null) {
+            mSubscription.cancel();
+            mSubscription = null;
+        }
+    }
+
+    @Override
+    public void onTick(long uptimeMillis) {
+        refresh();
+    }
+
+    /**
+     * Emits the current position, e.g. after a seek or a change of the player state.
+     */
+    void refresh() {
+        if (hasActiveObservers()) {
+            update(mClock.getPosition());
+        }
+    }
+}
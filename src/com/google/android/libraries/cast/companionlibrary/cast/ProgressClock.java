@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.cast.MediaStatus;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.SnapshotRegistry;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
+import com.google.android.libraries.cast.companionlibrary.widgets.IMiniController;
+import com.google.android.libraries.cast.companionlibrary.widgets.ProgressWatcher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that reports the playback progress to the registered {@link IMiniController}s and
+ * {@link ProgressWatcher}s. Instead of polling the receiver, it is anchored on the position that
+ * was reported in the last {@link MediaStatus} and interpolates locally from there, using the
+ * playback rate and the player state.
+ * <p>
+ * The clock only ticks while the media is playing and at least one visible watcher is registered;
+ * each watcher is updated at the resolution it has asked for. Ticks are delivered on the main
+ * thread through the {@link TickBus}.
+ */
+final class ProgressClock {
+
+    private static final String TAG = LogUtils.makeLogTag(ProgressClock.class);
+
+    static final long DEFAULT_RESOLUTION_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MIN_RESOLUTION_MS = 100;
+
+    private final SnapshotRegistry<Entry> mEntries = new SnapshotRegistry<>(new Entry[0]);
+    private TickBus.Subscription mNextTick;
+    private boolean mHasAnchor;
+    private long mAnchorPosition;
+    private long mAnchorTime;
+    private long mDuration;
+    private double mPlaybackRate;
+    private boolean mAdvancing;
+    private boolean mUiHidden;
+    private boolean mPinned;
+    private boolean mUpdatePosted;
+
+    private final Runnable mTickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            tick(false);
+        }
+    };
+
+    private final Runnable mUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (ProgressClock.this) {
+                mUpdatePosted = false;
+            }
+            tick(true);
+        }
+    };
+
+    void addMiniController(IMiniController controller) {
+        add(new Entry(controller, null, DEFAULT_RESOLUTION_MS));
+    }
+
+    void addProgressWatcher(ProgressWatcher watcher, long resolutionMs) {
+        add(new Entry(null, watcher, Math.max(MIN_RESOLUTION_MS, resolutionMs)));
+    }
+
+    private void add(Entry entry) {
+        remove(entry.getTarget());
+        mEntries.add(entry);
+        tick(true);
+    }
+
+    void remove(Object target) {
+        for (Entry entry : mEntries.snapshot()) {
+            if (entry.getTarget() == target) {
+                mEntries.remove(entry);
+            }
+        }
+        reschedule();
+    }
+
+    /**
+     * Anchors the clock on the position reported by the receiver. If {@code notify} is
+     * {@code true}, all visible watchers are updated right away; this should be the case when the
+     * position has jumped or the player state has changed.
+     */
+    void anchor(long position, long duration, int playerState, double playbackRate, boolean notify) {
+        synchronized (this) {
+            mHasAnchor = true;
+            if (!mPinned) {
+                mAnchorPosition = position;
+                mAnchorTime = SystemClock.elapsedRealtime();
+            }
+            mDuration = duration;
+            mPlaybackRate = playbackRate;
+            mAdvancing = playerState == MediaStatus.PLAYER_STATE_PLAYING;
+        }
+        if (notify) {
+            tick(true);
+        } else {
+            reschedule();
+        }
+    }
+
+    /**
+     * Pins the clock on an optimistic {@code position}, e.g. the target of a pending seek. Until
+     * {@link #unpin()} is called, positions reported by the receiver are ignored.
+     */
+    void pin(long position) {
+        synchronized (this) {
+            mPinned = true;
+            mAnchorPosition = position;
+            mAnchorTime = SystemClock.elapsedRealtime();
+        }
+        tick(true);
+    }
+
+    /**
+     * Releases the pin set by {@link #pin(long)}; the next status update anchors the clock again.
+     */
+    synchronized void unpin() {
+        mPinned = false;
+    }
+
+    /**
+     * Drops the anchor and stops ticking, e.g. when the media channel goes away.
+     */
+    synchronized void clear() {
+        mHasAnchor = false;
+        mPinned = false;
+        cancelTick();
+    }
+
+    /**
+     * To be called when the visibility of the application UI has changed.
+     */
+    void onVisibilityChanged(boolean uiVisible) {
+        synchronized (this) {
+            mUiHidden = !uiVisible;
+        }
+        tick(true);
+    }
+
+    /**
+     * To be called when the visibility of one of the registered mini controllers may have changed.
+     */
+    void refresh() {
+        tick(true);
+    }
+
+    /**
+     * Returns the interpolated position of the media, in milliseconds, or -1 if the clock is not
+     * anchored.
+     */
+    synchronized long getPosition() {
+        if (!mHasAnchor) {
+            return -1;
+        }
+        return getPosition(SystemClock.elapsedRealtime());
+    }
+
+    private long getPosition(long now) {
+        long position = mAnchorPosition;
+        if (mAdvancing) {
+            position += (long) ((now - mAnchorTime) * mPlaybackRate);
+        }
+        if (mDuration > 0) {
+            position = Math.min(position, mDuration);
+        }
+        return Math.max(0, position);
+    }
+
+    /*
+     * Updates the watchers that are due (or all the visible ones if force is true) and schedules
+     * the next tick.
+     */
+    private void tick(boolean force) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            // the watchers are views: updates requested from other threads are batched in a
+            // single post to the main thread
+            synchronized (this) {
+                if (mUpdatePosted) {
+                    return;
+                }
+                mUpdatePosted = true;
+            }
+            TickBus.getInstance().schedule(mUpdateRunnable, 0, TickBus.LANE_MAIN);
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        int position;
+        int duration;
+        synchronized (this) {
+            if (!mHasAnchor || mDuration <= 0 || mUiHidden) {
+                cancelTick();
+                return;
+            }
+            position = (int) getPosition(now);
+            duration = (int) mDuration;
+        }
+        for (Entry entry : mEntries.snapshot()) {
+            if (entry.isVisible() && (force || now >= entry.mNextDue)) {
+                entry.mNextDue = now + entry.mResolution;
+                entry.setProgress(position, duration);
+            }
+        }
+        reschedule();
+    }
+
+    private synchronized void reschedule() {
+        cancelTick();
+        if (!mHasAnchor || !mAdvancing || mDuration <= 0 || mUiHidden) {
+            return;
+        }
+        long nextDue = Long.MAX_VALUE;
+        for (Entry entry : mEntries.snapshot()) {
+            if (entry.isVisible()) {
+                nextDue = Math.min(nextDue, entry.mNextDue);
+            }
+        }
+        if (nextDue == Long.MAX_VALUE) {
+            LOGD(TAG, "No visible watcher, the clock is stopped");
+            return;
+        }
+        long delay = Math.max(0, nextDue - SystemClock.elapsedRealtime());
+        mNextTick = TickBus.getInstance().schedule(mTickRunnable, delay, TickBus.LANE_MAIN);
+    }
+
+    private void cancelTick() {
+        if (mNextTick != null) {
+            mNextTick.cancel();
+            mNextTick = null;
+        }
+    }
+
+    private static final class Entry {
+
+        private final IMiniController mController;
+        private final ProgressWatcher mWatcher;
+        private final long mResolution;
+        private volatile long mNextDue;
+
+        Entry(IMiniController controller, ProgressWatcher watcher, long resolution) {
+            mController = controller;
+            mWatcher = watcher;
+            mResolution = resolution;
+        }
+
+        Object getTarget() {
+            return mController != null ? mController : mWatcher;
+        }
+
+        boolean isVisible() {
+            return mController == null || mController.isVisible();
+        }
+
+        void setProgress(int position, int duration) {
+            if (mController != null) {
+                mController.setProgress(position, duration);
+            } else {
+                mWatcher.setProgress(position, duration);
+            }
+        }
+    }
+}
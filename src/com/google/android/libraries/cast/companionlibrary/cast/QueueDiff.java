@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
+
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaQueueItem;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.Utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the queue operations that turn the queue of the receiver into a desired list of items.
+ * <p>
+ * Items are matched on the content id of their media. The longest common subsequence of the two
+ * lists (computed with Myers' algorithm) stays in place; the other items that still appear in the
+ * desired list are moved with reorder operations, so they keep their item id and, for the current
+ * item, their playback. Everything else is removed or inserted, and matched items whose content
+ * has changed are updated.
+ * <p>
+ * The operations are grouped into as few requests as the queue APIs allow: one removal, one
+ * reorder per gap between items that stay in place, one insertion per run of new items and one
+ * update. They must be applied in the order in which they are returned.
+ */
+final class QueueDiff {
+
+    private static final String TAG = LogUtils.makeLogTag(QueueDiff.class);
+
+    static final int OPERATION_REMOVE = 0;
+    static final int OPERATION_REORDER = 1;
+    static final int OPERATION_INSERT = 2;
+    static final int OPERATION_UPDATE = 3;
+
+    /*
+     * Beyond this number of differences, matching items are moved instead of being kept in place;
+     * this bounds the memory used by the diff to roughly the square of this value.
+     */
+    private static final int MAX_EDIT_DISTANCE = 512;
+
+    private static final String KEY_ITEM_ID = "itemId";
+
+    /**
+     * A single queue request.
+     */
+    static final class Operation {
+
+        final int mType;
+        final int[] mItemIds;
+        final MediaQueueItem[] mItems;
+        final int mInsertBeforeItemId;
+
+        private Operation(int type, int[] itemIds, MediaQueueItem[] items, int insertBeforeItemId) {
+            mType = type;
+            mItemIds = itemIds;
+            mItems = items;
+            mInsertBeforeItemId = insertBeforeItemId;
+        }
+
+        @Override
+        public String toString() {
+            return "Operation{type=" + mType + ", itemIds=" + (mItemIds == null ? 0 : mItemIds.length)
+                    + ", items=" + (mItems == null ? 0 : mItems.length) + ", before="
+                    + mInsertBeforeItemId + "}";
+        }
+    }
+
+    private QueueDiff() {
+    }
+
+    /**
+     * Returns the operations that turn {@code current} into {@code desired}; the result is empty if
+     * the two lists already hold the same content in the same order.
+     */
+    static List<Operation> compute(List<MediaQueueItem> current, List<MediaQueueItem> desired) {
+        int n = current.size();
+        int m = desired.size();
+        String[] currentKeys = new String[n];
+        String[] desiredKeys = new String[m];
+        for (int i = 0; i < n; i++) {
+            currentKeys[i] = getKey(current.get(i));
+        }
+        for (int j = 0; j < m; j++) {
+            desiredKeys[j] = getKey(desired.get(j));
+        }
+
+        // for each desired position, the position of the current item it is mapped to, or -1
+        int[] source = new int[m];
+        boolean[] kept = new boolean[m];
+        boolean[] used = new boolean[n];
+        int[] matches = match(currentKeys, desiredKeys);
+        for (int j = 0; j < m; j++) {
+            source[j] = -1;
+        }
+        for (int i = 0; i < n; i++) {
+            if (matches[i] >= 0) {
+                source[matches[i]] = i;
+                kept[matches[i]] = true;
+                used[i] = true;
+            }
+        }
+
+        // the remaining current items that are still wanted are moved rather than re-inserted
+        Map<String, LinkedList<Integer>> spare = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (!used[i]) {
+                LinkedList<Integer> positions = spare.get(currentKeys[i]);
+                if (positions == null) {
+                    positions = new LinkedList<>();
+                    spare.put(currentKeys[i], positions);
+                }
+                positions.add(i);
+            }
+        }
+        for (int j = 0; j < m; j++) {
+            if (source[j] < 0) {
+                LinkedList<Integer> positions = spare.get(desiredKeys[j]);
+                if (positions != null && !positions.isEmpty()) {
+                    source[j] = positions.removeFirst();
+                    used[source[j]] = true;
+                }
+            }
+        }
+
+        List<Operation> operations = new ArrayList<>();
+
+        int removed = 0;
+        for (int i = 0; i < n; i++) {
+            if (!used[i]) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            int[] ids = new int[removed];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (!used[i]) {
+                    ids[k++] = current.get(i).getItemId();
+                }
+            }
+            operations.add(new Operation(OPERATION_REMOVE, ids, null, MediaQueueItem.INVALID_ITEM_ID));
+        }
+
+        // every gap between two kept items is filled before the kept item that closes it; the
+        // moved items go first, then the new items are inserted around them
+        List<Operation> inserts = new ArrayList<>();
+        int gapStart = 0;
+        for (int j = 0; j <= m; j++) {
+            if (j < m && !kept[j]) {
+                continue;
+            }
+            int anchor = j < m ? current.get(source[j]).getItemId() : MediaQueueItem.INVALID_ITEM_ID;
+            addGapOperations(current, desired, source, gapStart, j, anchor, operations, inserts);
+            gapStart = j + 1;
+        }
+        operations.addAll(inserts);
+
+        List<MediaQueueItem> updates = new ArrayList<>();
+        for (int j = 0; j < m; j++) {
+            if (source[j] >= 0) {
+                MediaQueueItem existing = current.get(source[j]);
+                if (!Utils.rebuildQueueItem(existing).equals(Utils.rebuildQueueItem(desired.get(j)))) {
+                    MediaQueueItem update = withItemId(desired.get(j), existing.getItemId());
+                    if (update != null) {
+                        updates.add(update);
+                    }
+                }
+            }
+        }
+        if (!updates.isEmpty()) {
+            operations.add(new Operation(OPERATION_UPDATE, null,
+                    updates.toArray(new MediaQueueItem[updates.size()]), MediaQueueItem.INVALID_ITEM_ID));
+        }
+        LOGD(TAG, "compute(): " + n + " -> " + m + " items in " + operations.size() + " operations");
+        return operations;
+    }
+
+    /*
+     * Adds the reorder and the insertions that fill the desired positions [from, to) before the
+     * item with the given anchor id.
+     */
+    private static void addGapOperations(List<MediaQueueItem> current, List<MediaQueueItem> desired,
+            int[] source, int from, int to, int anchor, List<Operation> reorders,
+            List<Operation> inserts) {
+        if (from >= to) {
+            return;
+        }
+        int moved = 0;
+        for (int j = from; j < to; j++) {
+            if (source[j] >= 0) {
+                moved++;
+            }
+        }
+        if (moved > 0) {
+            int[] ids = new int[moved];
+            int k = 0;
+            for (int j = from; j < to; j++) {
+                if (source[j] >= 0) {
+                    ids[k++] = current.get(source[j]).getItemId();
+                }
+            }
+            reorders.add(new Operation(OPERATION_REORDER, ids, null, anchor));
+        }
+        int runStart = -1;
+        for (int j = from; j <= to; j++) {
+            boolean isNew = j < to && source[j] < 0;
+            if (isNew && runStart < 0) {
+                runStart = j;
+            } else if (!isNew && runStart >= 0) {
+                MediaQueueItem[] items = new MediaQueueItem[j - runStart];
+                for (int k = runStart; k < j; k++) {
+                    items[k - runStart] = Utils.rebuildQueueItem(desired.get(k));
+                }
+                int before = j < to ? current.get(source[j]).getItemId() : anchor;
+                inserts.add(new Operation(OPERATION_INSERT, null, items, before));
+                runStart = -1;
+            }
+        }
+    }
+
+    /*
+     * Returns, for each position of a, the position of b it is matched with in a longest common
+     * subsequence of the two arrays, or -1. Common prefixes and suffixes are matched first; if the
+     * remaining lists differ by more than MAX_EDIT_DISTANCE, they are left unmatched.
+     */
+    static int[] match(String[] a, String[] b) {
+        int[] matches = new int[a.length];
+        for (int i = 0; i < a.length; i++) {
+            matches[i] = -1;
+        }
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && equal(a[prefix], b[prefix])) {
+            matches[prefix] = prefix;
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && equal(a[a.length - 1 - suffix], b[b.length - 1 - suffix])) {
+            matches[a.length - 1 - suffix] = b.length - 1 - suffix;
+            suffix++;
+        }
+        int n = a.length - prefix - suffix;
+        int m = b.length - prefix - suffix;
+        if (n == 0 || m == 0) {
+            return matches;
+        }
+
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int[] v = new int[2 * (n + m) + 3];
+        int offset = n + m + 1;
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && equal(a[prefix + x], b[prefix + y])) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+            }
+            int[] round = new int[2 * d + 1];
+            System.arraycopy(v, offset - d, round, 0, round.length);
+            trace.add(round);
+            if (v[offset + n - m] >= n && Math.abs(n - m) <= d && ((d - (n - m)) & 1) == 0) {
+                backtrack(trace, n, m, prefix, matches);
+                return matches;
+            }
+        }
+        LOGD(TAG, "match(): more than " + MAX_EDIT_DISTANCE + " differences, not matching the middle");
+        return matches;
+    }
+
+    private static void backtrack(List<int[]> trace, int n, int m, int prefix, int[] matches) {
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = previous[prevK + d - 1];
+            int prevY = prevX - prevK;
+            int startX = prevK == k + 1 ? prevX : prevX + 1;
+            int startY = startX - k;
+            while (x > startX && y > startY) {
+                x--;
+                y--;
+                matches[prefix + x] = prefix + y;
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            matches[prefix + x] = prefix + y;
+        }
+    }
+
+    private static String getKey(MediaQueueItem item) {
+        MediaInfo media = item.getMedia();
+        return media == null ? null : media.getContentId();
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /*
+     * Returns a copy of the item that carries the given item id, as needed by queue updates.
+     */
+    private static MediaQueueItem withItemId(MediaQueueItem item, int itemId) {
+        try {
+            JSONObject json = item.toJson();
+            json.put(KEY_ITEM_ID, itemId);
+            return new MediaQueueItem.Builder(json).build();
+        } catch (JSONException e) {
+            LOGE(TAG, "Failed to rebuild item " + itemId + " for an update", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+/**
+ * The timing of one attempt to recover a session, as recorded by the cast managers; see
+ * {@link BaseCastManager#getReconnectionAttempts()}. All times are in the time base of
+ * {@code SystemClock.elapsedRealtime()}.
+ */
+public final class ReconnectionAttempt {
+
+    public static final int OUTCOME_PENDING = 0;
+    public static final int OUTCOME_RECOVERED = 1;
+    public static final int OUTCOME_TIMED_OUT = 2;
+    public static final int OUTCOME_CANCELLED = 3;
+
+    private static final long NOT_YET = -1;
+
+    private final int mNumber;
+    private final boolean mDirect;
+    private final long mTimeoutMs;
+    private final long mStartTime;
+    private final long mRouteFoundTime;
+    private final long mConnectedTime;
+    private final long mEndTime;
+    private final int mOutcome;
+
+    private ReconnectionAttempt(int number, boolean direct, long timeoutMs, long startTime, long routeFoundTime,
+            long connectedTime, long endTime, int outcome) {
+        mNumber = number;
+        mDirect = direct;
+        mTimeoutMs = timeoutMs;
+        mStartTime = startTime;
+        mRouteFoundTime = routeFoundTime;
+        mConnectedTime = connectedTime;
+        mEndTime = endTime;
+        mOutcome = outcome;
+    }
+
+    static ReconnectionAttempt start(int number, boolean direct, long timeoutMs, long now, boolean routeKnown) {
+        return new ReconnectionAttempt(number, direct, timeoutMs, now, routeKnown ? now : NOT_YET, NOT_YET,
+                NOT_YET, OUTCOME_PENDING);
+    }
+
+    ReconnectionAttempt onRouteFound(long now) {
+        return new ReconnectionAttempt(mNumber, mDirect, mTimeoutMs, mStartTime, now, mConnectedTime, mEndTime,
+                mOutcome);
+    }
+
+    ReconnectionAttempt onConnected(long now) {
+        return new ReconnectionAttempt(mNumber, mDirect, mTimeoutMs, mStartTime, mRouteFoundTime, now, mEndTime,
+                mOutcome);
+    }
+
+    ReconnectionAttempt finish(int outcome, long now) {
+        return new ReconnectionAttempt(mNumber, mDirect, mTimeoutMs, mStartTime, mRouteFoundTime, mConnectedTime,
+                now, outcome);
+    }
+
+    boolean hasRoute() {
+        return mRouteFoundTime != NOT_YET;
+    }
+
+    boolean hasConnected() {
+        return mConnectedTime != NOT_YET;
+    }
+
+    /**
+     * Returns how many attempts in a row had failed before this one.
+     */
+    public int getNumber() {
+        return mNumber;
+    }
+
+    /**
+     * Returns {@code true} if the attempt connected directly to the persisted device, without
+     * waiting for its route to be discovered.
+     */
+    public boolean isDirect() {
+        return mDirect;
+    }
+
+    /**
+     * Returns how long this attempt was given, in milliseconds, after the backoff.
+     */
+    public long getTimeoutMs() {
+        return mTimeoutMs;
+    }
+
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * Returns how long it took, in milliseconds, for the route of the device to be discovered, 0
+     * if it was already known, or -1 if it was not found.
+     */
+    public long getRouteDiscoveryMs() {
+        return mRouteFoundTime == NOT_YET ? NOT_YET : mRouteFoundTime - mStartTime;
+    }
+
+    /**
+     * Returns how long it took, in milliseconds, to connect to the device, or -1 if it did not
+     * connect.
+     */
+    public long getConnectMs() {
+        return mConnectedTime == NOT_YET ? NOT_YET : mConnectedTime - mStartTime;
+    }
+
+    /**
+     * Returns how long the attempt lasted, in milliseconds, or -1 if it is still pending.
+     */
+    public long getDurationMs() {
+        return mEndTime == NOT_YET ? NOT_YET : mEndTime - mStartTime;
+    }
+
+    /**
+     * Returns one of the {@code OUTCOME_*} values.
+     */
+    public int getOutcome() {
+        return mOutcome;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconnectionAttempt{number=" + mNumber + ", direct=" + mDirect + ", timeout=" + mTimeoutMs
+                + ", routeDiscovery=" + getRouteDiscoveryMs() + ", connect=" + getConnectMs() + ", duration="
+                + getDurationMs() + ", outcome=" + mOutcome + "}";
+    }
+}
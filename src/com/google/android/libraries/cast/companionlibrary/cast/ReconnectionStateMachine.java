@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+
+import android.os.SystemClock;
+
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives an attempt to recover a session: the attempt waits for the route of the device to be
+ * discovered, then for the connection to it, and fails when its deadline passes first. When the
+ * device was persisted, the manager connects to it directly while the route is being discovered;
+ * the attempt then needs both, the route validating the device. Nothing
+ * waits on a thread; the attempt moves on with the events that the manager forwards and with a
+ * single task scheduled on the main lane of the {@link TickBus}. After a failure, the next attempt
+ * is deferred by a delay that doubles with each failure in a row.
+ *
+ * <p>The events are expected on the main thread; the recorded attempts can be read on any thread.
+ */
+final class ReconnectionStateMachine {
+
+    private static final String TAG = LogUtils.makeLogTag(ReconnectionStateMachine.class);
+
+    static final int STATE_IDLE = 0;
+    static final int STATE_WAITING_FOR_ROUTE = 1;
+    static final int STATE_CONNECTING = 2;
+    static final int STATE_RECOVERED = 3;
+    static final int STATE_FAILED = 4;
+
+    static final long BACKOFF_BASE_MS = TimeUnit.SECONDS.toMillis(5);
+    static final long BACKOFF_MAX_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_RECORDED_ATTEMPTS = 10;
+
+    /**
+     * What the machine needs from the manager.
+     */
+    interface Callback {
+
+        boolean isConnected();
+
+        /**
+         * Called on the main thread when an attempt has timed out.
+         */
+        void onReconnectionTimedOut();
+    }
+
+    private final Callback mCallback;
+    private final ArrayDeque<ReconnectionAttempt> mAttempts = new ArrayDeque<>();
+    private int mState = STATE_IDLE;
+    private boolean mDirectPending;
+    private int mFailures;
+    private long mLastFailureTime;
+    private TickBus.Subscription mScheduled;
+
+    private final Runnable mDeadlineRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onDeadline();
+        }
+    };
+
+    ReconnectionStateMachine(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * Returns how long, in milliseconds, a new attempt has to be deferred because of the previous
+     * failures, or 0 if it can start now.
+     */
+    synchronized long getBackoffDelay() {
+        if (mFailures == 0) {
+            return 0;
+        }
+        long backoff = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(mFailures - 1, 16));
+        return Math.max(0, mLastFailureTime + backoff - SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Runs {@code start} once the backoff is over, in place of whatever was scheduled.
+     */
+    synchronized void defer(Runnable start, long delayMs) {
+        LOGD(TAG, "defer(): next attempt in " + delayMs + "ms after " + mFailures + " failures");
+        cancelScheduled();
+        mScheduled = TickBus.getInstance().schedule(start, delayMs, TickBus.LANE_MAIN);
+    }
+
+    /**
+     * Starts a new attempt, abandoning the pending one if any. If {@code routeKnown} or
+     * {@code direct}, the manager is already connecting to the device; otherwise the attempt waits
+     * for its route.
+     */
+    synchronized void start(long timeoutMs, boolean routeKnown, boolean direct) {
+        long now = SystemClock.elapsedRealtime();
+        finishAttempt(ReconnectionAttempt.OUTCOME_CANCELLED, now);
+        cancelScheduled();
+        record(ReconnectionAttempt.start(mFailures, direct, timeoutMs, now, routeKnown));
+        mDirectPending = direct && !routeKnown;
+        setState(routeKnown || direct ? STATE_CONNECTING : STATE_WAITING_FOR_ROUTE);
+        mScheduled = TickBus.getInstance().schedule(mDeadlineRunnable, timeoutMs, TickBus.LANE_MAIN);
+    }
+
+    /**
+     * Returns {@code true} if the manager is connecting, or has connected, to the persisted device
+     * and the route of that device has not been discovered yet.
+     */
+    synchronized boolean isDirectPending() {
+        return isPending() && mDirectPending;
+    }
+
+    /**
+     * To be called when the direct connection has failed; the attempt goes on waiting for the
+     * route.
+     */
+    synchronized void onDirectFailed() {
+        if (isDirectPending()) {
+            mDirectPending = false;
+            setState(STATE_WAITING_FOR_ROUTE);
+        }
+    }
+
+    /**
+     * To be called when the route of the device has been discovered.
+     */
+    synchronized void onRouteFound() {
+        if (isPending() && !mAttempts.getLast().hasRoute()) {
+            mDirectPending = false;
+            record(mAttempts.removeLast().onRouteFound(SystemClock.elapsedRealtime()));
+            if (mAttempts.getLast().hasConnected()) {
+                onRecovered();
+            } else {
+                setState(STATE_CONNECTING);
+            }
+        }
+    }
+
+    /**
+     * To be called when the manager has connected to a device.
+     */
+    synchronized void onConnected() {
+        if (isPending() && !mAttempts.getLast().hasConnected()) {
+            record(mAttempts.removeLast().onConnected(SystemClock.elapsedRealtime()));
+            if (mAttempts.getLast().hasRoute()) {
+                onRecovered();
+            }
+        }
+    }
+
+    /**
+     * Abandons the pending attempt, and the deferred one, if any.
+     */
+    synchronized void cancel() {
+        cancelScheduled();
+        if (isPending()) {
+            mDirectPending = false;
+            finishAttempt(ReconnectionAttempt.OUTCOME_CANCELLED, SystemClock.elapsedRealtime());
+            setState(STATE_IDLE);
+        }
+    }
+
+    /**
+     * Returns the last attempts, the most recent one last.
+     */
+    synchronized List<ReconnectionAttempt> getAttempts() {
+        return Collections.unmodifiableList(new ArrayList<>(mAttempts));
+    }
+
+    private void onDeadline() {
+        boolean connected = mCallback.isConnected();
+        synchronized (this) {
+            if (!isPending()) {
+                return;
+            }
+            mScheduled = null;
+            if (connected && mAttempts.getLast().hasRoute()) {
+                onRecovered();
+                return;
+            }
+            long now = SystemClock.elapsedRealtime();
+            mDirectPending = false;
+            mFailures++;
+            mLastFailureTime = now;
+            finishAttempt(ReconnectionAttempt.OUTCOME_TIMED_OUT, now);
+            setState(STATE_FAILED);
+        }
+        mCallback.onReconnectionTimedOut();
+    }
+
+    private void onRecovered() {
+        cancelScheduled();
+        mFailures = 0;
+        finishAttempt(ReconnectionAttempt.OUTCOME_RECOVERED, SystemClock.elapsedRealtime());
+        setState(STATE_RECOVERED);
+    }
+
+    private boolean isPending() {
+        return mState == STATE_WAITING_FOR_ROUTE || mState == STATE_CONNECTING;
+    }
+
+    private void setState(int state) {
+        LOGD(TAG, "state " + mState + " -> " + state);
+        mState = state;
+    }
+
+    private void finishAttempt(int outcome, long now) {
+        if (isPending()) {
+            ReconnectionAttempt attempt = mAttempts.removeLast().finish(outcome, now);
+            LOGD(TAG, "finished " + attempt);
+            record(attempt);
+        }
+    }
+
+    private void record(ReconnectionAttempt attempt) {
+        if (mAttempts.size() == MAX_RECORDED_ATTEMPTS) {
+            mAttempts.removeFirst();
+        }
+        mAttempts.addLast(attempt);
+    }
+
+    private void cancelScheduled() {
+        if (mScheduled != null) {
+            mScheduled.cancel();
+            mScheduled = null;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
+
+import android.net.wifi.WifiManager;
+import android.text.TextUtils;
+
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.PreferenceAccessor;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The routes seen recently on each wifi network, persisted in the preferences so that the cast
+ * button can be shown at startup, before the discovery finds them again. Each route is kept with
+ * the time it was last seen and expires after {@link #TTL_MS}.
+ *
+ * <p>This class is meant to be used on the main thread.
+ */
+final class RouteCache {
+
+    private static final String TAG = LogUtils.makeLogTag(RouteCache.class);
+
+    static final long TTL_MS = TimeUnit.DAYS.toMillis(1);
+
+    /*
+     * A route seen again within this interval is not written again.
+     */
+    private static final long WRITE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_NETWORKS = 5;
+    private static final int MAX_ROUTES = 10;
+
+    private final PreferenceAccessor mPreferenceAccessor;
+    private JSONObject mNetworks;
+    private String mSsid;
+
+    RouteCache(PreferenceAccessor preferenceAccessor) {
+        mPreferenceAccessor = preferenceAccessor;
+    }
+
+    /**
+     * Sets the wifi network that the routes are seen on; {@code null} if it is unknown, in which
+     * case nothing is cached.
+     */
+    void setNetwork(String ssid) {
+        mSsid = TextUtils.isEmpty(ssid) || WifiManager.UNKNOWN_SSID.equals(ssid) ? null : ssid;
+    }
+
+    /**
+     * Returns the routes seen on the current network that have not expired.
+     */
+    List<String> getRouteIds() {
+        List<String> routeIds = new ArrayList<>();
+        JSONObject routes = getRoutes(false);
+        if (routes != null) {
+            long now = System.currentTimeMillis();
+            Iterator<String> keys = routes.keys();
+            while (keys.hasNext()) {
+                String routeId = keys.next();
+                if (isFresh(routes.optLong(routeId), now)) {
+                    routeIds.add(routeId);
+                }
+            }
+        }
+        return routeIds;
+    }
+
+    /**
+     * Records that the route has been seen on the current network.
+     */
+    void onRouteSeen(String routeId) {
+        JSONObject routes = getRoutes(true);
+        if (routes == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long lastSeen = routes.optLong(routeId, -1);
+        if (lastSeen >= 0 && now - lastSeen >= 0 && now - lastSeen < WRITE_INTERVAL_MS) {
+            return;
+        }
+        try {
+            routes.put(routeId, now);
+        } catch (JSONException e) {
+            LOGE(TAG, "onRouteSeen(): Failed to cache " + routeId, e);
+            return;
+        }
+        trim(routes, MAX_ROUTES, now);
+        save();
+    }
+
+    /**
+     * Forgets the cached routes of the current network that are not in {@code routeIds}, after a
+     * discovery has failed to find them.
+     */
+    void retainOnly(Collection<String> routeIds) {
+        JSONObject routes = getRoutes(false);
+        if (routes == null) {
+            return;
+        }
+        List<String> stale = new ArrayList<>();
+        Iterator<String> keys = routes.keys();
+        while (keys.hasNext()) {
+            String routeId = keys.next();
+            if (!routeIds.contains(routeId)) {
+                stale.add(routeId);
+            }
+        }
+        if (!stale.isEmpty()) {
+            LOGD(TAG, "retainOnly(): forgetting " + stale);
+            for (String routeId : stale) {
+                routes.remove(routeId);
+            }
+            save();
+        }
+    }
+
+    private JSONObject getRoutes(boolean create) {
+        if (mSsid == null) {
+            return null;
+        }
+        if (mNetworks == null) {
+            mNetworks = load();
+        }
+        JSONObject routes = mNetworks.optJSONObject(mSsid);
+        if (routes == null && create) {
+            routes = new JSONObject();
+            try {
+                mNetworks.put(mSsid, routes);
+            } catch (JSONException e) {
+                LOGE(TAG, "getRoutes(): Failed to add " + mSsid, e);
+                return null;
+            }
+            trimNetworks();
+        }
+        return routes;
+    }
+
+    private JSONObject load() {
+        String json = mPreferenceAccessor.getStringFromPreference(BaseCastManager.PREFS_KEY_ROUTE_CACHE);
+        if (json != null) {
+            try {
+                return new JSONObject(json);
+            } catch (JSONException e) {
+                LOGE(TAG, "load(): Failed to parse the cached routes", e);
+            }
+        }
+        return new JSONObject();
+    }
+
+    private void save() {
+        mPreferenceAccessor.saveStringToPreference(BaseCastManager.PREFS_KEY_ROUTE_CACHE, mNetworks.toString());
+    }
+
+    /*
+     * Drops the expired routes and then, if there are still more than max, the oldest ones.
+     */
+    private static void trim(JSONObject routes, int max, long now) {
+        List<String> stale = new ArrayList<>();
+        Iterator<String> keys = routes.keys();
+        while (keys.hasNext()) {
+            String routeId = keys.next();
+            if (!isFresh(routes.optLong(routeId), now)) {
+                stale.add(routeId);
+            }
+        }
+        for (String routeId : stale) {
+            routes.remove(routeId);
+        }
+        while (routes.length() > max) {
+            routes.remove(oldest(routes));
+        }
+    }
+
+    /*
+     * Drops the networks whose routes have all expired and then, if there are still too many, the
+     * one seen the longest time ago.
+     */
+    private void trimNetworks() {
+        long now = System.currentTimeMillis();
+        List<String> stale = new ArrayList<>();
+        Iterator<String> keys = mNetworks.keys();
+        while (keys.hasNext()) {
+            String ssid = keys.next();
+            JSONObject routes = mNetworks.optJSONObject(ssid);
+            if (routes == null) {
+                stale.add(ssid);
+            } else if (!ssid.equals(mSsid)) {
+                trim(routes, MAX_ROUTES, now);
+                if (routes.length() == 0) {
+                    stale.add(ssid);
+                }
+            }
+        }
+        for (String ssid : stale) {
+            mNetworks.remove(ssid);
+        }
+        while (mNetworks.length() > MAX_NETWORKS) {
+            String oldestSsid = null;
+            long oldestTime = Long.MAX_VALUE;
+            keys = mNetworks.keys();
+            while (keys.hasNext()) {
+                String ssid = keys.next();
+                JSONObject routes = mNetworks.optJSONObject(ssid);
+                long lastSeen = routes.length() == 0 ? Long.MIN_VALUE : routes.optLong(newest(routes));
+                if (!ssid.equals(mSsid) && lastSeen < oldestTime) {
+                    oldestSsid = ssid;
+                    oldestTime = lastSeen;
+                }
+            }
+            mNetworks.remove(oldestSsid);
+        }
+    }
+
+    private static String oldest(JSONObject routes) {
+        String oldest = null;
+        Iterator<String> keys = routes.keys();
+        while (keys.hasNext()) {
+            String routeId = keys.next();
+            if (oldest == null || routes.optLong(routeId) < routes.optLong(oldest)) {
+                oldest = routeId;
+            }
+        }
+        return oldest;
+    }
+
+    private static String newest(JSONObject routes) {
+        String newest = null;
+        Iterator<String> keys = routes.keys();
+        while (keys.hasNext()) {
+            String routeId = keys.next();
+            if (newest == null || routes.optLong(routeId) > routes.optLong(newest)) {
+                newest = routeId;
+            }
+        }
+        return newest;
+    }
+
+    private static boolean isFresh(long lastSeen, long now) {
+        return lastSeen > 0 && now - lastSeen >= 0 && now - lastSeen <= TTL_MS;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+
+import com.google.android.gms.cast.RemoteMediaPlayer;
+import com.google.android.gms.cast.RemoteMediaPlayer.MediaChannelResult;
+import com.google.android.gms.common.api.PendingResult;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
+
+/**
+ * Merges bursts of seek requests (seek bar scrubs, repeated forward and rewind taps) into as few
+ * seeks on the receiver as possible. Requests that arrive within a short window are merged, at most
+ * one seek is in flight at any time and, when it completes, only the latest target is sent.
+ * <p>
+ * While seeks are pending, the {@link ProgressClock} is pinned on the latest target so that the
+ * UI reflects the position the user has asked for.
+ */
+final class SeekCoalescer {
+
+    private static final String TAG = LogUtils.makeLogTag(SeekCoalescer.class);
+
+    private static final long COALESCING_WINDOW_MS = 200;
+
+    /**
+     * The interface to send the seeks to the receiver and report failures.
+     */
+    interface SeekSender {
+
+        /**
+         * Sends a seek to the receiver; returns {@code null} if it could not be sent.
+         */
+        PendingResult<MediaChannelResult> sendSeek(long position, int resumeState);
+
+        void onSeekFailed(int statusCode);
+    }
+
+    private final SeekSender mSender;
+    private final ProgressClock mProgressClock;
+    private boolean mHasTarget;
+    private long mTarget;
+    private int mResumeState = RemoteMediaPlayer.RESUME_STATE_UNCHANGED;
+    private boolean mInFlight;
+    private TickBus.Subscription mWindow;
+
+    private final Runnable mWindowRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (SeekCoalescer.this) {
+                mWindow = null;
+            }
+            sendIfIdle();
+        }
+    };
+
+    SeekCoalescer(SeekSender sender, ProgressClock progressClock) {
+        mSender = sender;
+        mProgressClock = progressClock;
+    }
+
+    /**
+     * Requests a seek to an absolute {@code position}. A {@code resumeState} of
+     * {@link RemoteMediaPlayer#RESUME_STATE_PLAY} sticks until the merged seek is sent.
+     */
+    void seekTo(long position, int resumeState) {
+        long target = Math.max(0, position);
+        synchronized (this) {
+            mTarget = target;
+            mHasTarget = true;
+            if (resumeState != RemoteMediaPlayer.RESUME_STATE_UNCHANGED) {
+                mResumeState = resumeState;
+            }
+            openWindow();
+        }
+        // pinning ticks the clock listeners, so it must not run while holding our lock
+        mProgressClock.pin(target);
+    }
+
+    /**
+     * Requests a seek relative to the latest pending target or, if there is none, to
+     * {@code currentPosition}. The result is clamped to {@code duration} if it is positive.
+     */
+    void seekBy(long delta, long currentPosition, long duration) {
+        long target;
+        synchronized (this) {
+            target = (mHasTarget ? mTarget : currentPosition) + delta;
+        }
+        if (duration > 0) {
+            target = Math.min(target, duration);
+        }
+        seekTo(target, RemoteMediaPlayer.RESUME_STATE_UNCHANGED);
+    }
+
+    /**
+     * Drops any pending seek, e.g. when the media channel goes away.
+     */
+    synchronized void reset() {
+        mHasTarget = false;
+        mInFlight = false;
+        mResumeState = RemoteMediaPlayer.RESUME_STATE_UNCHANGED;
+        if (mWindow != null) {
+            mWindow.cancel();
+            mWindow = null;
+        }
+        mProgressClock.unpin();
+    }
+
+    private void openWindow() {
+        if (mWindow == null && !mInFlight) {
+            mWindow = TickBus.getInstance().schedule(mWindowRunnable, COALESCING_WINDOW_MS,
+                    TickBus.LANE_MAIN);
+        }
+    }
+
+    private void sendIfIdle() {
+        long target;
+        int resumeState;
+        synchronized (this) {
+            if (mInFlight || mWindow != null) {
+                return;
+            }
+            if (!mHasTarget) {
+                mProgressClock.unpin();
+                return;
+            }
+            target = mTarget;
+            resumeState = mResumeState;
+            mHasTarget = false;
+            mResumeState = RemoteMediaPlayer.RESUME_STATE_UNCHANGED;
+            mInFlight = true;
+        }
+        LOGD(TAG, "Sending seek to " + target);
+        PendingResult<MediaChannelResult> result = mSender.sendSeek(target, resumeState);
+        if (result == null) {
+            reset();
+            return;
+        }
+        result.setResultCallback(new ResultCallback<MediaChannelResult>() {
+
+            @Override
+            public void onResult(MediaChannelResult result) {
+                if (!result.getStatus().isSuccess()) {
+                    mSender.onSeekFailed(result.getStatus().getStatusCode());
+                }
+                synchronized (SeekCoalescer.this) {
+                    mInFlight = false;
+                }
+                sendIfIdle();
+            }
+        });
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of what the managers have asked of the notification and reconnection services, so
+ * that a start intent is only sent, and the reconnection jobs are only scheduled again, when
+ * something has actually changed. Each method returns {@code true} if the caller has to act and
+ * records that it did.
+ */
+final class ServiceCoordinator {
+
+    /**
+     * How far the projected end of the media can move before the reconnection service is told
+     * again; the end moves a little with every status update while playing, and a lot after a
+     * pause or a seek.
+     */
+    static final long MEDIA_END_DRIFT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private boolean mNotificationStarted;
+    private boolean mNotificationVisible;
+    private boolean mReconnectionStarted;
+    private long mMediaEnd;
+
+    /**
+     * To be called before the notification service is started with the given visibility.
+     */
+    synchronized boolean shouldStartNotification(boolean visible) {
+        if (mNotificationStarted && mNotificationVisible == visible) {
+            return false;
+        }
+        mNotificationStarted = true;
+        mNotificationVisible = visible;
+        return true;
+    }
+
+    /**
+     * To be called before the notification service is stopped.
+     */
+    synchronized boolean shouldStopNotification() {
+        boolean started = mNotificationStarted;
+        mNotificationStarted = false;
+        return started;
+    }
+
+    /**
+     * To be called when the notification service may have stopped on its own, e.g. on
+     * disconnection, so that the next start is not skipped.
+     */
+    synchronized void onNotificationStopped() {
+        mNotificationStarted = false;
+    }
+
+    /**
+     * To be called before the reconnection service is started for a media that ends at
+     * {@code mediaEnd}, in the time base of {@code SystemClock.elapsedRealtime()}.
+     */
+    synchronized boolean shouldStartReconnection(long mediaEnd) {
+        if (mReconnectionStarted && Math.abs(mediaEnd - mMediaEnd) <= MEDIA_END_DRIFT_MS) {
+            return false;
+        }
+        mReconnectionStarted = true;
+        mMediaEnd = mediaEnd;
+        return true;
+    }
+
+    /**
+     * To be called before the reconnection service is stopped.
+     */
+    synchronized boolean shouldStopReconnection() {
+        boolean started = mReconnectionStarted;
+        mReconnectionStarted = false;
+        return started;
+    }
+
+    /**
+     * To be called when the reconnection service has stopped on its own, e.g. at the end of the
+     * media or because the system killed it, so that the next start is not skipped.
+     */
+    synchronized void onReconnectionStopped() {
+        mReconnectionStarted = false;
+    }
+}
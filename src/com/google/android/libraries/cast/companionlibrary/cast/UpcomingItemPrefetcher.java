@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.target.Target;
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaQueueItem;
+import com.google.android.libraries.cast.companionlibrary.utils.ArtworkRequests;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warms up what the surfaces of the library need to render the item that the receiver is
+ * preloading, so that they can switch to it as soon as it becomes the current item: the artwork is
+ * loaded in the Glide caches at the size tier of each surface (see
+ * {@link ArtworkRequests}) and the {@link MediaRenderModel} is built ahead of time.
+ */
+final class UpcomingItemPrefetcher {
+
+    private static final String TAG = LogUtils.makeLogTag(UpcomingItemPrefetcher.class);
+
+    static final int SURFACE_NOTIFICATION = 1;
+    static final int SURFACE_LOCK_SCREEN = 1 << 1;
+    static final int SURFACE_MINI_CONTROLLER = 1 << 2;
+    static final int SURFACE_FULL_SCREEN = 1 << 3;
+
+    private final Context mContext;
+    private final List<Target<?>> mTargets = new ArrayList<>();
+    private MediaRenderModel mModel;
+
+    UpcomingItemPrefetcher(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Prefetches the artwork of {@code item} for the given {@code surfaces}, a combination of the
+     * {@code SURFACE_*} flags, and builds its render model. The images of the previous prefetch,
+     * if any, are released. A {@code null} item, e.g. when the preload ends because the item has
+     * become the current one, keeps the previous model until {@link #takeModel(MediaInfo)} is
+     * called.
+     */
+    void prefetch(MediaQueueItem item, int surfaces) {
+        releaseTargets();
+        MediaInfo info = item == null ? null : item.getMedia();
+        if (info == null) {
+            return;
+        }
+        mModel = MediaRenderModel.from(info);
+        RequestManager glide = Glide.with(mContext);
+        Uri iconUri = mModel.getIconUri();
+        // the notification, the mini controllers and the media session icon share the thumbnail
+        if (iconUri != null && (surfaces & (SURFACE_NOTIFICATION | SURFACE_LOCK_SCREEN
+                | SURFACE_MINI_CONTROLLER)) != 0) {
+            prefetch(glide, iconUri, ArtworkRequests.TIER_THUMBNAIL);
+        }
+        Uri lockScreenUri = mModel.getLockScreenUri();
+        if (lockScreenUri != null && (surfaces & SURFACE_LOCK_SCREEN) != 0) {
+            prefetch(glide, lockScreenUri, ArtworkRequests.TIER_FULL_SCREEN);
+        }
+        Uri fullScreenUri = mModel.getFullScreenUri();
+        if (fullScreenUri != null && (surfaces & SURFACE_FULL_SCREEN) != 0
+                && !(fullScreenUri.equals(lockScreenUri) && (surfaces & SURFACE_LOCK_SCREEN) != 0)) {
+            prefetch(glide, fullScreenUri, ArtworkRequests.TIER_FULL_SCREEN);
+        }
+        LOGD(TAG, "prefetch(): " + mTargets.size() + " images for " + mModel.getContentId());
+    }
+
+    private void prefetch(RequestManager glide, Uri uri, int tier) {
+        mTargets.add(ArtworkRequests.load(glide, uri, mContext, tier).preload());
+    }
+
+    /**
+     * Returns the prefetched model if it can render {@code info}, the new current item, or
+     * {@code null} otherwise. Either way, the model is not kept any longer.
+     */
+    MediaRenderModel takeModel(MediaInfo info) {
+        MediaRenderModel model = mModel;
+        mModel = null;
+        return model != null && model.isFor(info) ? model : null;
+    }
+
+    /**
+     * Releases the prefetched images and model; the images stay in the memory cache until they
+     * are evicted.
+     */
+    void clear() {
+        releaseTargets();
+        mModel = null;
+    }
+
+    private void releaseTargets() {
+        RequestManager glide = Glide.with(mContext);
+        for (Target<?> target : mTargets) {
+            glide.clear(target);
+        }
+        mTargets.clear();
+    }
+}
@@ -25,12 +25,11 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources.NotFoundException;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Point;
 import android.media.AudioManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.preference.PreferenceScreen;
 import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.MediaSessionCompat;
@@ -41,7 +40,6 @@ import android.view.View;
 import android.view.accessibility.CaptioningManager;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.SimpleTarget;
 import com.bumptech.glide.request.transition.Transition;
 import com.google.android.gms.cast.ApplicationMetadata;
@@ -51,7 +49,6 @@ import com.google.android.gms.cast.Cast.MessageReceivedCallback;
 import com.google.android.gms.cast.CastDevice;
 import com.google.android.gms.cast.CastStatusCodes;
 import com.google.android.gms.cast.MediaInfo;
-import com.google.android.gms.cast.MediaMetadata;
 import com.google.android.gms.cast.MediaQueueItem;
 import com.google.android.gms.cast.MediaStatus;
 import com.google.android.gms.cast.MediaTrack;
@@ -59,10 +56,11 @@ import com.google.android.gms.cast.RemoteMediaPlayer;
 import com.google.android.gms.cast.RemoteMediaPlayer.MediaChannelResult;
 import com.google.android.gms.cast.TextTrackStyle;
 import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.PendingResult;
 import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.common.api.Status;
-import com.google.android.gms.common.images.WebImage;
 import com.google.android.libraries.cast.companionlibrary.R;
+import com.google.android.libraries.cast.companionlibrary.cast.callbacks.ConsumerEvents;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.VideoCastConsumer;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.VideoCastConsumerImpl;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastException;
@@ -75,30 +73,32 @@ import com.google.android.libraries.cast.companionlibrary.cast.tracks.OnTracksSe
 import com.google.android.libraries.cast.companionlibrary.cast.tracks.TracksPreferenceManager;
 import com.google.android.libraries.cast.companionlibrary.notification.VideoCastNotificationService;
 import com.google.android.libraries.cast.companionlibrary.remotecontrol.VideoIntentReceiver;
+import com.google.android.libraries.cast.companionlibrary.utils.ArtworkRequests;
+import com.google.android.libraries.cast.companionlibrary.utils.DistinctLiveData;
 import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.PlaceholderArtwork;
+import com.google.android.libraries.cast.companionlibrary.utils.SnapshotRegistry;
 import com.google.android.libraries.cast.companionlibrary.utils.Utils;
 import com.google.android.libraries.cast.companionlibrary.widgets.IMiniController;
 import com.google.android.libraries.cast.companionlibrary.widgets.MiniController;
 import com.google.android.libraries.cast.companionlibrary.widgets.MiniController.OnMiniControllerChangedListener;
+import com.google.android.libraries.cast.companionlibrary.widgets.MiniControllerBinder;
+import com.google.android.libraries.cast.companionlibrary.widgets.MiniControllerModel;
 import com.google.android.libraries.cast.companionlibrary.widgets.ProgressWatcher;
 
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
 import androidx.mediarouter.media.MediaRouter.RouteInfo;
 
 
@@ -142,7 +142,6 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     public static final String EXTRA_CUSTOM_DATA = "customData";
     public static final Class<?> DEFAULT_TARGET_ACTIVITY = VideoCastControllerActivity.class;
     public static final double DEFAULT_VOLUME_STEP = 0.05;
-    private static final long PROGRESS_UPDATE_INTERVAL_MS = TimeUnit.SECONDS.toMillis(1);
     public static final long DEFAULT_LIVE_STREAM_DURATION_MS = TimeUnit.HOURS.toMillis(2);
     public static final String PREFS_KEY_START_ACTIVITY = "ccl-start-cast-activity";
     private Class<? extends Service> mNotificationServiceClass;
@@ -150,6 +149,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     private TracksPreferenceManager mTrackManager;
     private MediaQueue mMediaQueue;
     private MediaStatus mMediaStatus;
+    private MediaStatusSnapshot mLastStatusSnapshot;
     private ImageTarget iconTarget = new ImageTarget(MediaMetadataCompat.METADATA_KEY_DISPLAY_ICON);
     private ImageTarget artTarget = new ImageTarget(MediaMetadataCompat.METADATA_KEY_ART);
 
@@ -164,7 +164,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     }
 
     private Class<?> mTargetActivity;
-    private final Set<IMiniController> mMiniControllers = Collections.synchronizedSet(new HashSet<IMiniController>());
+    private final SnapshotRegistry<IMiniController> mMiniControllers =
+            new SnapshotRegistry<>(new IMiniController[0]);
     private AudioManager mAudioManager;
     private RemoteMediaPlayer mRemoteMediaPlayer;
     private MediaSessionCompat mMediaSessionCompat;
@@ -173,14 +174,64 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     private int mIdleReason;
     private String mDataNamespace;
     private Cast.MessageReceivedCallback mDataChannel;
-    private final Set<VideoCastConsumer> mVideoConsumers = new CopyOnWriteArraySet<>();
     private final Set<OnTracksSelectedListener> mTracksSelectedListeners = new CopyOnWriteArraySet<>();
-    private final Set<ProgressWatcher> mProgressWatchers = new CopyOnWriteArraySet<>();
     private MediaAuthService mAuthService;
     private long mLiveStreamDuration = DEFAULT_LIVE_STREAM_DURATION_MS;
     private MediaQueueItem mPreLoadingItem;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private ScheduledFuture<?> mProgressHandler;
+    private final UpcomingItemPrefetcher mPrefetcher;
+    private MediaRenderModel mRenderModel;
+    private final MiniControllerBinder mMiniControllerBinder = new MiniControllerBinder();
+    private MiniControllerModel mMiniControllerModel;
+    private long mMiniControllerModelVersion = -1;
+    private String mMiniControllerSubtitle;
+    private String mMiniControllerSubtitleDevice;
+    private Executor mCommandExecutor = MediaCommandFuture.MAIN_THREAD_EXECUTOR;
+    private WindowedQueueLoader mWindowedQueueLoader;
+    private MediaCommandFuture mWindowedQueueLoad;
+    private final ProgressClock mProgressClock = new ProgressClock();
+    private final DistinctLiveData<Integer> mPlayerStateData = new DistinctLiveData<>(MediaStatus.PLAYER_STATE_IDLE);
+    private final PositionLiveData mPositionData =
+            new PositionLiveData(mProgressClock, ProgressClock.DEFAULT_RESOLUTION_MS);
+    private final DistinctLiveData<MediaQueue> mMediaQueueData = new DistinctLiveData<>(null);
+    private final DistinctLiveData<Double> mVolumeData = new DistinctLiveData<>();
+    private final DistinctLiveData<Boolean> mMuteData = new DistinctLiveData<>();
+    private final DistinctLiveData<long[]> mActiveTrackIdsData = new DistinctLiveData<>(null);
+    private final SeekCoalescer mSeekCoalescer = new SeekCoalescer(new SeekCoalescer.SeekSender() {
+        @Override
+        public PendingResult<MediaChannelResult> sendSeek(long position, int resumeState) {
+            if (mRemoteMediaPlayer == null || !isConnected()) {
+                return null;
+            }
+            return mRemoteMediaPlayer.seek(mApiClient, position, resumeState);
+        }
+
+        @Override
+        public void onSeekFailed(int statusCode) {
+            onFailed(R.string.ccl_failed_seek, statusCode);
+        }
+    }, mProgressClock);
+    private final VolumeCoalescer mVolumeCoalescer = new VolumeCoalescer(new VolumeCoalescer.VolumeSender() {
+        @Override
+        public MediaCommandFuture sendVolume(double volume) throws CastException,
+                TransientNetworkDisconnectionException, NoConnectionException {
+            if (mVolumeType == VolumeType.STREAM) {
+                checkRemoteMediaPlayerAvailable();
+                return newCommand(mRemoteMediaPlayer.setStreamVolume(mApiClient, volume));
+            }
+            setDeviceVolume(volume);
+            return null;
+        }
+
+        @Override
+        public void onVolumeFailed(int statusCode) {
+            onFailed(R.string.ccl_failed_setting_volume, statusCode);
+        }
+
+        @Override
+        public void onVolumeSettled() {
+            onVolumeChanged();
+        }
+    });
 
     public static final int QUEUE_OPERATION_LOAD = 1;
     public static final int QUEUE_OPERATION_INSERT_ITEMS = 2;
@@ -198,6 +249,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     public VideoCastManager(Context context, CastConfiguration castConfiguration) {
         super(context, castConfiguration);
         LOGD(TAG, "VideoCastManager is instantiated");
+        mPrefetcher = new UpcomingItemPrefetcher(context);
         mDataNamespace = castConfiguration.getNamespaces() == null ? null : castConfiguration.getNamespaces().get(0);
         Class<?> targetActivity = castConfiguration.getTargetActivity();
         if (targetActivity == null) {
@@ -242,13 +294,46 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         checkConnectivity();
         checkRemoteMediaPlayerAvailable();
         if (mRemoteMediaPlayer.getStreamDuration() > 0 || isRemoteStreamLive()) {
-            MediaInfo mediaInfo = getRemoteMediaInformation();
-            MediaMetadata mm = mediaInfo.getMetadata();
-            controller.setStreamType(mediaInfo.getStreamType());
+            MiniControllerModel model = getMiniControllerModel();
+            if (model != null) {
+                mMiniControllerBinder.bind(controller, model);
+            }
+        }
+    }
+
+    /*
+     * Returns the model shown by the mini controllers, which is built at most once per version of
+     * the state, or null if there is no media.
+     */
+    private MiniControllerModel getMiniControllerModel() {
+        CastState state = getCastState();
+        if (mMiniControllerModel == null || mMiniControllerModelVersion != state.getVersion()) {
+            MediaRenderModel renderModel = getRenderModel(state.getMediaInfo());
+            if (renderModel == null) {
+                return null;
+            }
+            if (mMiniControllerSubtitle == null
+                    || !TextUtils.equals(mMiniControllerSubtitleDevice, state.getDeviceName())) {
+                mMiniControllerSubtitleDevice = state.getDeviceName();
+                mMiniControllerSubtitle = mContext.getResources().getString(R.string.ccl_casting_to_device,
+                        mMiniControllerSubtitleDevice);
+            }
+            mMiniControllerModel = new MiniControllerModel(renderModel, state.getPlayerState(),
+                    state.getIdleReason(), mMiniControllerSubtitle);
+            mMiniControllerModelVersion = state.getVersion();
+        }
+        return mMiniControllerModel;
+    }
+
+    /*
+     * Re-applies the playback status to the mini controllers, which show their progress indicator
+     * on a click of their play/pause button, after a click that has not changed the state. They
+     * are unbound too, as they no longer show what was last bound to them.
+     */
+    private void resetMiniControllersPlaybackStatus() {
+        for (IMiniController controller : mMiniControllers.snapshot()) {
+            mMiniControllerBinder.unbind(controller);
             controller.setPlaybackStatus(mState, mIdleReason);
-            controller.setSubtitle(mContext.getResources().getString(R.string.ccl_casting_to_device, mDeviceName));
-            controller.setTitle(mm.getString(MediaMetadata.KEY_TITLE));
-            controller.setIcon(Utils.getImageUri(mediaInfo, 0));
         }
     }
 
@@ -256,13 +341,11 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * Updates the information and state of all MiniControllers
      */
     private void updateMiniControllers() {
-        synchronized (mMiniControllers) {
-            for (final IMiniController controller : mMiniControllers) {
-                try {
-                    updateMiniController(controller);
-                } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-                    LOGE(TAG, "updateMiniControllers() Failed to update mini controller", e);
-                }
+        for (IMiniController controller : mMiniControllers.snapshot()) {
+            try {
+                updateMiniController(controller);
+            } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+                LOGE(TAG, "updateMiniControllers() Failed to update mini controller", e);
             }
         }
     }
@@ -286,6 +369,9 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             if ((mState == MediaStatus.PLAYER_STATE_PAUSED && !isLive) || (mState == MediaStatus.PLAYER_STATE_IDLE &&
                     isLive)) {
                 play();
+            } else {
+                // nothing to do, so no status update will hide the progress of the mini controllers
+                resetMiniControllersPlaybackStatus();
             }
         }
     }
@@ -304,17 +390,25 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     }
 
     @Override
-    public void onUpcomingPlayClicked(View view, MediaQueueItem upcomingItem) {
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onUpcomingPlayClicked(view, upcomingItem);
-        }
+    public void onUpcomingPlayClicked(final View view, final MediaQueueItem upcomingItem) {
+        dispatch(ConsumerEvents.EVENT_UPCOMING_PLAY_CLICKED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onUpcomingPlayClicked(view, upcomingItem);
+            }
+        });
     }
 
     @Override
-    public void onUpcomingStopClicked(View view, MediaQueueItem upcomingItem) {
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onUpcomingStopClicked(view, upcomingItem);
-        }
+    public void onUpcomingStopClicked(final View view, final MediaQueueItem upcomingItem) {
+        dispatch(ConsumerEvents.EVENT_UPCOMING_STOP_CLICKED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onUpcomingStopClicked(view, upcomingItem);
+            }
+        });
     }
 
     /**
@@ -325,19 +419,16 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void updateMiniControllersVisibility(boolean visible) {
         LOGD(TAG, "updateMiniControllersVisibility() reached with visibility: " + visible);
-        synchronized (mMiniControllers) {
-            for (IMiniController controller : mMiniControllers) {
-                controller.setVisibility(visible ? View.VISIBLE : View.GONE);
-            }
+        for (IMiniController controller : mMiniControllers.snapshot()) {
+            controller.setVisibility(visible ? View.VISIBLE : View.GONE);
         }
+        mProgressClock.refresh();
     }
 
     public void updateMiniControllersVisibilityForUpcoming(MediaQueueItem item) {
-        synchronized (mMiniControllers) {
-            for (IMiniController controller : mMiniControllers) {
-                controller.setUpcomingItem(item);
-                controller.setUpcomingVisibility(item != null);
-            }
+        for (IMiniController controller : mMiniControllers.snapshot()) {
+            controller.setUpcomingItem(item);
+            controller.setUpcomingVisibility(item != null);
         }
     }
 
@@ -507,6 +598,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public final void setVolumeType(VolumeType volumeType) {
         mVolumeType = volumeType;
+        mVolumeCoalescer.reset();
     }
 
     /**
@@ -583,6 +675,13 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public double getVolume() throws TransientNetworkDisconnectionException, NoConnectionException {
         checkConnectivity();
+        return mVolumeCoalescer.getVolume(getReportedVolume());
+    }
+
+    /*
+     * Returns the volume last reported by the receiver, of the type that is in use.
+     */
+    private double getReportedVolume() throws TransientNetworkDisconnectionException, NoConnectionException {
         if (mVolumeType == VolumeType.STREAM) {
             checkRemoteMediaPlayerAvailable();
             return mRemoteMediaPlayer.getMediaStatus().getStreamVolume();
@@ -592,7 +691,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
 
     /**
      * Sets the volume. It internally determines if this should be done for <code>stream</code> or
-     * <code>device</code> volume.
+     * <code>device</code> volume. Successive calls are merged so that there is at most one request
+     * in flight; in the meantime, {@link #getVolume()} returns the requested volume.
      *
      * @param volume Should be a value between 0 and 1, inclusive.
      * @throws NoConnectionException
@@ -603,26 +703,34 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     public void setVolume(double volume) throws CastException, TransientNetworkDisconnectionException,
             NoConnectionException {
         checkConnectivity();
-        if (volume > 1.0) {
-            volume = 1.0;
-        } else if (volume < 0) {
-            volume = 0.0;
-        }
         if (mVolumeType == VolumeType.STREAM) {
             checkRemoteMediaPlayerAvailable();
-            mRemoteMediaPlayer.setStreamVolume(mApiClient, volume)
-                    .setResultCallback(new ResultCallback<RemoteMediaPlayer.MediaChannelResult>() {
+        }
+        mVolumeCoalescer.setVolume(volume);
+    }
 
-                        @Override
-                        public void onResult(MediaChannelResult result) {
-                            if (!result.getStatus().isSuccess()) {
-                                onFailed(R.string.ccl_failed_setting_volume, result.getStatus().getStatusCode());
-                            }
-                        }
-                    });
-        } else {
-            setDeviceVolume(volume);
+    /**
+     * Sets the volume and returns the pending outcome of the request. Unlike
+     * {@link #setVolume(double)}, the volume is sent right away and is not merged with other
+     * changes. The device volume has no result, so the returned future completes as soon as it
+     * has been sent.
+     *
+     * @param volume Should be a value between 0 and 1, inclusive.
+     * @throws NoConnectionException
+     * @throws TransientNetworkDisconnectionException
+     * @throws CastException                          If setting system volume fails
+     */
+    public MediaCommandFuture setVolumeAsync(double volume) throws CastException,
+            TransientNetworkDisconnectionException, NoConnectionException {
+        checkConnectivity();
+        volume = Math.max(0, Math.min(1, volume));
+        if (mVolumeType == VolumeType.STREAM) {
+            checkRemoteMediaPlayerAvailable();
+            return reportFailure(newCommand(mRemoteMediaPlayer.setStreamVolume(mApiClient, volume)),
+                    R.string.ccl_failed_setting_volume);
         }
+        setDeviceVolume(volume);
+        return MediaCommandFuture.completed(CastStatusCodes.SUCCESS, mCommandExecutor);
     }
 
     /**
@@ -637,13 +745,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     public void adjustVolume(double delta) throws CastException, TransientNetworkDisconnectionException,
             NoConnectionException {
         checkConnectivity();
-        double vol = getVolume() + delta;
-        if (vol > 1) {
-            vol = 1;
-        } else if (vol < 0) {
-            vol = 0;
-        }
-        setVolume(vol);
+        mVolumeCoalescer.adjustVolume(delta, getReportedVolume());
     }
 
     /**
@@ -683,13 +785,27 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void setMute(boolean mute) throws CastException, TransientNetworkDisconnectionException,
             NoConnectionException {
+        setMuteAsync(mute);
+    }
+
+    /**
+     * Same as {@link #setMute(boolean)}, but returns the pending outcome of the request. The device
+     * volume has no result, so the returned future completes as soon as it has been sent.
+     *
+     * @throws CastException
+     * @throws NoConnectionException
+     * @throws TransientNetworkDisconnectionException
+     */
+    public MediaCommandFuture setMuteAsync(boolean mute) throws CastException, TransientNetworkDisconnectionException,
+            NoConnectionException {
         checkConnectivity();
         if (mVolumeType == VolumeType.STREAM) {
             checkRemoteMediaPlayerAvailable();
-            mRemoteMediaPlayer.setStreamMute(mApiClient, mute);
-        } else {
-            setDeviceMute(mute);
+            return reportFailure(newCommand(mRemoteMediaPlayer.setStreamMute(mApiClient, mute)),
+                    R.string.ccl_failed_setting_volume);
         }
+        setDeviceMute(mute);
+        return MediaCommandFuture.completed(CastStatusCodes.SUCCESS, mCommandExecutor);
     }
 
     /**
@@ -742,6 +858,9 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         if (!isFeatureEnabled(CastConfiguration.FEATURE_NOTIFICATION)) {
             return;
         }
+        if (!getServiceCoordinator().shouldStartNotification(!mUiVisible)) {
+            return;
+        }
         LOGD(TAG, "startNotificationService()");
         Intent service = new Intent(mContext, mNotificationServiceClass);
         service.setPackage(mContext.getPackageName());
@@ -755,7 +874,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
 
     private void stopNotificationService() {
         LOGD(TAG, "stopNotificationService()");
-        if (!isFeatureEnabled(CastConfiguration.FEATURE_NOTIFICATION)) {
+        if (!isFeatureEnabled(CastConfiguration.FEATURE_NOTIFICATION)
+                || !getServiceCoordinator().shouldStopNotification()) {
             return;
         }
         if (mContext != null) {
@@ -763,16 +883,29 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         }
     }
 
-    private void onApplicationDisconnected(int errorCode) {
+    /**
+     * Signals that the notification service has been destroyed. Clients should not call this
+     * directly.
+     */
+    public void onNotificationServiceStopped() {
+        LOGD(TAG, "onNotificationServiceStopped() reached");
+        getServiceCoordinator().onNotificationStopped();
+    }
+
+    private void onApplicationDisconnected(final int errorCode) {
         LOGD(TAG, "onApplicationDisconnected() reached with error code: " + errorCode);
         mApplicationErrorCode = errorCode;
         updateMediaSession(false);
         if (mMediaSessionCompat != null && isFeatureEnabled(CastConfiguration.FEATURE_LOCKSCREEN)) {
             mMediaRouter.setMediaSessionCompat(null);
         }
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onApplicationDisconnected(errorCode);
-        }
+        dispatch(ConsumerEvents.EVENT_APPLICATION_DISCONNECTED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onApplicationDisconnected(errorCode);
+            }
+        });
         if (mMediaRouter != null) {
             LOGD(TAG, "onApplicationDisconnected(): Cached RouteInfo: " + getRouteInfo());
             LOGD(TAG, "onApplicationDisconnected(): Selected RouteInfo: " + mMediaRouter.getSelectedRoute());
@@ -787,15 +920,20 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     }
 
     private void onApplicationStatusChanged() {
-        if (!isConnected()) {
+        if (!isConnected() || !hasConsumers(ConsumerEvents.EVENT_APPLICATION_STATUS_CHANGED)) {
             return;
         }
         try {
-            String appStatus = Cast.CastApi.getApplicationStatus(mApiClient);
+            final String appStatus = Cast.CastApi.getApplicationStatus(mApiClient);
             LOGD(TAG, "onApplicationStatusChanged() reached: " + appStatus);
-            for (VideoCastConsumer consumer : mVideoConsumers) {
-                consumer.onApplicationStatusChanged(appStatus);
-            }
+            dispatch(ConsumerEvents.EVENT_APPLICATION_STATUS_CHANGED,
+                    new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                        @Override
+                        public void deliver(VideoCastConsumer consumer) {
+                            consumer.onApplicationStatusChanged(appStatus);
+                        }
+                    });
         } catch (IllegalStateException e) {
             LOGE(TAG, "onApplicationStatusChanged()", e);
         }
@@ -803,13 +941,22 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
 
     private void onVolumeChanged() {
         LOGD(TAG, "onVolumeChanged() reached");
-        double volume;
+        boolean observed = mVolumeData.hasObservers() || mMuteData.hasObservers();
+        if (!observed && !hasConsumers(ConsumerEvents.EVENT_VOLUME_CHANGED)) {
+            return;
+        }
         try {
-            volume = getVolume();
-            boolean isMute = isMute();
-            for (VideoCastConsumer consumer : mVideoConsumers) {
-                consumer.onVolumeChanged(volume, isMute);
-            }
+            final double volume = getVolume();
+            final boolean isMute = isMute();
+            mVolumeData.update(volume);
+            mMuteData.update(isMute);
+            dispatch(ConsumerEvents.EVENT_VOLUME_CHANGED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                @Override
+                public void deliver(VideoCastConsumer consumer) {
+                    consumer.onVolumeChanged(volume, isMute);
+                }
+            });
         } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
             LOGE(TAG, "Failed to get volume", e);
         }
@@ -817,8 +964,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     }
 
     @Override
-    protected void onApplicationConnected(ApplicationMetadata appMetadata, String applicationStatus, String
-            sessionId, boolean wasLaunched) {
+    protected void onApplicationConnected(final ApplicationMetadata appMetadata, String applicationStatus, String
+            sessionId, final boolean wasLaunched) {
         LOGD(TAG, "onApplicationConnected() reached with sessionId: " + sessionId + ", and mReconnectionStatus=" +
                 mReconnectionStatus);
         mApplicationErrorCode = NO_APPLICATION_ERROR;
@@ -833,6 +980,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                         // found the right route
                         LOGD(TAG, "Found the correct route during reconnection attempt");
                         mReconnectionStatus = RECONNECTION_STATUS_FINALIZED;
+                        publishState();
                         mMediaRouter.selectRoute(routeInfo);
                         break;
                     }
@@ -844,22 +992,18 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             attachDataChannel();
             attachMediaChannel();
             mSessionId = sessionId;
+            publishState();
             // saving device for future retrieval; we only save the last session info
             mPreferenceAccessor.saveStringToPreference(PREFS_KEY_SESSION_ID, mSessionId);
-            mRemoteMediaPlayer.requestStatus(mApiClient).
-                    setResultCallback(new ResultCallback<RemoteMediaPlayer.MediaChannelResult>() {
-
-                        @Override
-                        public void onResult(MediaChannelResult result) {
-                            if (!result.getStatus().isSuccess()) {
-                                onFailed(R.string.ccl_failed_status_request, result.getStatus().getStatusCode());
-                            }
+            requestStatusAsync();
+            final String connectedSessionId = mSessionId;
+            dispatch(ConsumerEvents.EVENT_APPLICATION_CONNECTED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
 
-                        }
-                    });
-            for (VideoCastConsumer consumer : mVideoConsumers) {
-                consumer.onApplicationConnected(appMetadata, mSessionId, wasLaunched);
-            }
+                @Override
+                public void deliver(VideoCastConsumer consumer) {
+                    consumer.onApplicationConnected(appMetadata, connectedSessionId, wasLaunched);
+                }
+            });
         } catch (TransientNetworkDisconnectionException e) {
             LOGE(TAG, "Failed to attach media/data channel due to network issues", e);
             onFailed(R.string.ccl_failed_no_connection_trans, NO_STATUS_CODE);
@@ -887,14 +1031,18 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * @see com.google.android.gms.cast.CastClient.Listener#onApplicationStopFailed (int)
      */
     @Override
-    public void onApplicationStopFailed(int errorCode) {
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onApplicationStopFailed(errorCode);
-        }
+    public void onApplicationStopFailed(final int errorCode) {
+        dispatch(ConsumerEvents.EVENT_APPLICATION_STOP_FAILED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onApplicationStopFailed(errorCode);
+            }
+        });
     }
 
     @Override
-    public void onApplicationConnectionFailed(int errorCode) {
+    public void onApplicationConnectionFailed(final int errorCode) {
         LOGD(TAG, "onApplicationConnectionFailed() reached with errorCode: " + errorCode);
         mApplicationErrorCode = errorCode;
         if (mReconnectionStatus == RECONNECTION_STATUS_IN_PROGRESS) {
@@ -902,12 +1050,18 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                 // while trying to re-establish session, we found out that the app is not running
                 // so we need to disconnect
                 mReconnectionStatus = RECONNECTION_STATUS_INACTIVE;
+                publishState();
                 onDeviceSelected(null /* CastDevice */, null /* RouteInfo */);
             }
         } else {
-            for (VideoCastConsumer consumer : mVideoConsumers) {
-                consumer.onApplicationConnectionFailed(errorCode);
-            }
+            dispatch(ConsumerEvents.EVENT_APPLICATION_CONNECTION_FAILED,
+                    new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                        @Override
+                        public void deliver(VideoCastConsumer consumer) {
+                            consumer.onApplicationConnectionFailed(errorCode);
+                        }
+                    });
             onDeviceSelected(null /* CastDevice */, null /* RouteInfo */);
             if (mMediaRouter != null) {
                 LOGD(TAG, "onApplicationConnectionFailed(): Setting route to default");
@@ -962,26 +1116,50 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void loadMedia(MediaInfo media, final long[] activeTracks, boolean autoPlay, int position, JSONObject
             customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        if (media == null) {
+            LOGD(TAG, "loadMedia");
+            checkConnectivity();
+            return;
+        }
+        loadMediaAsync(media, activeTracks, autoPlay, position, customData);
+    }
+
+    /**
+     * Same as {@link #loadMedia(MediaInfo, long[], boolean, int, JSONObject)}, but returns the
+     * pending outcome of the command.
+     *
+     * @throws NoConnectionException
+     * @throws TransientNetworkDisconnectionException
+     * @throws IllegalArgumentException if {@code media} is {@code null}
+     */
+    public MediaCommandFuture loadMediaAsync(MediaInfo media, final long[] activeTracks, boolean autoPlay,
+            int position, JSONObject customData) throws TransientNetworkDisconnectionException,
+            NoConnectionException {
         LOGD(TAG, "loadMedia");
         checkConnectivity();
         if (media == null) {
-            return;
+            throw new IllegalArgumentException("media cannot be null");
         }
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to load a video with no active media session");
             throw new NoConnectionException();
         }
 
-        mRemoteMediaPlayer.load(mApiClient, media, autoPlay, position, activeTracks, customData)
-                .setResultCallback(new ResultCallback<RemoteMediaPlayer.MediaChannelResult>() {
+        return newCommand(mRemoteMediaPlayer.load(mApiClient, media, autoPlay, position, activeTracks, customData))
+                .addCallback(new MediaCommandFuture.Callback() {
 
                     @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaLoadResult(result.getStatus().getStatusCode());
-                        }
+                    public void onComplete(MediaCommandFuture future, final MediaChannelResult result) {
+                        dispatch(ConsumerEvents.EVENT_MEDIA_LOAD_RESULT,
+                                new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                                    @Override
+                                    public void deliver(VideoCastConsumer consumer) {
+                                        consumer.onMediaLoadResult(result.getStatus().getStatusCode());
+                                    }
+                                });
                     }
-                });
+                }, MediaCommandFuture.DIRECT_EXECUTOR);
     }
 
     /**
@@ -1012,26 +1190,152 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueLoad(final MediaQueueItem[] items, final int startIndex, final int repeatMode, final JSONObject
             customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        if (items == null || items.length == 0) {
+            LOGD(TAG, "queueLoad");
+            checkConnectivity();
+            return;
+        }
+        queueLoadAsync(items, startIndex, repeatMode, customData);
+    }
+
+    /**
+     * Same as {@link #queueLoad(MediaQueueItem[], int, int, JSONObject)}, but returns the pending
+     * outcome of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException if {@code items} is {@code null} or empty
+     */
+    public MediaCommandFuture queueLoadAsync(final MediaQueueItem[] items, final int startIndex,
+            final int repeatMode, final JSONObject customData) throws TransientNetworkDisconnectionException,
+            NoConnectionException {
         LOGD(TAG, "queueLoad");
         checkConnectivity();
         if (items == null || items.length == 0) {
-            return;
+            throw new IllegalArgumentException("items cannot be empty or null");
         }
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to queue one or more videos with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueLoad(mApiClient, items, startIndex, repeatMode, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueLoad(mApiClient, items, startIndex,
+                repeatMode, customData)), QUEUE_OPERATION_LOAD);
+    }
+
+    /**
+     * Loads a large queue in windows, so that the playback starts as soon as the first items are
+     * loaded, regardless of the length of the queue.
+     * <p>
+     * A window of items around {@code startIndex} is loaded first; the remaining items are then
+     * inserted in the background, in batches that fit in a single message. Until all the items
+     * have been inserted, {@link #getMediaQueue()} reports the whole queue, including the items
+     * that the receiver does not have yet (these have no item id). Loading another queue, syncing
+     * the queue or an edit by another sender stops the background insertions.
+     * <p>
+     * Queues that fit in a single window are loaded with
+     * {@link #queueLoad(MediaQueueItem[], int, int, JSONObject)}.
+     *
+     * @param items      Array of items to load, in the order that they should be played. Must not be
+     *                   {@code null} or empty.
+     * @param startIndex The index of the item in {@code items} that should be played first.
+     * @param repeatMode The repeat playback mode for the queue.
+     * @param customData Custom application-specific data to pass along with the requests, may be
+     *                   {@code null}.
+     * @return The pending outcome of the whole load; the playback starts once the first window has
+     * been loaded.
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueLoadWindowed(MediaQueueItem[] items, int startIndex, int repeatMode,
+            final JSONObject customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        LOGD(TAG, "queueLoadWindowed");
+        checkConnectivity();
+        if (items == null || items.length == 0) {
+            throw new IllegalArgumentException("items cannot be empty or null");
+        }
+        cancelWindowedQueueLoad();
+        final WindowedQueueLoader loader = new WindowedQueueLoader(items, startIndex);
+        if (!loader.isWindowed()) {
+            return queueLoadAsync(items, startIndex, repeatMode, customData);
+        }
+        MediaCommandFuture result = queueLoadAsync(loader.getWindow(), loader.getStartIndexInWindow(),
+                repeatMode, customData).addCallback(new MediaCommandFuture.Callback() {
 
                     @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_LOAD, result.getStatus()
-                                    .getStatusCode());
+                    public void onComplete(MediaCommandFuture future, MediaChannelResult result) {
+                        if (result.getStatus().isSuccess()) {
+                            loader.onWindowLoaded();
                         }
                     }
-                });
+                }, MediaCommandFuture.DIRECT_EXECUTOR);
+        mWindowedQueueLoader = loader;
+        // each batch is built once the previous one has been inserted
+        result = result.then(new MediaCommandFuture.Continuation() {
+
+            @Override
+            public MediaCommandFuture then(MediaChannelResult result) throws
+                    TransientNetworkDisconnectionException, NoConnectionException {
+                WindowedQueueLoader.Batch batch = loader.nextBatch();
+                if (batch == null) {
+                    return MediaCommandFuture.completed(CastStatusCodes.SUCCESS, mCommandExecutor);
+                }
+                return insertWindowedBatch(loader, batch, customData).then(this,
+                        MediaCommandFuture.DIRECT_EXECUTOR);
+            }
+        }, MediaCommandFuture.DIRECT_EXECUTOR);
+        mWindowedQueueLoad = result;
+        return result.addCallback(new MediaCommandFuture.Callback() {
+
+            @Override
+            public void onComplete(MediaCommandFuture future, MediaChannelResult result) {
+                LOGD(TAG, "queueLoadWindowed() completed with status " + result.getStatus()
+                        + " in " + future.getLatencyMillis() + "ms");
+                if (mWindowedQueueLoader == loader) {
+                    mWindowedQueueLoader = null;
+                    mWindowedQueueLoad = null;
+                }
+            }
+        }, MediaCommandFuture.DIRECT_EXECUTOR);
+    }
+
+    private MediaCommandFuture insertWindowedBatch(final WindowedQueueLoader loader,
+            final WindowedQueueLoader.Batch batch, JSONObject customData)
+            throws TransientNetworkDisconnectionException, NoConnectionException {
+        checkConnectivity();
+        if (mRemoteMediaPlayer == null) {
+            throw new NoConnectionException();
+        }
+        int insertBeforeItemId = MediaQueueItem.INVALID_ITEM_ID;
+        if (batch.mPrepend) {
+            MediaStatus status = mRemoteMediaPlayer.getMediaStatus();
+            List<MediaQueueItem> queueItems = status == null ? null : status.getQueueItems();
+            if (queueItems == null || queueItems.isEmpty()) {
+                LOGE(TAG, "insertWindowedBatch(): the queue is gone");
+                return MediaCommandFuture.completed(CastStatusCodes.INVALID_REQUEST, mCommandExecutor);
+            }
+            insertBeforeItemId = queueItems.get(0).getItemId();
+        }
+        loader.onBatchSent(batch);
+        return queueInsertItemsAsync(batch.mItems, insertBeforeItemId, customData)
+                .addCallback(new MediaCommandFuture.Callback() {
+
+                    @Override
+                    public void onComplete(MediaCommandFuture future, MediaChannelResult result) {
+                        if (result.getStatus().isSuccess()) {
+                            loader.onBatchCompleted(batch);
+                        }
+                    }
+                }, MediaCommandFuture.DIRECT_EXECUTOR);
+    }
+
+    private void cancelWindowedQueueLoad() {
+        MediaCommandFuture load = mWindowedQueueLoad;
+        mWindowedQueueLoader = null;
+        mWindowedQueueLoad = null;
+        if (load != null) {
+            load.cancel(false);
+        }
     }
 
     /**
@@ -1053,6 +1357,20 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueInsertItems(final MediaQueueItem[] itemsToInsert, final int insertBeforeItemId, final JSONObject
             customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        queueInsertItemsAsync(itemsToInsert, insertBeforeItemId, customData);
+    }
+
+    /**
+     * Same as {@link #queueInsertItems(MediaQueueItem[], int, JSONObject)}, but returns the pending
+     * outcome of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueInsertItemsAsync(final MediaQueueItem[] itemsToInsert,
+            final int insertBeforeItemId, final JSONObject customData)
+            throws TransientNetworkDisconnectionException, NoConnectionException {
         LOGD(TAG, "queueInsertItems");
         checkConnectivity();
         if (itemsToInsert == null || itemsToInsert.length == 0) {
@@ -1062,17 +1380,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to insert into queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueInsertItems(mApiClient, itemsToInsert, insertBeforeItemId, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_INSERT_ITEMS, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueInsertItems(mApiClient, itemsToInsert,
+                insertBeforeItemId, customData)), QUEUE_OPERATION_INSERT_ITEMS);
     }
 
     /**
@@ -1091,23 +1400,25 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueUpdateItems(final MediaQueueItem[] itemsToUpdate, final JSONObject customData) throws
             TransientNetworkDisconnectionException, NoConnectionException {
+        queueUpdateItemsAsync(itemsToUpdate, customData);
+    }
+
+    /**
+     * Same as {@link #queueUpdateItems(MediaQueueItem[], JSONObject)}, but returns the pending
+     * outcome of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     */
+    public MediaCommandFuture queueUpdateItemsAsync(final MediaQueueItem[] itemsToUpdate,
+            final JSONObject customData) throws TransientNetworkDisconnectionException, NoConnectionException {
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to update the queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueUpdateItems(mApiClient, itemsToUpdate, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        LOGD(TAG, "queueUpdateItems() " + result.getStatus() + result.getStatus().isSuccess());
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_UPDATE_ITEMS, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueUpdateItems(mApiClient, itemsToUpdate,
+                customData)), QUEUE_OPERATION_UPDATE_ITEMS);
     }
 
     /**
@@ -1125,6 +1436,19 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueJumpToItem(int itemId, final JSONObject customData) throws
             TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
+        queueJumpToItemAsync(itemId, customData);
+    }
+
+    /**
+     * Same as {@link #queueJumpToItem(int, JSONObject)}, but returns the pending outcome of the
+     * command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueJumpToItemAsync(int itemId, final JSONObject customData) throws
+            TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
         checkConnectivity();
         if (itemId == MediaQueueItem.INVALID_ITEM_ID) {
             throw new IllegalArgumentException("itemId is not valid");
@@ -1133,17 +1457,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to jump in a queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueJumpToItem(mApiClient, itemId, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_JUMP, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueJumpToItem(mApiClient, itemId,
+                customData)), QUEUE_OPERATION_JUMP);
     }
 
     /**
@@ -1160,6 +1475,19 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueRemoveItems(final int[] itemIdsToRemove, final JSONObject customData) throws
             TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
+        queueRemoveItemsAsync(itemIdsToRemove, customData);
+    }
+
+    /**
+     * Same as {@link #queueRemoveItems(int[], JSONObject)}, but returns the pending outcome of the
+     * command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueRemoveItemsAsync(final int[] itemIdsToRemove, final JSONObject customData)
+            throws TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
         LOGD(TAG, "queueRemoveItems");
         checkConnectivity();
         if (itemIdsToRemove == null || itemIdsToRemove.length == 0) {
@@ -1169,17 +1497,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to remove items from queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueRemoveItems(mApiClient, itemIdsToRemove, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_REMOVE_ITEMS, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueRemoveItems(mApiClient, itemIdsToRemove,
+                customData)), QUEUE_OPERATION_REMOVE_ITEMS);
     }
 
     /**
@@ -1198,8 +1517,21 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueRemoveItem(final int itemId, final JSONObject customData) throws
             TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
-        LOGD(TAG, "queueRemoveItem");
-        checkConnectivity();
+        queueRemoveItemAsync(itemId, customData);
+    }
+
+    /**
+     * Same as {@link #queueRemoveItem(int, JSONObject)}, but returns the pending outcome of the
+     * command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueRemoveItemAsync(final int itemId, final JSONObject customData) throws
+            TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
+        LOGD(TAG, "queueRemoveItem");
+        checkConnectivity();
         if (itemId == MediaQueueItem.INVALID_ITEM_ID) {
             throw new IllegalArgumentException("itemId is invalid");
         }
@@ -1207,17 +1539,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to remove an item from queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueRemoveItem(mApiClient, itemId, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_REMOVE_ITEM, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueRemoveItem(mApiClient, itemId,
+                customData)), QUEUE_OPERATION_REMOVE_ITEM);
     }
 
     /**
@@ -1258,6 +1581,20 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueReorderItems(final int[] itemIdsToReorder, final int insertBeforeItemId, final JSONObject
             customData) throws TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
+        queueReorderItemsAsync(itemIdsToReorder, insertBeforeItemId, customData);
+    }
+
+    /**
+     * Same as {@link #queueReorderItems(int[], int, JSONObject)}, but returns the pending outcome of
+     * the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueReorderItemsAsync(final int[] itemIdsToReorder, final int insertBeforeItemId,
+            final JSONObject customData) throws TransientNetworkDisconnectionException, NoConnectionException,
+            IllegalArgumentException {
         LOGD(TAG, "queueReorderItems");
         checkConnectivity();
         if (itemIdsToReorder == null || itemIdsToReorder.length == 0) {
@@ -1267,17 +1604,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to reorder items in a queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueReorderItems(mApiClient, itemIdsToReorder, insertBeforeItemId, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_REORDER, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueReorderItems(mApiClient, itemIdsToReorder,
+                insertBeforeItemId, customData)), QUEUE_OPERATION_REORDER);
     }
 
     /**
@@ -1299,17 +1627,20 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueMoveItemToNewIndex(int itemId, int newIndex, final JSONObject customData) throws
             TransientNetworkDisconnectionException, NoConnectionException {
-        mRemoteMediaPlayer.queueMoveItemToNewIndex(mApiClient, itemId, newIndex, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
+        queueMoveItemToNewIndexAsync(itemId, newIndex, customData);
+    }
 
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_MOVE, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+    /**
+     * Same as {@link #queueMoveItemToNewIndex(int, int, JSONObject)}, but returns the pending
+     * outcome of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     */
+    public MediaCommandFuture queueMoveItemToNewIndexAsync(int itemId, int newIndex, final JSONObject customData)
+            throws TransientNetworkDisconnectionException, NoConnectionException {
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueMoveItemToNewIndex(mApiClient, itemId,
+                newIndex, customData)), QUEUE_OPERATION_MOVE);
     }
 
     /**
@@ -1323,17 +1654,20 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueAppendItem(MediaQueueItem item, final JSONObject customData) throws
             TransientNetworkDisconnectionException, NoConnectionException {
-        mRemoteMediaPlayer.queueAppendItem(mApiClient, item, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
+        queueAppendItemAsync(item, customData);
+    }
 
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_APPEND, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+    /**
+     * Same as {@link #queueAppendItem(MediaQueueItem, JSONObject)}, but returns the pending outcome
+     * of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     */
+    public MediaCommandFuture queueAppendItemAsync(MediaQueueItem item, final JSONObject customData) throws
+            TransientNetworkDisconnectionException, NoConnectionException {
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueAppendItem(mApiClient, item, customData)),
+                QUEUE_OPERATION_APPEND);
     }
 
     /**
@@ -1346,22 +1680,24 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueNext(final JSONObject customData) throws TransientNetworkDisconnectionException,
             NoConnectionException {
+        queueNextAsync(customData);
+    }
+
+    /**
+     * Same as {@link #queueNext(JSONObject)}, but returns the pending outcome of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     */
+    public MediaCommandFuture queueNextAsync(final JSONObject customData) throws
+            TransientNetworkDisconnectionException, NoConnectionException {
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to update the queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueNext(mApiClient, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_NEXT, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queueNext(mApiClient, customData)),
+                QUEUE_OPERATION_NEXT);
     }
 
     /**
@@ -1374,22 +1710,24 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queuePrev(final JSONObject customData) throws TransientNetworkDisconnectionException,
             NoConnectionException {
+        queuePrevAsync(customData);
+    }
+
+    /**
+     * Same as {@link #queuePrev(JSONObject)}, but returns the pending outcome of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     */
+    public MediaCommandFuture queuePrevAsync(final JSONObject customData) throws
+            TransientNetworkDisconnectionException, NoConnectionException {
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to update the queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queuePrev(mApiClient, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_PREV, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+        return reportQueueOperation(newCommand(mRemoteMediaPlayer.queuePrev(mApiClient, customData)),
+                QUEUE_OPERATION_PREV);
     }
 
     /**
@@ -1407,6 +1745,20 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueInsertBeforeCurrentAndPlay(MediaQueueItem item, int insertBeforeItemId, final JSONObject
             customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        queueInsertBeforeCurrentAndPlayAsync(item, insertBeforeItemId, customData);
+    }
+
+    /**
+     * Same as {@link #queueInsertBeforeCurrentAndPlay(MediaQueueItem, int, JSONObject)}, but
+     * returns the pending outcome of the whole operation, i.e. the insertion followed by the jump
+     * to the inserted item.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueInsertBeforeCurrentAndPlayAsync(MediaQueueItem item, int insertBeforeItemId,
+            final JSONObject customData) throws TransientNetworkDisconnectionException, NoConnectionException {
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to insert into queue with no active media session");
@@ -1415,25 +1767,89 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         if (item == null || insertBeforeItemId == MediaQueueItem.INVALID_ITEM_ID) {
             throw new IllegalArgumentException("item cannot be empty or insertBeforeItemId cannot be invalid");
         }
-        mRemoteMediaPlayer.queueInsertItems(mApiClient, new MediaQueueItem[]{item}, insertBeforeItemId, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
+        MediaCommandFuture insert = reportQueueOperation(newCommand(mRemoteMediaPlayer.queueInsertItems(mApiClient,
+                new MediaQueueItem[]{item}, insertBeforeItemId, customData)), QUEUE_OPERATION_INSERT_ITEMS);
+        return insert.then(new MediaCommandFuture.Continuation() {
 
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        if (result.getStatus().isSuccess()) {
+            @Override
+            public MediaCommandFuture then(MediaChannelResult result) throws
+                    TransientNetworkDisconnectionException, NoConnectionException {
+                return queuePrevAsync(customData);
+            }
+        }, MediaCommandFuture.DIRECT_EXECUTOR);
+    }
 
-                            try {
-                                queuePrev(customData);
-                            } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-                                LOGE(TAG, "queuePrev() Failed to skip to previous", e);
-                            }
-                        }
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_INSERT_ITEMS, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+    /**
+     * Brings the queue of the receiver in line with the given list of items, with as few queue
+     * requests as possible.
+     * <p>
+     * Items are matched on the content id of their media. Items that are in both lists keep their
+     * item id, and are moved or updated rather than removed and inserted again, so the playback of
+     * the current item is not interrupted unless the item itself is no longer in the list. If there
+     * is no queue on the receiver, the items are loaded with
+     * {@link #queueLoad(MediaQueueItem[], int, int, JSONObject)}. An empty list removes all the
+     * items, which ends the media session.
+     * <p>
+     * The requests are sent one after the other; the returned future completes when the last one
+     * does, or fails with the first failure.
+     *
+     * @param items      The desired content of the queue, in order. The item ids are ignored.
+     * @param customData Custom application-specific data to pass along with the requests. May be
+     *                   {@code null}.
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     * @throws IllegalArgumentException
+     */
+    public MediaCommandFuture queueSync(List<MediaQueueItem> items, final JSONObject customData) throws
+            TransientNetworkDisconnectionException, NoConnectionException, IllegalArgumentException {
+        LOGD(TAG, "queueSync");
+        checkConnectivity();
+        if (items == null) {
+            throw new IllegalArgumentException("items cannot be null");
+        }
+        if (mRemoteMediaPlayer == null) {
+            LOGE(TAG, "Trying to sync the queue with no active media session");
+            throw new NoConnectionException();
+        }
+        cancelWindowedQueueLoad();
+        // the local queue may hold items that have not been sent yet, so diff against the receiver
+        MediaStatus status = mRemoteMediaPlayer.getMediaStatus();
+        List<MediaQueueItem> queueItems = status == null ? null : status.getQueueItems();
+        if (queueItems == null || queueItems.isEmpty()) {
+            if (items.isEmpty()) {
+                return MediaCommandFuture.completed(CastStatusCodes.SUCCESS, mCommandExecutor);
+            }
+            return queueLoadAsync(Utils.rebuildQueue(items), 0, MediaStatus.REPEAT_MODE_REPEAT_OFF, customData);
+        }
+        MediaCommandFuture result = MediaCommandFuture.completed(CastStatusCodes.SUCCESS, mCommandExecutor);
+        for (final QueueDiff.Operation operation : QueueDiff.compute(queueItems, items)) {
+            result = result.then(new MediaCommandFuture.Continuation() {
+
+                @Override
+                public MediaCommandFuture then(MediaChannelResult result) throws
+                        TransientNetworkDisconnectionException, NoConnectionException {
+                    return applyQueueOperation(operation, customData);
+                }
+            }, MediaCommandFuture.DIRECT_EXECUTOR);
+        }
+        return result;
+    }
+
+    private MediaCommandFuture applyQueueOperation(QueueDiff.Operation operation, JSONObject customData)
+            throws TransientNetworkDisconnectionException, NoConnectionException {
+        LOGD(TAG, "applyQueueOperation(): " + operation);
+        switch (operation.mType) {
+            case QueueDiff.OPERATION_REMOVE:
+                return queueRemoveItemsAsync(operation.mItemIds, customData);
+            case QueueDiff.OPERATION_REORDER:
+                return queueReorderItemsAsync(operation.mItemIds, operation.mInsertBeforeItemId, customData);
+            case QueueDiff.OPERATION_INSERT:
+                return queueInsertItemsAsync(operation.mItems, operation.mInsertBeforeItemId, customData);
+            case QueueDiff.OPERATION_UPDATE:
+                return queueUpdateItemsAsync(operation.mItems, customData);
+            default:
+                throw new IllegalArgumentException("Unknown queue operation: " + operation.mType);
+        }
     }
 
     /**
@@ -1447,25 +1863,35 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void queueSetRepeatMode(final int repeatMode, final JSONObject customData) throws
             TransientNetworkDisconnectionException, NoConnectionException {
+        queueSetRepeatModeAsync(repeatMode, customData);
+    }
+
+    /**
+     * Same as {@link #queueSetRepeatMode(int, JSONObject)}, but returns the pending outcome of the
+     * command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     */
+    public MediaCommandFuture queueSetRepeatModeAsync(final int repeatMode, final JSONObject customData) throws
+            TransientNetworkDisconnectionException, NoConnectionException {
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to update the queue with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.queueSetRepeatMode(mApiClient, repeatMode, customData)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
+        MediaCommandFuture command = newCommand(mRemoteMediaPlayer.queueSetRepeatMode(mApiClient, repeatMode,
+                customData));
+        command.addCallback(new MediaCommandFuture.Callback() {
 
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        if (!result.getStatus().isSuccess()) {
-                            LOGD(TAG, "Failed with status: " + result.getStatus());
-                        }
-                        for (VideoCastConsumer consumer : mVideoConsumers) {
-                            consumer.onMediaQueueOperationResult(QUEUE_OPERATION_SET_REPEAT, result.getStatus()
-                                    .getStatusCode());
-                        }
-                    }
-                });
+            @Override
+            public void onComplete(MediaCommandFuture future, MediaChannelResult result) {
+                if (!result.getStatus().isSuccess()) {
+                    LOGD(TAG, "Failed with status: " + result.getStatus());
+                }
+            }
+        }, MediaCommandFuture.DIRECT_EXECUTOR);
+        return reportQueueOperation(command, QUEUE_OPERATION_SET_REPEAT);
     }
 
     /**
@@ -1493,22 +1919,24 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * @throws TransientNetworkDisconnectionException
      */
     public void play(JSONObject customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        playAsync(customData);
+    }
+
+    /**
+     * Same as {@link #play(JSONObject)}, but returns the pending outcome of the command.
+     *
+     * @throws NoConnectionException
+     * @throws TransientNetworkDisconnectionException
+     */
+    public MediaCommandFuture playAsync(JSONObject customData) throws TransientNetworkDisconnectionException,
+            NoConnectionException {
         LOGD(TAG, "play(customData)");
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to play a video with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.play(mApiClient, customData).setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-            @Override
-            public void onResult(MediaChannelResult result) {
-                if (!result.getStatus().isSuccess()) {
-                    onFailed(R.string.ccl_failed_to_play, result.getStatus().getStatusCode());
-                }
-            }
-
-        });
+        return reportFailure(newCommand(mRemoteMediaPlayer.play(mApiClient, customData)), R.string.ccl_failed_to_play);
     }
 
     /**
@@ -1530,22 +1958,24 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * @throws NoConnectionException
      */
     public void stop(JSONObject customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        stopAsync(customData);
+    }
+
+    /**
+     * Same as {@link #stop(JSONObject)}, but returns the pending outcome of the command.
+     *
+     * @throws TransientNetworkDisconnectionException
+     * @throws NoConnectionException
+     */
+    public MediaCommandFuture stopAsync(JSONObject customData) throws TransientNetworkDisconnectionException,
+            NoConnectionException {
         LOGD(TAG, "stop()");
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to stop a stream with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.stop(mApiClient, customData).setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-            @Override
-            public void onResult(MediaChannelResult result) {
-                if (!result.getStatus().isSuccess()) {
-                    onFailed(R.string.ccl_failed_to_stop, result.getStatus().getStatusCode());
-                }
-            }
-
-        });
+        return reportFailure(newCommand(mRemoteMediaPlayer.stop(mApiClient, customData)), R.string.ccl_failed_to_stop);
     }
 
     /**
@@ -1578,22 +2008,25 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * @throws TransientNetworkDisconnectionException
      */
     public void pause(JSONObject customData) throws TransientNetworkDisconnectionException, NoConnectionException {
+        pauseAsync(customData);
+    }
+
+    /**
+     * Same as {@link #pause(JSONObject)}, but returns the pending outcome of the command.
+     *
+     * @throws NoConnectionException
+     * @throws TransientNetworkDisconnectionException
+     */
+    public MediaCommandFuture pauseAsync(JSONObject customData) throws TransientNetworkDisconnectionException,
+            NoConnectionException {
         LOGD(TAG, "attempting to pause media");
         checkConnectivity();
         if (mRemoteMediaPlayer == null) {
             LOGE(TAG, "Trying to pause a video with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.pause(mApiClient, customData).setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-            @Override
-            public void onResult(MediaChannelResult result) {
-                if (!result.getStatus().isSuccess()) {
-                    onFailed(R.string.ccl_failed_to_pause, result.getStatus().getStatusCode());
-                }
-            }
-
-        });
+        return reportFailure(newCommand(mRemoteMediaPlayer.pause(mApiClient, customData)),
+                R.string.ccl_failed_to_pause);
     }
 
     /**
@@ -1611,22 +2044,35 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to seek a video with no active media session");
             throw new NoConnectionException();
         }
-        mRemoteMediaPlayer.seek(mApiClient, position, RemoteMediaPlayer.RESUME_STATE_UNCHANGED).
-                setResultCallback(new ResultCallback<MediaChannelResult>() {
-
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        if (!result.getStatus().isSuccess()) {
-                            onFailed(R.string.ccl_failed_seek, result.getStatus().getStatusCode());
-                        }
-                    }
+        mSeekCoalescer.seekTo(position, RemoteMediaPlayer.RESUME_STATE_UNCHANGED);
+    }
 
-                });
+    /**
+     * Seeks to the given point and returns the pending outcome of the seek. Unlike
+     * {@link #seek(int)}, the seek is sent right away and is not merged with other seeks.
+     *
+     * @param position    in milliseconds
+     * @param resumeState One of {@link RemoteMediaPlayer#RESUME_STATE_UNCHANGED},
+     *                    {@link RemoteMediaPlayer#RESUME_STATE_PLAY} and
+     *                    {@link RemoteMediaPlayer#RESUME_STATE_PAUSE}
+     * @throws NoConnectionException
+     * @throws TransientNetworkDisconnectionException
+     */
+    public MediaCommandFuture seekAsync(int position, int resumeState) throws TransientNetworkDisconnectionException,
+            NoConnectionException {
+        LOGD(TAG, "attempting to seek media");
+        checkConnectivity();
+        if (mRemoteMediaPlayer == null) {
+            LOGE(TAG, "Trying to seek a video with no active media session");
+            throw new NoConnectionException();
+        }
+        return reportFailure(newCommand(mRemoteMediaPlayer.seek(mApiClient, position, resumeState)),
+                R.string.ccl_failed_seek);
     }
 
     /**
      * Fast forwards the media by the given amount. If {@code lengthInMillis} is negative, it
-     * rewinds the media.
+     * rewinds the media. Repeated calls in a short period are merged into a single seek.
      *
      * @param lengthInMillis The amount to fast forward the media, given in milliseconds
      * @throws TransientNetworkDisconnectionException
@@ -1639,8 +2085,8 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to seek a video with no active media session");
             throw new NoConnectionException();
         }
-        long position = mRemoteMediaPlayer.getApproximateStreamPosition() + lengthInMillis;
-        seek((int) position);
+        mSeekCoalescer.seekBy(lengthInMillis, mRemoteMediaPlayer.getApproximateStreamPosition(),
+                mRemoteMediaPlayer.getStreamDuration());
     }
 
     /**
@@ -1657,18 +2103,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             LOGE(TAG, "Trying to seekAndPlay a video with no active media session");
             throw new NoConnectionException();
         }
-        ResultCallback<MediaChannelResult> resultCallback = new ResultCallback<MediaChannelResult>() {
-
-            @Override
-            public void onResult(MediaChannelResult result) {
-                if (!result.getStatus().isSuccess()) {
-                    onFailed(R.string.ccl_failed_seek, result.getStatus().getStatusCode());
-                }
-            }
-
-        };
-        mRemoteMediaPlayer.seek(mApiClient, position, RemoteMediaPlayer.RESUME_STATE_PLAY)
-                .setResultCallback(resultCallback);
+        mSeekCoalescer.seekTo(position, RemoteMediaPlayer.RESUME_STATE_PLAY);
     }
 
     /**
@@ -1692,6 +2127,69 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         }
     }
 
+    /**
+     * Asks the receiver for the current media status and returns the pending outcome of the
+     * request; the status itself is reported through the consumers.
+     *
+     * @throws NoConnectionException
+     * @throws TransientNetworkDisconnectionException
+     */
+    public MediaCommandFuture requestStatusAsync() throws TransientNetworkDisconnectionException,
+            NoConnectionException {
+        checkConnectivity();
+        checkRemoteMediaPlayerAvailable();
+        return reportFailure(newCommand(mRemoteMediaPlayer.requestStatus(mApiClient)),
+                R.string.ccl_failed_status_request);
+    }
+
+    /**
+     * Sets the executor on which the callbacks and continuations of the {@link MediaCommandFuture}s
+     * returned by this class run, unless another executor is given when they are registered. By
+     * default, they run on the main thread. Passing {@code null} restores the default.
+     */
+    public void setCommandExecutor(Executor executor) {
+        mCommandExecutor = executor == null ? MediaCommandFuture.MAIN_THREAD_EXECUTOR : executor;
+    }
+
+    private MediaCommandFuture newCommand(PendingResult<MediaChannelResult> pendingResult) {
+        return MediaCommandFuture.of(pendingResult, mCommandExecutor);
+    }
+
+    /*
+     * Reports the outcome of a queue command to the consumers.
+     */
+    private MediaCommandFuture reportQueueOperation(MediaCommandFuture command, final int operationId) {
+        return command.addCallback(new MediaCommandFuture.Callback() {
+
+            @Override
+            public void onComplete(MediaCommandFuture future, final MediaChannelResult result) {
+                dispatch(ConsumerEvents.EVENT_MEDIA_QUEUE_OPERATION_RESULT,
+                        new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                            @Override
+                            public void deliver(VideoCastConsumer consumer) {
+                                consumer.onMediaQueueOperationResult(operationId, result.getStatus().getStatusCode());
+                            }
+                        });
+            }
+        }, MediaCommandFuture.DIRECT_EXECUTOR);
+    }
+
+    /*
+     * Reports a failure of a playback command, unless it was cancelled by the caller.
+     */
+    private MediaCommandFuture reportFailure(MediaCommandFuture command, final int resourceId) {
+        return command.addCallback(new MediaCommandFuture.Callback() {
+
+            @Override
+            public void onComplete(MediaCommandFuture future, MediaChannelResult result) {
+                if (!result.getStatus().isSuccess() && !future.isCancelled()) {
+                    onFailed(resourceId, result.getStatus().getStatusCode());
+                }
+            }
+        }, MediaCommandFuture.DIRECT_EXECUTOR);
+    }
+
     private void attachMediaChannel() throws TransientNetworkDisconnectionException, NoConnectionException {
         LOGD(TAG, "attachMediaChannel()");
         checkConnectivity();
@@ -1741,6 +2239,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                     } else {
                         onQueueUpdated(null, null, MediaStatus.REPEAT_MODE_REPEAT_OFF, false);
                     }
+                    publishState();
                 }
             });
 
@@ -1776,6 +2275,14 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             }
             mRemoteMediaPlayer = null;
         }
+        mLastStatusSnapshot = null;
+        mPreLoadingItem = null;
+        mPrefetcher.clear();
+        mRenderModel = null;
+        cancelWindowedQueueLoad();
+        mSeekCoalescer.reset();
+        mVolumeCoalescer.reset();
+        mProgressClock.clear();
     }
 
     /**
@@ -1838,10 +2345,14 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         mDataChannel = new MessageReceivedCallback() {
 
             @Override
-            public void onMessageReceived(CastDevice castDevice, String namespace, String message) {
-                for (VideoCastConsumer consumer : mVideoConsumers) {
-                    consumer.onDataMessageReceived(message);
-                }
+            public void onMessageReceived(CastDevice castDevice, String namespace, final String message) {
+                dispatch(ConsumerEvents.EVENT_DATA_MESSAGE_RECEIVED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                    @Override
+                    public void deliver(VideoCastConsumer consumer) {
+                        consumer.onDataMessageReceived(message);
+                    }
+                });
             }
         };
         try {
@@ -1861,10 +2372,14 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         }
     }
 
-    private void onMessageSendFailed(int errorCode) {
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onDataMessageSendFailed(errorCode);
-        }
+    private void onMessageSendFailed(final int errorCode) {
+        dispatch(ConsumerEvents.EVENT_DATA_MESSAGE_SEND_FAILED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onDataMessageSendFailed(errorCode);
+            }
+        });
     }
 
     /**
@@ -1928,98 +2443,164 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             return;
         }
         mMediaStatus = mRemoteMediaPlayer.getMediaStatus();
-        List<MediaQueueItem> queueItems = mMediaStatus.getQueueItems();
-        if (queueItems != null) {
-            int itemId = mMediaStatus.getCurrentItemId();
-            MediaQueueItem item = mMediaStatus.getQueueItemById(itemId);
-            int repeatMode = mMediaStatus.getQueueRepeatMode();
-            onQueueUpdated(queueItems, item, repeatMode, false);
-        } else {
-            onQueueUpdated(null, null, MediaStatus.REPEAT_MODE_REPEAT_OFF, false);
+        MediaStatusSnapshot snapshot;
+        try {
+            snapshot = new MediaStatusSnapshot(mMediaStatus, getVolume(), isMute());
+        } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+            LOGE(TAG, "Failed to get volume state due to network issues", e);
+            return;
+        }
+        int changes = snapshot.diff(mLastStatusSnapshot);
+        mLastStatusSnapshot = snapshot;
+        mVolumeData.update(snapshot.getVolume());
+        mMuteData.update(snapshot.isMute());
+        mProgressClock.anchor(mMediaStatus.getStreamPosition(), mRemoteMediaPlayer.getStreamDuration(),
+                mMediaStatus.getPlayerState(), mMediaStatus.getPlaybackRate(),
+                MediaStatusSnapshot.hasChanged(changes, MediaStatusSnapshot.FIELD_PLAYER_STATE
+                        | MediaStatusSnapshot.FIELD_CURRENT_ITEM | MediaStatusSnapshot.FIELD_POSITION));
+        if (changes == 0) {
+            LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): no relevant changes, skipping");
+            return;
+        }
+        mState = mMediaStatus.getPlayerState();
+        mIdleReason = mMediaStatus.getIdleReason();
+        if (MediaStatusSnapshot.hasChanged(changes, MediaStatusSnapshot.FIELD_QUEUE)) {
+            List<MediaQueueItem> queueItems = mMediaStatus.getQueueItems();
+            if (queueItems != null) {
+                int itemId = mMediaStatus.getCurrentItemId();
+                MediaQueueItem item = mMediaStatus.getQueueItemById(itemId);
+                int repeatMode = mMediaStatus.getQueueRepeatMode();
+                onQueueUpdated(queueItems, item, repeatMode, false);
+            } else {
+                onQueueUpdated(null, null, MediaStatus.REPEAT_MODE_REPEAT_OFF, false);
+            }
+        }
+        publishState();
+
+        if (MediaStatusSnapshot.hasChanged(changes, MediaStatusSnapshot.FIELD_PLAYER_STATE
+                | MediaStatusSnapshot.FIELD_IDLE_REASON | MediaStatusSnapshot.FIELD_CURRENT_ITEM
+                | MediaStatusSnapshot.FIELD_POSITION)) {
+            try {
+                updatePlaybackState();
+            } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+                LOGE(TAG, "Failed to update the playback state due to network issues", e);
+            }
+        }
+
+        if (MediaStatusSnapshot.hasChanged(changes,
+                ~(MediaStatusSnapshot.FIELD_VOLUME | MediaStatusSnapshot.FIELD_MUTE))) {
+            dispatch(ConsumerEvents.EVENT_REMOTE_MEDIA_PLAYER_STATUS_UPDATED,
+                    new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                        @Override
+                        public void deliver(VideoCastConsumer consumer) {
+                            consumer.onRemoteMediaPlayerStatusUpdated();
+                        }
+                    });
+        }
+        if (MediaStatusSnapshot.hasChanged(changes,
+                MediaStatusSnapshot.FIELD_VOLUME | MediaStatusSnapshot.FIELD_MUTE)) {
+            final double volume = snapshot.getVolume();
+            final boolean isMute = snapshot.isMute();
+            dispatch(ConsumerEvents.EVENT_VOLUME_CHANGED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                @Override
+                public void deliver(VideoCastConsumer consumer) {
+                    consumer.onVolumeChanged(volume, isMute);
+                }
+            });
         }
-        mState = mMediaStatus.getPlayerState();
-        mIdleReason = mMediaStatus.getIdleReason();
+    }
 
-        try {
-            double volume = getVolume();
-            boolean isMute = isMute();
-            boolean makeUiHidden = false;
-            if (mState == MediaStatus.PLAYER_STATE_PLAYING) {
-                LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = playing");
-                updateMediaSession(true);
-                long mediaDurationLeft = getMediaTimeRemaining();
-                startReconnectionService(mediaDurationLeft);
-                startNotificationService();
-            } else if (mState == MediaStatus.PLAYER_STATE_PAUSED) {
-                LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = paused");
-                updateMediaSession(false);
-                startNotificationService();
-            } else if (mState == MediaStatus.PLAYER_STATE_IDLE) {
-                LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = IDLE with reason: " + mIdleReason);
-                updateMediaSession(false);
-                switch (mIdleReason) {
-                    case MediaStatus.IDLE_REASON_FINISHED:
-                        if (mMediaStatus.getLoadingItemId() == MediaQueueItem.INVALID_ITEM_ID) {
-                            // we have reached the end of queue
-                            clearMediaSession();
-                            makeUiHidden = true;
-                        }
-                        break;
-                    case MediaStatus.IDLE_REASON_ERROR:
-                        // something bad happened on the cast device
-                        LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): IDLE reason = ERROR");
+    /*
+     * Updates the media session, services and mini controllers to reflect the current player
+     * state. This is only called when the state, the idle reason, the current item or the
+     * position (e.g. after a seek) has changed.
+     */
+    private void updatePlaybackState() throws TransientNetworkDisconnectionException, NoConnectionException {
+        boolean makeUiHidden = false;
+        if (mState == MediaStatus.PLAYER_STATE_PLAYING) {
+            LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = playing");
+            updateMediaSession(true);
+            long mediaDurationLeft = getMediaTimeRemaining();
+            startReconnectionService(mediaDurationLeft);
+            startNotificationService();
+        } else if (mState == MediaStatus.PLAYER_STATE_PAUSED) {
+            LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = paused");
+            updateMediaSession(false);
+            startNotificationService();
+        } else if (mState == MediaStatus.PLAYER_STATE_IDLE) {
+            LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = IDLE with reason: " + mIdleReason);
+            updateMediaSession(false);
+            switch (mIdleReason) {
+                case MediaStatus.IDLE_REASON_FINISHED:
+                    if (mMediaStatus.getLoadingItemId() == MediaQueueItem.INVALID_ITEM_ID) {
+                        // we have reached the end of queue
+                        clearMediaSession();
                         makeUiHidden = true;
+                    }
+                    break;
+                case MediaStatus.IDLE_REASON_ERROR:
+                    // something bad happened on the cast device
+                    LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): IDLE reason = ERROR");
+                    makeUiHidden = true;
+                    clearMediaSession();
+                    onFailed(R.string.ccl_failed_receiver_player_error, NO_STATUS_CODE);
+                    break;
+                case MediaStatus.IDLE_REASON_CANCELED:
+                    LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): IDLE reason = CANCELLED");
+                    makeUiHidden = !isRemoteStreamLive();
+                    break;
+                case MediaStatus.IDLE_REASON_INTERRUPTED:
+                    if (mMediaStatus.getLoadingItemId() == MediaQueueItem.INVALID_ITEM_ID) {
+                        // we have reached the end of queue
                         clearMediaSession();
-                        onFailed(R.string.ccl_failed_receiver_player_error, NO_STATUS_CODE);
-                        break;
-                    case MediaStatus.IDLE_REASON_CANCELED:
-                        LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): IDLE reason = CANCELLED");
-                        makeUiHidden = !isRemoteStreamLive();
-                        break;
-                    case MediaStatus.IDLE_REASON_INTERRUPTED:
-                        if (mMediaStatus.getLoadingItemId() == MediaQueueItem.INVALID_ITEM_ID) {
-                            // we have reached the end of queue
-                            clearMediaSession();
-                            makeUiHidden = true;
-                        }
-                        break;
-                    default:
-                        LOGE(TAG, "onRemoteMediaPlayerStatusUpdated(): Unexpected Idle Reason " + mIdleReason);
-                }
-            } else if (mState == MediaStatus.PLAYER_STATE_BUFFERING) {
-                LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = buffering");
-            } else {
-                LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = unknown");
-                makeUiHidden = true;
-            }
-            if (makeUiHidden) {
-                stopReconnectionService();
-                stopNotificationService();
-            }
-            updateMiniControllersVisibility(!makeUiHidden);
-            updateMiniControllers();
-            for (VideoCastConsumer consumer : mVideoConsumers) {
-                consumer.onRemoteMediaPlayerStatusUpdated();
-                consumer.onVolumeChanged(volume, isMute);
+                        makeUiHidden = true;
+                    }
+                    break;
+                default:
+                    LOGE(TAG, "onRemoteMediaPlayerStatusUpdated(): Unexpected Idle Reason " + mIdleReason);
             }
-        } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-            LOGE(TAG, "Failed to get volume state due to network issues", e);
+        } else if (mState == MediaStatus.PLAYER_STATE_BUFFERING) {
+            LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = buffering");
+        } else {
+            LOGD(TAG, "onRemoteMediaPlayerStatusUpdated(): Player status = unknown");
+            makeUiHidden = true;
         }
-
+        if (makeUiHidden) {
+            stopReconnectionService();
+            stopNotificationService();
+        }
+        updateMiniControllersVisibility(!makeUiHidden);
+        updateMiniControllers();
     }
 
     private void onRemoteMediaPreloadStatusUpdated() {
         MediaQueueItem item = null;
         mMediaStatus = mRemoteMediaPlayer != null ? mRemoteMediaPlayer.getMediaStatus() : null;
         if (mMediaStatus != null) {
-            item = mMediaStatus.getQueueItemById(mMediaStatus.getPreloadedItemId());
+            int preloadedItemId = mMediaStatus.getPreloadedItemId();
+            item = mMediaQueue != null ? mMediaQueue.getItemById(preloadedItemId)
+                    : mMediaStatus.getQueueItemById(preloadedItemId);
+        }
+        if (item == null ? mPreLoadingItem == null : item.equals(mPreLoadingItem)) {
+            LOGD(TAG, "onRemoteMediaPreloadStatusUpdated(): preloaded item has not changed");
+            return;
         }
         mPreLoadingItem = item;
+        publishState();
+        mPrefetcher.prefetch(item, getPrefetchSurfaces());
         updateMiniControllersVisibilityForUpcoming(item);
         LOGD(TAG, "onRemoteMediaPreloadStatusUpdated() " + item);
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onRemoteMediaPreloadStatusUpdated(item);
-        }
+        final MediaQueueItem preloadedItem = item;
+        dispatch(ConsumerEvents.EVENT_REMOTE_MEDIA_PRELOAD_STATUS_UPDATED,
+                new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                    @Override
+                    public void deliver(VideoCastConsumer consumer) {
+                        consumer.onRemoteMediaPreloadStatusUpdated(preloadedItem);
+                    }
+                });
     }
 
     public MediaQueueItem getPreLoadingItem() {
@@ -2030,20 +2611,44 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     * This is called by onQueueStatusUpdated() of RemoteMediaPlayer
     */
     @SuppressLint("DefaultLocale")
-    private void onQueueUpdated(List<MediaQueueItem> queueItems, MediaQueueItem item, int repeatMode, boolean shuffle) {
+    private void onQueueUpdated(List<MediaQueueItem> queueItems, final MediaQueueItem item, final int repeatMode,
+            final boolean shuffle) {
         LOGD(TAG, "onQueueUpdated() reached");
         LOGD(TAG, String.format("Queue Items size: %d, Item: %s, Repeat Mode: %d, Shuffle: %s", queueItems == null ?
                 0 : queueItems
                 .size(), item, repeatMode, shuffle));
+        boolean hadQueue = mMediaQueue != null;
+        MediaQueue previousQueue = hadQueue ? mMediaQueue : MediaQueue.EMPTY;
+        WindowedQueueLoader loader = mWindowedQueueLoader;
+        if (loader != null && queueItems != null) {
+            List<MediaQueueItem> merged = loader.merge(queueItems);
+            if (merged != null) {
+                queueItems = merged;
+            } else if (loader.isWindowLoaded()) {
+                LOGD(TAG, "onQueueUpdated(): queue was changed during a windowed load, stopping it");
+                cancelWindowedQueueLoad();
+            }
+        }
         if (queueItems != null) {
-            mMediaQueue = new MediaQueue(new CopyOnWriteArrayList<>(queueItems), item, shuffle, repeatMode);
+            mMediaQueue = previousQueue.update(queueItems, item, shuffle, repeatMode);
         } else {
-            mMediaQueue = new MediaQueue(new CopyOnWriteArrayList<MediaQueueItem>(), null, false, MediaStatus
-                    .REPEAT_MODE_REPEAT_OFF);
+            mMediaQueue = previousQueue.update(null, null, false, MediaStatus.REPEAT_MODE_REPEAT_OFF);
         }
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onMediaQueueUpdated(queueItems, item, repeatMode, shuffle);
+        if (hadQueue && mMediaQueue == previousQueue) {
+            LOGD(TAG, "onQueueUpdated(): queue has not changed since version " + previousQueue.getVersion());
+            return;
         }
+        // consumers read the queue from the cast state, so it has to be published first
+        publishState();
+        onMediaSessionQueueChanged(previousQueue);
+        final List<MediaQueueItem> items = queueItems;
+        dispatch(ConsumerEvents.EVENT_MEDIA_QUEUE_UPDATED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onMediaQueueUpdated(items, item, repeatMode, shuffle);
+            }
+        });
     }
 
     /*
@@ -2052,9 +2657,14 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     public void onRemoteMediaPlayerMetadataUpdated() {
         LOGD(TAG, "onRemoteMediaPlayerMetadataUpdated() reached");
         updateMediaSessionMetadata();
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onRemoteMediaPlayerMetadataUpdated();
-        }
+        dispatch(ConsumerEvents.EVENT_REMOTE_MEDIA_PLAYER_METADATA_UPDATED,
+                new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+                    @Override
+                    public void deliver(VideoCastConsumer consumer) {
+                        consumer.onRemoteMediaPlayerMetadataUpdated();
+                    }
+                });
         try {
             updateLockScreenImage(getRemoteMediaInformation());
         } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
@@ -2091,25 +2701,89 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                     if (keyEvent != null && (keyEvent.getKeyCode() == KeyEvent.KEYCODE_MEDIA_PAUSE || keyEvent
                             .getKeyCode() == KeyEvent.KEYCODE_MEDIA_PLAY)) {
                         toggle();
+                        return true;
+                    }
+                    // the other keys are mapped to the transport controls below
+                    return super.onMediaButtonEvent(mediaButtonIntent);
+                }
+
+                private void toggle() {
+                    try {
+                        togglePlayback();
+                    } catch (CastException | TransientNetworkDisconnectionException | NoConnectionException e) {
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to toggle playback", e);
                     }
-                    return true;
                 }
 
                 @Override
                 public void onPlay() {
-                    toggle();
+                    try {
+                        play();
+                    } catch (CastException | TransientNetworkDisconnectionException | NoConnectionException e) {
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to play", e);
+                    }
                 }
 
                 @Override
                 public void onPause() {
-                    toggle();
+                    try {
+                        pause();
+                    } catch (CastException | TransientNetworkDisconnectionException | NoConnectionException e) {
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to pause", e);
+                    }
                 }
 
-                private void toggle() {
+                @Override
+                public void onStop() {
                     try {
-                        togglePlayback();
+                        stop();
                     } catch (CastException | TransientNetworkDisconnectionException | NoConnectionException e) {
-                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to toggle playback", e);
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to stop", e);
+                    }
+                }
+
+                @Override
+                public void onSeekTo(long position) {
+                    try {
+                        seek((int) position);
+                    } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to seek", e);
+                    }
+                }
+
+                @Override
+                public void onFastForward() {
+                    forwardBy(TimeUnit.SECONDS.toMillis(mCastConfiguration.getForwardStep()));
+                }
+
+                @Override
+                public void onRewind() {
+                    forwardBy(-TimeUnit.SECONDS.toMillis(mCastConfiguration.getForwardStep()));
+                }
+
+                private void forwardBy(long lengthInMillis) {
+                    try {
+                        forward((int) lengthInMillis);
+                    } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to forward", e);
+                    }
+                }
+
+                @Override
+                public void onSkipToNext() {
+                    try {
+                        queueNext(null);
+                    } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to skip to the next item", e);
+                    }
+                }
+
+                @Override
+                public void onSkipToPrevious() {
+                    try {
+                        queuePrev(null);
+                    } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+                        LOGE(TAG, "MediaSessionCompat.Callback(): Failed to skip to the previous item", e);
                     }
                 }
             });
@@ -2127,10 +2801,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                     .STATE_NONE, 0, 1.0f)
                     .build());
         } else {
-            mMediaSessionCompat.setPlaybackState(new PlaybackStateCompat.Builder().setState(PlaybackStateCompat
-                    .STATE_PLAYING, 0, 1.0f)
-                    .setActions(PlaybackStateCompat.ACTION_PLAY_PAUSE)
-                    .build());
+            mMediaSessionCompat.setPlaybackState(buildPlaybackState(PlaybackStateCompat.STATE_PLAYING));
         }
 
         // Update the media session's image
@@ -2176,34 +2847,53 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         if (video == null || mMediaSessionCompat == null) {
             return;
         }
-        Uri imgUrl = null;
-        Bitmap bm = null;
-        List<WebImage> images = video.getMetadata().getImages();
-        if (Build.VERSION.SDK_INT > Build.VERSION_CODES.JELLY_BEAN_MR2) {
-            if (images.size() > 1) {
-                imgUrl = images.get(1).getUrl();
-            } else if (images.size() == 1) {
-                imgUrl = images.get(0).getUrl();
-            } else if (mContext != null) {
-                // we don't have a url for image so get a placeholder image from resources
-                bm = BitmapFactory.decodeResource(mContext.getResources(), R.drawable.album_art_placeholder_large);
-            }
-        } else if (!images.isEmpty()) {
-            imgUrl = images.get(0).getUrl();
-        } else {
+        Uri imgUrl = getRenderModel(video).getLockScreenUri();
+        if (imgUrl == null) {
             // we don't have a url for image so get a placeholder image from resources
-            bm = BitmapFactory.decodeResource(mContext.getResources(), R.drawable.album_art_placeholder);
-        }
-        if (bm != null) {
+            Bitmap bm = PlaceholderArtwork.getBitmap(mContext,
+                    Build.VERSION.SDK_INT > Build.VERSION_CODES.JELLY_BEAN_MR2
+                            ? ArtworkRequests.TIER_FULL_SCREEN : ArtworkRequests.TIER_THUMBNAIL);
             MediaMetadataCompat currentMetadata = mMediaSessionCompat.getController().getMetadata();
             MediaMetadataCompat.Builder newBuilder = currentMetadata == null ? new MediaMetadataCompat.Builder() :
                     new MediaMetadataCompat.Builder(currentMetadata);
             mMediaSessionCompat.setMetadata(newBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_ART, bm).build());
         } else {
-            Point screenSize = Utils.getDisplaySize(mContext);
-            RequestOptions options = new RequestOptions().override(screenSize.x, screenSize.y);
-            Glide.with(mContext).asBitmap().load(imgUrl).apply(options).into(artTarget);
+            ArtworkRequests.load(Glide.with(mContext), imgUrl, mContext, ArtworkRequests.TIER_FULL_SCREEN)
+                    .into(artTarget);
+        }
+    }
+
+    /*
+     * Returns the render model of the given media, reusing the current one or the one that was
+     * prefetched for the upcoming item if they match.
+     */
+    private MediaRenderModel getRenderModel(MediaInfo info) {
+        if (mRenderModel == null || !mRenderModel.isFor(info)) {
+            MediaRenderModel prefetched = mPrefetcher.takeModel(info);
+            mRenderModel = prefetched != null ? prefetched : MediaRenderModel.from(info);
+        }
+        return mRenderModel;
+    }
+
+    /*
+     * Returns the surfaces that will show the upcoming item, for prefetching.
+     */
+    private int getPrefetchSurfaces() {
+        int surfaces = 0;
+        if (isFeatureEnabled(CastConfiguration.FEATURE_NOTIFICATION)) {
+            surfaces |= UpcomingItemPrefetcher.SURFACE_NOTIFICATION;
         }
+        if (isFeatureEnabled(CastConfiguration.FEATURE_LOCKSCREEN) && mMediaSessionCompat != null) {
+            surfaces |= UpcomingItemPrefetcher.SURFACE_LOCK_SCREEN;
+        }
+        if (!mMiniControllers.isEmpty()) {
+            surfaces |= UpcomingItemPrefetcher.SURFACE_MINI_CONTROLLER;
+        }
+        if (mUiVisible) {
+            // the full screen images are large; only prefetch them if the controller may be shown
+            surfaces |= UpcomingItemPrefetcher.SURFACE_FULL_SCREEN;
+        }
+        return surfaces;
     }
 
     /*
@@ -2229,15 +2919,75 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                 if (pi != null) {
                     mMediaSessionCompat.setSessionActivity(pi);
                 }
-                mMediaSessionCompat.setPlaybackState(new PlaybackStateCompat.Builder().setState(state, 0, 1.0f)
-                        .setActions(PlaybackStateCompat.ACTION_PLAY_PAUSE)
-                        .build());
+                mMediaSessionCompat.setPlaybackState(buildPlaybackState(state));
             }
         } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
             LOGE(TAG, "Failed to set up MediaSessionCompat due to network issues", e);
         }
     }
 
+    /*
+     * Builds the playback state of the Media Session. The position is given with the time it was
+     * read at and the playback rate, so that the system UI interpolates the progress on its own;
+     * the state only needs to be published again when the player state changes or the position
+     * jumps.
+     */
+    private PlaybackStateCompat buildPlaybackState(int state) {
+        long actions = PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_PLAY
+                | PlaybackStateCompat.ACTION_PAUSE | PlaybackStateCompat.ACTION_STOP;
+        long position = PlaybackStateCompat.PLAYBACK_POSITION_UNKNOWN;
+        float speed = 1.0f;
+        MediaInfo info = mMediaStatus == null ? null : mMediaStatus.getMediaInfo();
+        if (info != null && info.getStreamType() != MediaInfo.STREAM_TYPE_LIVE) {
+            position = mProgressClock.getPosition();
+            if (position < 0) {
+                position = mMediaStatus.getStreamPosition();
+            }
+            speed = (float) mMediaStatus.getPlaybackRate();
+            actions |= PlaybackStateCompat.ACTION_SEEK_TO | PlaybackStateCompat.ACTION_REWIND
+                    | PlaybackStateCompat.ACTION_FAST_FORWARD;
+        }
+        actions |= getQueueActions(mMediaQueue);
+        return new PlaybackStateCompat.Builder()
+                .setState(state, position, speed, SystemClock.elapsedRealtime())
+                .setActions(actions)
+                .build();
+    }
+
+    /*
+     * Returns the skip actions of the Media Session that the given queue allows.
+     */
+    private static long getQueueActions(MediaQueue queue) {
+        MediaQueueItem currentItem = queue == null ? null : queue.getCurrentItem();
+        if (currentItem == null) {
+            return 0;
+        }
+        long actions = 0;
+        boolean repeating = queue.getRepeatMode() != MediaStatus.REPEAT_MODE_REPEAT_OFF;
+        if (repeating || queue.getNext(currentItem.getItemId()) != null) {
+            actions |= PlaybackStateCompat.ACTION_SKIP_TO_NEXT;
+        }
+        if (repeating || queue.getPrevious(currentItem.getItemId()) != null) {
+            actions |= PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS;
+        }
+        return actions;
+    }
+
+    /*
+     * Publishes the playback state of the Media Session again, keeping its state, when the queue
+     * changes the skip actions it allows.
+     */
+    private void onMediaSessionQueueChanged(MediaQueue previousQueue) {
+        if (mMediaSessionCompat == null || getQueueActions(previousQueue) == getQueueActions(mMediaQueue)) {
+            return;
+        }
+        PlaybackStateCompat current = mMediaSessionCompat.getController().getPlaybackState();
+        if (current == null || current.getState() == PlaybackStateCompat.STATE_NONE) {
+            return;
+        }
+        mMediaSessionCompat.setPlaybackState(buildPlaybackState(current.getState()));
+    }
+
     /*
      * On ICS and JB, lock screen metadata is one liner: Title - Album Artist - Album. On KitKat, it
      * has two lines: Title , Album Artist - Album
@@ -2252,32 +3002,32 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
             if (info == null) {
                 return;
             }
-            final MediaMetadata mm = info.getMetadata();
+            MediaRenderModel model = getRenderModel(info);
             MediaMetadataCompat currentMetadata = mMediaSessionCompat.getController().getMetadata();
             MediaMetadataCompat.Builder newBuilder = currentMetadata == null ? new MediaMetadataCompat.Builder() :
                     new MediaMetadataCompat.Builder(currentMetadata);
             MediaMetadataCompat metadata = newBuilder
                     // used in lock screen for pre-lollipop
-                    .putString(MediaMetadataCompat.METADATA_KEY_TITLE, mm.getString(MediaMetadata.KEY_TITLE))
+                    .putString(MediaMetadataCompat.METADATA_KEY_TITLE, model.getTitle())
                     // used in lock screen for pre-lollipop
                     .putString(MediaMetadataCompat.METADATA_KEY_ALBUM_ARTIST, mContext.getResources()
                             .getString(R.string.ccl_casting_to_device, getDeviceName()))
                     // used in MediaRouteController dialog
-                    .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_TITLE, mm.getString(MediaMetadata.KEY_TITLE))
+                    .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_TITLE, model.getTitle())
                     // used in MediaRouteController dialog
-                    .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_SUBTITLE, mm.getString(MediaMetadata
-                            .KEY_SUBTITLE))
+                    .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_SUBTITLE, model.getSubtitle())
                     .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, info.getStreamDuration())
                     .build();
             mMediaSessionCompat.setMetadata(metadata);
 
-            Uri iconUri = mm.hasImages() ? mm.getImages().get(0).getUrl() : null;
+            Uri iconUri = model.getIconUri();
             if (iconUri == null) {
-                Bitmap bm = BitmapFactory.decodeResource(mContext.getResources(), R.drawable.album_art_placeholder);
+                Bitmap bm = PlaceholderArtwork.getBitmap(mContext, ArtworkRequests.TIER_THUMBNAIL);
                 mMediaSessionCompat.setMetadata(newBuilder.putBitmap(MediaMetadataCompat.METADATA_KEY_DISPLAY_ICON, bm)
                         .build());
             } else {
-                Glide.with(mContext).asBitmap().load(iconUri).into(iconTarget);
+                ArtworkRequests.load(Glide.with(mContext), iconUri, mContext, ArtworkRequests.TIER_THUMBNAIL)
+                        .into(iconTarget);
             }
 
         } catch (NotFoundException e) {
@@ -2318,11 +3068,45 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * @see VideoCastConsumerImpl
      */
     public synchronized void addVideoCastConsumer(VideoCastConsumer listener) {
-        if (listener != null) {
-            addBaseCastConsumer(listener);
-            mVideoConsumers.add(listener);
-            LOGD(TAG, "Successfully added the new CastConsumer listener " + listener);
-        }
+        addVideoCastConsumer(listener, ConsumerEvents.VIDEO_EVENTS);
+    }
+
+    /**
+     * Registers a {@link VideoCastConsumer} that is only called for the given {@code interests}, a
+     * mask of the {@link ConsumerEvents} identifiers (see {@link ConsumerEvents#maskOf(int...)}).
+     * A listener that extends {@link VideoCastConsumerImpl} to override a few callbacks should
+     * only register for those, so it is not called for every status update.
+     */
+    public synchronized void addVideoCastConsumer(VideoCastConsumer listener, long interests) {
+        addVideoCastConsumer(listener, interests, ConsumerDispatcher.DELIVERY_DIRECT,
+                ConsumerDispatcher.POLICY_DELIVER_ALL);
+    }
+
+    /**
+     * Registers a {@link VideoCastConsumer} that is called through the given {@code delivery}, one
+     * of the {@code ConsumerDispatcher.DELIVERY_*} modes, and {@code policy}, one of the
+     * {@code ConsumerDispatcher.POLICY_*} policies. A consumer that does heavy work in its
+     * callbacks can be moved off the thread of the events with
+     * {@link ConsumerDispatcher#DELIVERY_BACKGROUND}, and with
+     * {@link ConsumerDispatcher#POLICY_LATEST_WINS} it only receives the newest status when it
+     * falls behind.
+     *
+     * @see #getConsumerDeliveryStats()
+     */
+    public synchronized void addVideoCastConsumer(VideoCastConsumer listener, int delivery, int policy) {
+        addVideoCastConsumer(listener, ConsumerEvents.VIDEO_EVENTS, delivery, policy);
+    }
+
+    /**
+     * Registers a {@link VideoCastConsumer} for the given {@code interests}, through the given
+     * {@code delivery} and {@code policy}. Registering a listener again replaces the interests
+     * it registered through this method, and its delivery and policy; interests registered through
+     * the other consumer methods are kept.
+     */
+    public synchronized void addVideoCastConsumer(VideoCastConsumer listener, long interests, int delivery,
+            int policy) {
+        addConsumer(listener, ConsumerDispatcher.SCOPE_MANAGER, ConsumerEvents.VIDEO_EVENTS & interests, delivery,
+                policy);
     }
 
     /**
@@ -2330,21 +3114,26 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * {@link com.google.android.libraries.cast.companionlibrary.cast.callbacks.VideoCastConsumer}.
      */
     public synchronized void removeVideoCastConsumer(VideoCastConsumer listener) {
-        if (listener != null) {
-            removeBaseCastConsumer(listener);
-            mVideoConsumers.remove(listener);
-        }
+        removeConsumer(listener, ConsumerDispatcher.SCOPE_MANAGER);
+    }
+
+    public void addProgressWatcher(ProgressWatcher watcher) {
+        addProgressWatcher(watcher, ProgressClock.DEFAULT_RESOLUTION_MS);
     }
 
-    public synchronized void addProgressWatcher(ProgressWatcher watcher) {
+    /**
+     * Adds a {@link ProgressWatcher} that will be updated, while the media is playing, every
+     * {@code resolutionMs} milliseconds.
+     */
+    public void addProgressWatcher(ProgressWatcher watcher, long resolutionMs) {
         if (watcher != null) {
-            mProgressWatchers.add(watcher);
+            mProgressClock.addProgressWatcher(watcher, resolutionMs);
         }
     }
 
-    public synchronized void removeProgressWatcher(ProgressWatcher watcher) {
+    public void removeProgressWatcher(ProgressWatcher watcher) {
         if (watcher != null) {
-            mProgressWatchers.remove(watcher);
+            mProgressClock.remove(watcher);
         }
     }
 
@@ -2356,11 +3145,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      */
     public void addMiniController(IMiniController miniController, OnMiniControllerChangedListener onChangedListener) {
         if (miniController != null) {
-            boolean result;
-            synchronized (mMiniControllers) {
-                result = mMiniControllers.add(miniController);
-            }
-            if (result) {
+            if (mMiniControllers.add(miniController)) {
                 miniController.setOnMiniControllerChangedListener(onChangedListener == null ? this : onChangedListener);
                 try {
                     if (isConnected() && isRemoteMediaLoaded()) {
@@ -2375,9 +3160,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                 LOGD(TAG, "Attempting to adding " + miniController + " but it was already " + "registered, skipping " +
                         "this step");
             }
-            if (mProgressHandler == null || mProgressHandler.isCancelled()) {
-                restartProgressTimer();
-            }
+            mProgressClock.addMiniController(miniController);
         }
     }
 
@@ -2395,15 +3178,87 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     public void removeMiniController(IMiniController listener) {
         if (listener != null) {
             listener.setOnMiniControllerChangedListener(null);
-            synchronized (mMiniControllers) {
-                mMiniControllers.remove(listener);
-                if (mMiniControllers.isEmpty()) {
-                    stopProgressTimer();
-                }
-            }
+            mMiniControllers.remove(listener);
+            mMiniControllerBinder.unbind(listener);
+            mProgressClock.remove(listener);
         }
     }
 
+    @Override
+    void onBuildState(CastState.Builder builder) {
+        super.onBuildState(builder);
+        builder.setPlayerState(mState, mIdleReason)
+                .setMediaStatus(mMediaStatus)
+                .setMediaQueue(mMediaQueue)
+                .setPreloadingItem(mPreLoadingItem);
+    }
+
+    @Override
+    void onUpdateStreams() {
+        super.onUpdateStreams();
+        mPlayerStateData.update(mState);
+        mMediaQueueData.update(mMediaQueue);
+        long[] trackIds = mMediaStatus == null ? null : mMediaStatus.getActiveTrackIds();
+        // the status may be updated in place, so the stream keeps its own copy
+        mActiveTrackIdsData.update(trackIds == null ? null : trackIds.clone());
+        mPositionData.refresh();
+    }
+
+    /**
+     * Returns an observable stream of the state of the remote media player, one of the
+     * {@code MediaStatus.PLAYER_STATE_*} values. It only emits when the state changes.
+     */
+    public final LiveData<Integer> getPlayerStateData() {
+        return mPlayerStateData;
+    }
+
+    /**
+     * Returns an observable stream of the position of the media, in milliseconds, or -1 when it
+     * is unknown. The position is interpolated locally and emitted about once per second, only
+     * while the stream is observed by an active lifecycle.
+     */
+    public final LiveData<Long> getPositionData() {
+        return mPositionData;
+    }
+
+    /**
+     * Returns an observable stream of the queue of the receiver, or {@code null} when there is
+     * none. It only emits when the queue changes.
+     */
+    public final LiveData<MediaQueue> getMediaQueueData() {
+        return mMediaQueueData;
+    }
+
+    /**
+     * Returns an observable stream of the volume, as reported by {@link #getVolume()}. It only
+     * emits when the volume changes.
+     */
+    public final LiveData<Double> getVolumeData() {
+        return mVolumeData;
+    }
+
+    /**
+     * Returns an observable stream of the mute state, as reported by {@link #isMute()}. It only
+     * emits when the mute state changes.
+     */
+    public final LiveData<Boolean> getMuteData() {
+        return mMuteData;
+    }
+
+    /**
+     * Returns an observable stream of the ids of the active tracks, see
+     * {@link #getActiveTrackIds()}. It only emits when the set of active tracks changes.
+     */
+    public final LiveData<long[]> getActiveTrackIdsData() {
+        return mActiveTrackIdsData;
+    }
+
+    @Override
+    protected void onUiVisibilityChanged(boolean visible) {
+        super.onUiVisibilityChanged(visible);
+        mProgressClock.onVisibilityChanged(visible);
+    }
+
     @Override
     protected void onDeviceUnselected() {
         stopNotificationService();
@@ -2411,6 +3266,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         removeDataChannel();
         mState = MediaStatus.PLAYER_STATE_IDLE;
         mMediaStatus = null;
+        publishState();
     }
 
     @Override
@@ -2428,12 +3284,15 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         updateMediaSession(false);
         mState = MediaStatus.PLAYER_STATE_IDLE;
         mMediaStatus = null;
+        publishState();
         stopNotificationService();
     }
 
     @Override
     public void onDisconnected(boolean stopAppOnExit, boolean clearPersistedConnectionData, boolean setDefaultRoute) {
         super.onDisconnected(stopAppOnExit, clearPersistedConnectionData, setDefaultRoute);
+        // the notification service stops itself on disconnection
+        getServiceCoordinator().onNotificationStopped();
         updateMiniControllersVisibility(false);
         if (clearPersistedConnectionData && !mConnectionSuspended) {
             clearMediaSession();
@@ -2441,6 +3300,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         mState = MediaStatus.PLAYER_STATE_IDLE;
         mMediaStatus = null;
         mMediaQueue = null;
+        publishState();
     }
 
     class CastListener extends Cast.Listener {
@@ -2465,6 +3325,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
 
         @Override
         public void onVolumeChanged() {
+            mVolumeCoalescer.onReceiverVolumeChanged();
             VideoCastManager.this.onVolumeChanged();
         }
     }
@@ -2472,6 +3333,7 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
     @Override
     public void onFailed(int resourceId, int statusCode) {
         LOGD(TAG, "onFailed: " + mContext.getString(resourceId) + ", code: " + statusCode);
+        resetMiniControllersPlaybackStatus();
         super.onFailed(resourceId, statusCode);
     }
 
@@ -2591,13 +3453,22 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
      * Sets the active tracks for the currently loaded media.
      */
     public void setActiveTrackIds(long[] trackIds) {
+        setActiveTrackIdsAsync(trackIds);
+    }
+
+    /**
+     * Same as {@link #setActiveTrackIds(long[])}, but returns the pending outcome of the command.
+     * If no media is loaded, the returned future fails with
+     * {@link CastStatusCodes#INVALID_REQUEST}.
+     */
+    public MediaCommandFuture setActiveTrackIdsAsync(long[] trackIds) {
         if (mRemoteMediaPlayer == null || mRemoteMediaPlayer.getMediaInfo() == null) {
-            return;
+            return MediaCommandFuture.completed(CastStatusCodes.INVALID_REQUEST, mCommandExecutor);
         }
-        mRemoteMediaPlayer.setActiveMediaTracks(mApiClient, trackIds)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
+        return newCommand(mRemoteMediaPlayer.setActiveMediaTracks(mApiClient, trackIds))
+                .addCallback(new MediaCommandFuture.Callback() {
                     @Override
-                    public void onResult(MediaChannelResult mediaChannelResult) {
+                    public void onComplete(MediaCommandFuture future, MediaChannelResult mediaChannelResult) {
                         LOGD(TAG, "Setting track result was successful? " + mediaChannelResult.getStatus().isSuccess());
                         if (!mediaChannelResult.getStatus().isSuccess()) {
                             LOGD(TAG, "Failed since: " + mediaChannelResult.getStatus() + " and status code:" +
@@ -2606,79 +3477,82 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
                                     .getStatusCode());
                         }
                     }
-                });
+                }, MediaCommandFuture.DIRECT_EXECUTOR);
     }
 
     /**
      * Sets or updates the style of the Text Track.
      */
-    public void setTextTrackStyle(TextTrackStyle style) {
-        mRemoteMediaPlayer.setTextTrackStyle(mApiClient, style)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        if (!result.getStatus().isSuccess()) {
-                            onFailed(R.string.ccl_failed_to_set_track_style, result.getStatus().getStatusCode());
-                        }
-                    }
-                });
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            try {
-                consumer.onTextTrackStyleChanged(style);
-            } catch (Exception e) {
-                LOGE(TAG, "onTextTrackStyleChanged(): Failed to inform " + consumer, e);
-            }
+    public void setTextTrackStyle(final TextTrackStyle style) {
+        setTextTrackStyleAsync(style);
+    }
+
+    /**
+     * Same as {@link #setTextTrackStyle(TextTrackStyle)}, but returns the pending outcome of the
+     * command. If there is no media session, the returned future fails with
+     * {@link CastStatusCodes#INVALID_REQUEST}.
+     */
+    public MediaCommandFuture setTextTrackStyleAsync(final TextTrackStyle style) {
+        if (mRemoteMediaPlayer == null) {
+            return MediaCommandFuture.completed(CastStatusCodes.INVALID_REQUEST, mCommandExecutor);
         }
+        MediaCommandFuture command = reportFailure(newCommand(mRemoteMediaPlayer.setTextTrackStyle(mApiClient,
+                style)), R.string.ccl_failed_to_set_track_style);
+        dispatch(ConsumerEvents.EVENT_TEXT_TRACK_STYLE_CHANGED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                try {
+                    consumer.onTextTrackStyleChanged(style);
+                } catch (Exception e) {
+                    LOGE(TAG, "onTextTrackStyleChanged(): Failed to inform " + consumer, e);
+                }
+            }
+        });
+        return command;
     }
 
     /**
      * Signals a change in the Text Track style. Clients should not call this directly.
      */
-    public void onTextTrackStyleChanged(TextTrackStyle style) {
+    public void onTextTrackStyleChanged(final TextTrackStyle style) {
         LOGD(TAG, "onTextTrackStyleChanged() reached");
         if (mRemoteMediaPlayer == null || mRemoteMediaPlayer.getMediaInfo() == null) {
             return;
         }
-        mRemoteMediaPlayer.setTextTrackStyle(mApiClient, style)
-                .setResultCallback(new ResultCallback<MediaChannelResult>() {
-                    @Override
-                    public void onResult(MediaChannelResult result) {
-                        if (!result.getStatus().isSuccess()) {
-                            onFailed(R.string.ccl_failed_to_set_track_style, result.getStatus().getStatusCode());
-                        }
-                    }
-                });
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            try {
-                consumer.onTextTrackStyleChanged(style);
-            } catch (Exception e) {
-                LOGE(TAG, "onTextTrackStyleChanged(): Failed to inform " + consumer, e);
-            }
-        }
+        setTextTrackStyleAsync(style);
     }
 
     /**
      * Signals a change in the Text Track on/off state. Clients should not call this directly.
      */
-    public void onTextTrackEnabledChanged(boolean isEnabled) {
+    public void onTextTrackEnabledChanged(final boolean isEnabled) {
         LOGD(TAG, "onTextTrackEnabledChanged() reached");
         if (!isEnabled) {
             setActiveTrackIds(new long[]{});
         }
 
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onTextTrackEnabledChanged(isEnabled);
-        }
+        dispatch(ConsumerEvents.EVENT_TEXT_TRACK_ENABLED_CHANGED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onTextTrackEnabledChanged(isEnabled);
+            }
+        });
     }
 
     /**
      * Signals a change in the Text Track locale. Clients should not call this directly.
      */
-    public void onTextTrackLocaleChanged(Locale locale) {
+    public void onTextTrackLocaleChanged(final Locale locale) {
         LOGD(TAG, "onTextTrackLocaleChanged() reached");
-        for (VideoCastConsumer consumer : mVideoConsumers) {
-            consumer.onTextTrackLocaleChanged(locale);
-        }
+        dispatch(ConsumerEvents.EVENT_TEXT_TRACK_LOCALE_CHANGED, new ConsumerDispatcher.Event<VideoCastConsumer>() {
+
+            @Override
+            public void deliver(VideoCastConsumer consumer) {
+                consumer.onTextTrackLocaleChanged(locale);
+            }
+        });
     }
 
     @SuppressLint("NewApi")
@@ -2791,54 +3665,6 @@ public class VideoCastManager extends BaseCastManager implements OnMiniControlle
         return mMediaQueue;
     }
 
-    final private Runnable mProgressRunnable = new Runnable() {
-        @Override
-        public void run() {
-            int currentPos;
-            if (mState == MediaStatus.PLAYER_STATE_BUFFERING || !isConnected() || mRemoteMediaPlayer == null) {
-                return;
-            }
-            try {
-                int duration = (int) getMediaDuration();
-                if (duration > 0) {
-                    currentPos = (int) getCurrentMediaPosition();
-                    updateProgress(currentPos, duration);
-                }
-            } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-                LOGE(TAG, "Failed to update the progress tracker due to network issues", e);
-            }
-        }
-    };
-
-    private void restartProgressTimer() {
-        stopProgressTimer();
-        mProgressHandler = scheduler.scheduleAtFixedRate(mProgressRunnable, 100, PROGRESS_UPDATE_INTERVAL_MS,
-                TimeUnit.MILLISECONDS);
-        LOGD(TAG, "Restarted Progress Timer");
-    }
-
-    private void stopProgressTimer() {
-        LOGD(TAG, "Stopped TrickPlay Timer");
-        if (mProgressHandler != null && !mProgressHandler.isCancelled()) {
-            mProgressHandler.cancel(true);
-        }
-    }
-
-    /**
-     * <b>Note:</b> This is called on a worker thread
-     */
-    private void updateProgress(int currentPosition, int duration) {
-        synchronized (mMiniControllers) {
-            for (final IMiniController controller : mMiniControllers) {
-                controller.setProgress(currentPosition, duration);
-            }
-        }
-
-        for (ProgressWatcher watcher : mProgressWatchers) {
-            watcher.setProgress(currentPosition, duration);
-        }
-    }
-
     /**
      * Returns the namespace for an additional data namespace that this library can manage for an
      * application to have an out-of-band communication channel with the receiver. Note that this
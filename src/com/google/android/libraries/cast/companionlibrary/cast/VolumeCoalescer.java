@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
+
+import com.google.android.gms.cast.RemoteMediaPlayer.MediaChannelResult;
+import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastException;
+import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
+import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
+import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
+
+/**
+ * Keeps an optimistic local volume while the user is changing it (e.g. holding a volume key) and
+ * merges the changes into at most one request in flight plus one pending request. The volume
+ * reported by the receiver is ignored until the burst has settled.
+ * <p>
+ * Stream volume requests complete when their {@link MediaCommandFuture} does. Device volume requests
+ * have no result; they complete when the receiver reports a volume change (see
+ * {@link #onReceiverVolumeChanged()}) or after a timeout.
+ */
+final class VolumeCoalescer {
+
+    private static final String TAG = LogUtils.makeLogTag(VolumeCoalescer.class);
+
+    private static final long SETTLE_DELAY_MS = 500;
+    private static final long DEVICE_VOLUME_TIMEOUT_MS = 1000;
+
+    /**
+     * The interface to send the volume to the receiver and to be told when the burst is over.
+     */
+    interface VolumeSender {
+
+        /**
+         * Sends the {@code volume} to the receiver. Returns the result to wait for, or {@code null}
+         * if completion is signaled through {@link VolumeCoalescer#onReceiverVolumeChanged()}.
+         */
+        MediaCommandFuture sendVolume(double volume)
+                throws CastException, TransientNetworkDisconnectionException, NoConnectionException;
+
+        void onVolumeFailed(int statusCode);
+
+        /**
+         * Called when the local volume is dropped in favor of the one reported by the receiver.
+         */
+        void onVolumeSettled();
+    }
+
+    private final VolumeSender mSender;
+    private boolean mHasTarget;
+    private double mTarget;
+    private boolean mInFlight;
+    private boolean mPending;
+    private boolean mAwaitingReceiver;
+    private TickBus.Subscription mTimer;
+
+    private final Runnable mDeviceTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            LOGD(TAG, "No volume change reported by the receiver, moving on");
+            onRequestCompleted();
+        }
+    };
+
+    private final Runnable mSettleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (VolumeCoalescer.this) {
+                if (mInFlight || mPending) {
+                    return;
+                }
+                mHasTarget = false;
+                mTimer = null;
+            }
+            mSender.onVolumeSettled();
+        }
+    };
+
+    VolumeCoalescer(VolumeSender sender) {
+        mSender = sender;
+    }
+
+    /**
+     * Returns the local volume if a change is in progress, or {@code reportedVolume} otherwise.
+     */
+    synchronized double getVolume(double reportedVolume) {
+        return mHasTarget ? mTarget : reportedVolume;
+    }
+
+    /**
+     * Sets the volume, clamped between 0 and 1. If a request is already in flight, the new volume
+     * replaces any pending one and is sent when the request completes.
+     */
+    void setVolume(double volume)
+            throws CastException, TransientNetworkDisconnectionException, NoConnectionException {
+        synchronized (this) {
+            mTarget = Math.max(0, Math.min(1, volume));
+            mHasTarget = true;
+            if (mInFlight) {
+                mPending = true;
+                return;
+            }
+            cancelTimer();
+            mInFlight = true;
+        }
+        send();
+    }
+
+    /**
+     * Changes the volume by {@code delta}, relative to the local volume if there is one, or to
+     * {@code reportedVolume} otherwise.
+     */
+    void adjustVolume(double delta, double reportedVolume)
+            throws CastException, TransientNetworkDisconnectionException, NoConnectionException {
+        setVolume(getVolume(reportedVolume) + delta);
+    }
+
+    /**
+     * To be called when the receiver reports a change of the device volume.
+     */
+    void onReceiverVolumeChanged() {
+        synchronized (this) {
+            if (!mAwaitingReceiver) {
+                return;
+            }
+        }
+        onRequestCompleted();
+    }
+
+    /**
+     * Drops the local state, e.g. when the connection goes away or the volume type changes.
+     */
+    synchronized void reset() {
+        cancelTimer();
+        mHasTarget = false;
+        mInFlight = false;
+        mPending = false;
+        mAwaitingReceiver = false;
+    }
+
+    private void send() throws CastException, TransientNetworkDisconnectionException, NoConnectionException {
+        double volume;
+        synchronized (this) {
+            volume = mTarget;
+        }
+        MediaCommandFuture result;
+        try {
+            result = mSender.sendVolume(volume);
+        } catch (CastException | TransientNetworkDisconnectionException | NoConnectionException
+                | RuntimeException e) {
+            reset();
+            throw e;
+        }
+        if (result == null) {
+            synchronized (this) {
+                if (mInFlight) {
+                    mAwaitingReceiver = true;
+                    mTimer = TickBus.getInstance().schedule(mDeviceTimeoutRunnable,
+                            DEVICE_VOLUME_TIMEOUT_MS, TickBus.LANE_MAIN);
+                }
+            }
+            return;
+        }
+        result.addCallback(new MediaCommandFuture.Callback() {
+
+            @Override
+            public void onComplete(MediaCommandFuture future, MediaChannelResult result) {
+                if (!result.getStatus().isSuccess()) {
+                    mSender.onVolumeFailed(result.getStatus().getStatusCode());
+                }
+                onRequestCompleted();
+            }
+        }, MediaCommandFuture.DIRECT_EXECUTOR);
+    }
+
+    private void onRequestCompleted() {
+        synchronized (this) {
+            cancelTimer();
+            mAwaitingReceiver = false;
+            if (!mInFlight) {
+                return;
+            }
+            if (!mPending) {
+                mInFlight = false;
+                mTimer = TickBus.getInstance().schedule(mSettleRunnable, SETTLE_DELAY_MS,
+                        TickBus.LANE_MAIN);
+                return;
+            }
+            mPending = false;
+        }
+        try {
+            send();
+        } catch (CastException | TransientNetworkDisconnectionException | NoConnectionException e) {
+            LOGE(TAG, "Failed to send the pending volume", e);
+        }
+    }
+
+    private void cancelTimer() {
+        if (mTimer != null) {
+            mTimer.cancel();
+            mTimer = null;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast;
+
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaQueueItem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits the load of a large queue into a first window around the start item, which is loaded
+ * right away, and batches of the remaining items that are inserted afterwards. Batches are sized
+ * so that each request stays within a message budget: first the items that follow the window are
+ * appended, then the items that precede it are inserted at the head of the queue, the last batch
+ * first.
+ * <p>
+ * While the batches are being sent, {@link #merge(List)} combines the partial queue reported by
+ * the receiver with the items that have not been sent yet, so the UI can show the whole queue.
+ */
+final class WindowedQueueLoader {
+
+    /*
+     * The number of items that are loaded before the first one to play, and in total, in the
+     * first window.
+     */
+    static final int WINDOW_ITEMS_BEFORE = 5;
+    static final int WINDOW_SIZE = 25;
+
+    /*
+     * The maximum size of the items of a single request; the receiver rejects messages larger than
+     * 64KB and the request needs room for its envelope and custom data.
+     */
+    static final int MESSAGE_BUDGET_BYTES = 32 * 1024;
+
+    /**
+     * A request that inserts a range of the items.
+     */
+    static final class Batch {
+
+        final int mFrom;
+        final int mTo;
+        final boolean mPrepend;
+        final MediaQueueItem[] mItems;
+
+        Batch(int from, int to, boolean prepend, MediaQueueItem[] items) {
+            mFrom = from;
+            mTo = to;
+            mPrepend = prepend;
+            mItems = items;
+        }
+    }
+
+    private final MediaQueueItem[] mItems;
+    private final int mStartIndex;
+    private final int mWindowStart;
+    private final int mWindowEnd;
+
+    // the items that are left to be batched, after and before the window
+    private int mNextAppend;
+    private int mNextPrepend;
+
+    // the range of mItems that the receiver has acknowledged, and the batch in flight
+    private int mLoadedFrom;
+    private int mLoadedTo;
+    private Batch mInFlight;
+    private boolean mWindowLoaded;
+
+    /*
+     * Only the items of the first window are sized here, so that the time to start the playback
+     * does not depend on the length of the queue; the batches are built by nextBatch().
+     */
+    WindowedQueueLoader(MediaQueueItem[] items, int startIndex) {
+        if (startIndex < 0 || startIndex >= items.length) {
+            throw new IllegalArgumentException("Invalid start index " + startIndex);
+        }
+        mItems = items;
+        mStartIndex = startIndex;
+
+        int windowStart = Math.max(0, startIndex - WINDOW_ITEMS_BEFORE);
+        int windowEnd = Math.min(items.length, windowStart + WINDOW_SIZE);
+        windowStart = Math.max(0, Math.min(windowStart, windowEnd - WINDOW_SIZE));
+        // shrink the window to the budget, keeping the start item and what follows it first
+        int budget = sizeOf(items[startIndex]);
+        int from = startIndex;
+        int to = startIndex + 1;
+        while (to < windowEnd) {
+            int size = sizeOf(items[to]);
+            if (budget + size > MESSAGE_BUDGET_BYTES) {
+                break;
+            }
+            budget += size;
+            to++;
+        }
+        while (from > windowStart) {
+            int size = sizeOf(items[from - 1]);
+            if (budget + size > MESSAGE_BUDGET_BYTES) {
+                break;
+            }
+            budget += size;
+            from--;
+        }
+        mWindowStart = from;
+        mWindowEnd = to;
+        mLoadedFrom = from;
+        mLoadedTo = to;
+        mNextAppend = to;
+        mNextPrepend = from;
+    }
+
+    /**
+     * Returns {@code true} if the queue does not fit in the first window and needs batches.
+     */
+    boolean isWindowed() {
+        return mWindowStart > 0 || mWindowEnd < mItems.length;
+    }
+
+    MediaQueueItem[] getWindow() {
+        return Arrays.copyOfRange(mItems, mWindowStart, mWindowEnd);
+    }
+
+    int getStartIndexInWindow() {
+        return mStartIndex - mWindowStart;
+    }
+
+    /**
+     * Returns the next batch to send, or {@code null} if all the items have been batched. The
+     * items that follow the window come first, then the ones that precede it, the last ones first;
+     * each item is sized only when its batch is built.
+     */
+    synchronized Batch nextBatch() {
+        if (mNextAppend < mItems.length) {
+            int start = mNextAppend;
+            int end = start;
+            int batchSize = 0;
+            do {
+                batchSize += sizeOf(mItems[end++]);
+            } while (end < mItems.length && batchSize + sizeOf(mItems[end]) <= MESSAGE_BUDGET_BYTES);
+            mNextAppend = end;
+            return new Batch(start, end, false, Arrays.copyOfRange(mItems, start, end));
+        }
+        if (mNextPrepend > 0) {
+            int end = mNextPrepend;
+            int start = end;
+            int batchSize = 0;
+            do {
+                batchSize += sizeOf(mItems[--start]);
+            } while (start > 0 && batchSize + sizeOf(mItems[start - 1]) <= MESSAGE_BUDGET_BYTES);
+            mNextPrepend = start;
+            return new Batch(start, end, true, Arrays.copyOfRange(mItems, start, end));
+        }
+        return null;
+    }
+
+    synchronized void onWindowLoaded() {
+        mWindowLoaded = true;
+    }
+
+    /**
+     * Returns {@code true} once the receiver has loaded the first window; until then, it may still
+     * report the previous queue.
+     */
+    synchronized boolean isWindowLoaded() {
+        return mWindowLoaded;
+    }
+
+    synchronized void onBatchSent(Batch batch) {
+        mInFlight = batch;
+    }
+
+    synchronized void onBatchCompleted(Batch batch) {
+        if (batch.mPrepend) {
+            mLoadedFrom = batch.mFrom;
+        } else {
+            mLoadedTo = batch.mTo;
+        }
+        if (mInFlight == batch) {
+            mInFlight = null;
+        }
+    }
+
+    /**
+     * Returns the whole queue, with the items reported by the receiver in place of the ones that
+     * have been sent, or {@code null} if the reported items are not a part of this queue (e.g.
+     * because another sender has edited it).
+     */
+    synchronized List<MediaQueueItem> merge(List<MediaQueueItem> receiverItems) {
+        if (receiverItems == null || receiverItems.isEmpty()) {
+            return null;
+        }
+        int from = mLoadedFrom;
+        int to = mLoadedTo;
+        if (!isRangeOf(receiverItems, from, to) && mInFlight != null) {
+            // the status of a batch may arrive before its result
+            if (mInFlight.mPrepend) {
+                from = mInFlight.mFrom;
+            } else {
+                to = mInFlight.mTo;
+            }
+        }
+        if (!isRangeOf(receiverItems, from, to)) {
+            return null;
+        }
+        List<MediaQueueItem> merged = new ArrayList<>(mItems.length);
+        merged.addAll(Arrays.asList(mItems).subList(0, from));
+        merged.addAll(receiverItems);
+        merged.addAll(Arrays.asList(mItems).subList(to, mItems.length));
+        return merged;
+    }
+
+    private boolean isRangeOf(List<MediaQueueItem> receiverItems, int from, int to) {
+        int count = receiverItems.size();
+        return count == to - from && isSameContent(receiverItems.get(0), mItems[from])
+                && isSameContent(receiverItems.get(count - 1), mItems[to - 1]);
+    }
+
+    private static boolean isSameContent(MediaQueueItem a, MediaQueueItem b) {
+        MediaInfo first = a.getMedia();
+        MediaInfo second = b.getMedia();
+        if (first == null || second == null) {
+            return first == second;
+        }
+        String id = first.getContentId();
+        return id == null ? second.getContentId() == null : id.equals(second.getContentId());
+    }
+
+    private static int sizeOf(MediaQueueItem item) {
+        return item.toJson().toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+}
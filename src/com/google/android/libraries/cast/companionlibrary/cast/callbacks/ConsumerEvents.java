@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.cast.callbacks;
+
+/**
+ * The identifiers of the events that the cast managers deliver to their consumers; each one
+ * stands for the callback of the same name in {@link BaseCastConsumer}, {@link VideoCastConsumer}
+ * or {@link DataCastConsumer}.
+ */
+public final class ConsumerEvents {
+
+    // BaseCastConsumer
+    public static final int EVENT_CONNECTED = 0;
+    public static final int EVENT_CONNECTION_SUSPENDED = 1;
+    public static final int EVENT_DISCONNECTED = 2;
+    public static final int EVENT_DISCONNECTION_REASON = 3;
+    public static final int EVENT_CONNECTION_FAILED = 4;
+    public static final int EVENT_CAST_DEVICE_DETECTED = 5;
+    public static final int EVENT_CAST_AVAILABILITY_CHANGED = 6;
+    public static final int EVENT_ROUTE_REMOVED = 7;
+    public static final int EVENT_CONNECTIVITY_RECOVERED = 8;
+    public static final int EVENT_UI_VISIBILITY_CHANGED = 9;
+    public static final int EVENT_RECONNECTION_STATUS_CHANGED = 10;
+    public static final int EVENT_DEVICE_SELECTED = 11;
+    public static final int EVENT_FAILED = 12;
+
+    // VideoCastConsumer and DataCastConsumer
+    public static final int EVENT_APPLICATION_CONNECTED = 13;
+    public static final int EVENT_APPLICATION_CONNECTION_FAILED = 14;
+    public static final int EVENT_APPLICATION_STOP_FAILED = 15;
+    public static final int EVENT_APPLICATION_STATUS_CHANGED = 16;
+    public static final int EVENT_APPLICATION_DISCONNECTED = 17;
+    public static final int EVENT_VOLUME_CHANGED = 18;
+
+    // VideoCastConsumer
+    public static final int EVENT_REMOTE_MEDIA_PLAYER_METADATA_UPDATED = 19;
+    public static final int EVENT_REMOTE_MEDIA_PLAYER_STATUS_UPDATED = 20;
+    public static final int EVENT_NAMESPACE_REMOVED = 21;
+    public static final int EVENT_DATA_MESSAGE_SEND_FAILED = 22;
+    public static final int EVENT_DATA_MESSAGE_RECEIVED = 23;
+    public static final int EVENT_TEXT_TRACK_STYLE_CHANGED = 24;
+    public static final int EVENT_TEXT_TRACK_ENABLED_CHANGED = 25;
+    public static final int EVENT_TEXT_TRACK_LOCALE_CHANGED = 26;
+    public static final int EVENT_MEDIA_LOAD_RESULT = 27;
+    public static final int EVENT_MEDIA_QUEUE_UPDATED = 28;
+    public static final int EVENT_REMOTE_MEDIA_PRELOAD_STATUS_UPDATED = 29;
+    public static final int EVENT_UPCOMING_PLAY_CLICKED = 30;
+    public static final int EVENT_UPCOMING_STOP_CLICKED = 31;
+    public static final int EVENT_MEDIA_QUEUE_OPERATION_RESULT = 32;
+
+    // DataCastConsumer
+    public static final int EVENT_MESSAGE_RECEIVED = 33;
+    public static final int EVENT_MESSAGE_SEND_FAILED = 34;
+    public static final int EVENT_REMOVED = 35;
+
+    public static final int EVENT_COUNT = 36;
+
+    /**
+     * The events that a {@link BaseCastConsumer} can receive.
+     */
+    public static final long BASE_EVENTS = (1L << EVENT_APPLICATION_CONNECTED) - 1;
+
+    /**
+     * The events that a {@link VideoCastConsumer} can receive.
+     */
+    public static final long VIDEO_EVENTS = (1L << EVENT_MESSAGE_RECEIVED) - 1;
+
+    /**
+     * The events that a {@link DataCastConsumer} can receive.
+     */
+    public static final long DATA_EVENTS = BASE_EVENTS
+            | ((1L << EVENT_REMOTE_MEDIA_PLAYER_METADATA_UPDATED) - (1L << EVENT_APPLICATION_CONNECTED))
+            | ((1L << EVENT_COUNT) - (1L << EVENT_MESSAGE_RECEIVED));
+
+    /*
+     * The events that report a state rather than something that happened: only the latest one
+     * matters, so a consumer that lags behind can skip the older ones.
+     */
+    private static final long STATE_EVENTS = (1L << EVENT_CAST_AVAILABILITY_CHANGED)
+            | (1L << EVENT_UI_VISIBILITY_CHANGED)
+            | (1L << EVENT_RECONNECTION_STATUS_CHANGED)
+            | (1L << EVENT_APPLICATION_STATUS_CHANGED)
+            | (1L << EVENT_VOLUME_CHANGED)
+            | (1L << EVENT_REMOTE_MEDIA_PLAYER_METADATA_UPDATED)
+            | (1L << EVENT_REMOTE_MEDIA_PLAYER_STATUS_UPDATED)
+            | (1L << EVENT_TEXT_TRACK_STYLE_CHANGED)
+            | (1L << EVENT_TEXT_TRACK_ENABLED_CHANGED)
+            | (1L << EVENT_TEXT_TRACK_LOCALE_CHANGED)
+            | (1L << EVENT_MEDIA_QUEUE_UPDATED)
+            | (1L << EVENT_REMOTE_MEDIA_PRELOAD_STATUS_UPDATED);
+
+    private ConsumerEvents() {
+    }
+
+    /**
+     * Returns the mask of the given events, e.g. to register a consumer only for the callbacks it
+     * overrides.
+     */
+    public static long maskOf(int... events) {
+        long mask = 0;
+        for (int event : events) {
+            if (event < 0 || event >= EVENT_COUNT) {
+                throw new IllegalArgumentException("Invalid event " + event);
+            }
+            mask |= 1L << event;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns {@code true} if {@code event} reports a state, so that only its latest occurrence
+     * needs to be delivered.
+     */
+    public static boolean isStateEvent(int event) {
+        return (STATE_EVENTS & (1L << event)) != 0;
+    }
+}
@@ -132,6 +132,10 @@ public interface VideoCastConsumer extends BaseCastConsumer {
 
     /**
      * A callback to inform the clients that queue has been updated.
+     * <p>
+     * While a large queue is being loaded in batches, {@code queueItems} holds the whole queue:
+     * the items that have not been sent to the receiver yet are included at their final position,
+     * with {@link MediaQueueItem#INVALID_ITEM_ID} as their id until a later update.
      *
      * @param queueItems The updated list of queue items
      * @param item The item that was updated
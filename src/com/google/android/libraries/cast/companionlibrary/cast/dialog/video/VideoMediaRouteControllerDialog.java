@@ -18,8 +18,6 @@ package com.google.android.libraries.cast.companionlibrary.cast.dialog.video;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
@@ -37,11 +35,14 @@ import com.google.android.gms.cast.MediaStatus;
 import com.google.android.libraries.cast.companionlibrary.R;
 import com.google.android.libraries.cast.companionlibrary.cast.CastManagerBuilder;
 import com.google.android.libraries.cast.companionlibrary.cast.VideoCastManager;
+import com.google.android.libraries.cast.companionlibrary.cast.callbacks.ConsumerEvents;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.VideoCastConsumerImpl;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
+import com.google.android.libraries.cast.companionlibrary.utils.ArtworkRequests;
 import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.PlaceholderArtwork;
 
 
 import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
@@ -106,7 +107,9 @@ public class VideoMediaRouteControllerDialog extends MediaRouteControllerDialog
                 }
 
             };
-            mCastManager.addVideoCastConsumer(mCastConsumerImpl);
+            mCastManager.addVideoCastConsumer(mCastConsumerImpl, ConsumerEvents.maskOf(
+                    ConsumerEvents.EVENT_REMOTE_MEDIA_PLAYER_STATUS_UPDATED,
+                    ConsumerEvents.EVENT_REMOTE_MEDIA_PLAYER_METADATA_UPDATED));
             mPauseDrawable = context.getResources().getDrawable(R.drawable.ic_media_route_controller_pause);
             mPlayDrawable = context.getResources().getDrawable(R.drawable.ic_media_route_controller_play);
             mStopDrawable = context.getResources().getDrawable(R.drawable.ic_media_route_controller_stop);
@@ -166,11 +169,11 @@ public class VideoMediaRouteControllerDialog extends MediaRouteControllerDialog
         }
         mIconUri = uri;
         if (uri == null) {
-            Bitmap bm = BitmapFactory.decodeResource(mContext.getResources(), R.drawable.album_art_placeholder);
-            mIcon.setImageBitmap(bm);
+            mIcon.setImageBitmap(PlaceholderArtwork.getBitmap(mContext, ArtworkRequests.TIER_THUMBNAIL));
             return;
         }
-        Glide.with(getContext()).load(mIconUri).into(mIcon);
+        ArtworkRequests.load(Glide.with(getContext()), mIconUri, getContext(), ArtworkRequests.TIER_THUMBNAIL)
+                .into(mIcon);
     }
 
     private void updatePlayPauseState(int state) {
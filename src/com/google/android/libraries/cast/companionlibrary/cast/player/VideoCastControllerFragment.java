@@ -21,8 +21,6 @@ import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.DialogInterface;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Point;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -37,7 +35,6 @@ import android.view.View;
 import android.widget.SeekBar;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.SimpleTarget;
 import com.bumptech.glide.request.transition.Transition;
 import com.google.android.gms.cast.CastStatusCodes;
@@ -50,21 +47,24 @@ import com.google.android.gms.cast.RemoteMediaPlayer;
 import com.google.android.libraries.cast.companionlibrary.R;
 import com.google.android.libraries.cast.companionlibrary.cast.CastConfiguration;
 import com.google.android.libraries.cast.companionlibrary.cast.CastManagerBuilder;
+import com.google.android.libraries.cast.companionlibrary.cast.CastState;
 import com.google.android.libraries.cast.companionlibrary.cast.MediaQueue;
 import com.google.android.libraries.cast.companionlibrary.cast.VideoCastManager;
+import com.google.android.libraries.cast.companionlibrary.cast.callbacks.ConsumerEvents;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.VideoCastConsumerImpl;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
+import com.google.android.libraries.cast.companionlibrary.utils.ArtworkRequests;
 import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.PlaceholderArtwork;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
 import com.google.android.libraries.cast.companionlibrary.utils.Utils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
 
 import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
@@ -85,21 +85,21 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
 
     private static final String EXTRAS = "extras";
     private static final String TAG = LogUtils.makeLogTag(VideoCastControllerFragment.class);
+    private static final long SEEKBAR_UPDATE_INTERVAL_MS = 1000;
     private MediaInfo mSelectedMedia;
     private VideoCastManager mCastManager;
     private MediaAuthService mMediaAuthService;
     private Thread mAuthThread;
-    private Timer mMediaAuthTimer;
+    private TickBus.Subscription mMediaAuthTimer;
     private Handler mHandler;
     protected boolean mAuthSuccess = true;
     private VideoCastController mCastController;
-    private Timer mSeekbarTimer;
+    private TickBus.Subscription mSeekbarTimer;
     private int mPlaybackState;
     private MyCastConsumer mCastConsumer;
     private OverallState mOverallState = OverallState.UNKNOWN;
     private static boolean sDialogCanceled = false;
     private boolean mIsFresh = true;
-    private MediaStatus mMediaStatus;
     private SimpleTarget<Bitmap> target = new SimpleTarget<Bitmap>() {
         @Override
         public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
@@ -190,14 +190,14 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
         mAuthThread.start();
 
         // start a timeout timer; we don't want authorization process to take too long
-        mMediaAuthTimer = new Timer();
-        mMediaAuthTimer.schedule(new MediaAuthServiceTimerTask(mAuthThread), authService.getTimeout());
+        mMediaAuthTimer = TickBus.getInstance().schedule(new MediaAuthServiceTimerTask(mAuthThread),
+                authService.getTimeout(), TickBus.LANE_MAIN);
     }
 
     /*
-     * A TimerTask that will be called when the auth timer expires
+     * A task that will be called on the main thread when the auth timer expires
      */
-    class MediaAuthServiceTimerTask extends TimerTask {
+    class MediaAuthServiceTimerTask implements Runnable {
 
         private final Thread mThread;
 
@@ -210,19 +210,12 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
             if (mThread != null) {
                 LOGD(TAG, "Timer is expired, going to interrupt the thread");
                 mThread.interrupt();
-                mHandler.post(new Runnable() {
-
-                    @Override
-                    public void run() {
-                        mCastController.showLoading(false);
-                        showErrorDialog(getString(R.string.ccl_failed_authorization_timeout));
-                        mAuthSuccess = false;
-                        if ((mMediaAuthService != null) && (mMediaAuthService.getStatus() == MediaAuthStatus.PENDING)) {
-                            mMediaAuthService.abortAuthorization(MediaAuthStatus.TIMED_OUT);
-                        }
-                    }
-                });
-
+                mCastController.showLoading(false);
+                showErrorDialog(getString(R.string.ccl_failed_authorization_timeout));
+                mAuthSuccess = false;
+                if ((mMediaAuthService != null) && (mMediaAuthService.getStatus() == MediaAuthStatus.PENDING)) {
+                    mMediaAuthService.abortAuthorization(MediaAuthStatus.TIMED_OUT);
+                }
             }
         }
 
@@ -281,9 +274,10 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
 
             int size = 0;
             int position = 0;
-            if (queueItems != null) {
-                size = queueItems.size();
-                position = queueItems.indexOf(item);
+            MediaQueue mediaQueue = mCastManager.getCastState().getMediaQueue();
+            if (mediaQueue != null) {
+                size = mediaQueue.getCount();
+                position = mediaQueue.getCurrentItemPosition();
             }
             mCastController.onQueueItemsUpdated(size, position);
         }
@@ -300,37 +294,30 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
 
     }
 
-    private class UpdateSeekbarTask extends TimerTask {
+    private class UpdateSeekbarTask implements TickBus.TickListener {
 
         @Override
-        public void run() {
-            mHandler.post(new Runnable() {
-
-                @Override
-                public void run() {
-                    int currentPos;
-                    if (mPlaybackState == MediaStatus.PLAYER_STATE_BUFFERING) {
-                        return;
-                    }
-                    if (!mCastManager.isConnected()) {
-                        return;
-                    }
+        public void onTick(long uptimeMillis) {
+            int currentPos;
+            if (mPlaybackState == MediaStatus.PLAYER_STATE_BUFFERING) {
+                return;
+            }
+            if (!mCastManager.isConnected()) {
+                return;
+            }
+            try {
+                int duration = (int) mCastManager.getMediaDuration();
+                if (duration > 0) {
                     try {
-                        int duration = (int) mCastManager.getMediaDuration();
-                        if (duration > 0) {
-                            try {
-                                currentPos = (int) mCastManager.getCurrentMediaPosition();
-                                mCastController.updateSeekbar(currentPos, duration);
-                            } catch (Exception e) {
-                                LOGE(TAG, "Failed to get current media position", e);
-                            }
-                        }
-                    } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-                        LOGE(TAG, "Failed to update the progress bar due to network issues", e);
+                        currentPos = (int) mCastManager.getCurrentMediaPosition();
+                        mCastController.updateSeekbar(currentPos, duration);
+                    } catch (Exception e) {
+                        LOGE(TAG, "Failed to get current media position", e);
                     }
-
                 }
-            });
+            } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
+                LOGE(TAG, "Failed to update the progress bar due to network issues", e);
+            }
         }
     }
 
@@ -366,7 +353,7 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
             LOGE(TAG, "Failed to get playback and media information", e);
             mCastController.closeActivity();
         }
-        MediaQueue mediaQueue = mCastManager.getMediaQueue();
+        MediaQueue mediaQueue = mCastManager.getCastState().getMediaQueue();
         int size = 0;
         int position = 0;
         if (mediaQueue != null) {
@@ -395,13 +382,13 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
         LOGD(TAG, "Stopped TrickPlay Timer");
         if (mSeekbarTimer != null) {
             mSeekbarTimer.cancel();
+            mSeekbarTimer = null;
         }
     }
 
     private void restartTrickplayTimer() {
         stopTrickplayTimer();
-        mSeekbarTimer = new Timer();
-        mSeekbarTimer.scheduleAtFixedRate(new UpdateSeekbarTask(), 100, 1000);
+        mSeekbarTimer = TickBus.getInstance().subscribe(this, new UpdateSeekbarTask(), SEEKBAR_UPDATE_INTERVAL_MS);
         LOGD(TAG, "Restarted TrickPlay Timer");
     }
 
@@ -445,8 +432,8 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
     }
 
     private void updatePlayerStatus() {
-        int mediaStatus = mCastManager.getPlaybackStatus();
-        mMediaStatus = mCastManager.getMediaStatus();
+        CastState state = mCastManager.getCastState();
+        int mediaStatus = state.getPlayerState();
         LOGD(TAG, "updatePlayerStatus(), state: " + mediaStatus);
         if (mSelectedMedia == null) {
             return;
@@ -455,7 +442,7 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
         if (mediaStatus == MediaStatus.PLAYER_STATE_BUFFERING) {
             mCastController.setSubTitle(getString(R.string.ccl_loading));
         } else {
-            mCastController.setSubTitle(getString(R.string.ccl_casting_to_device, mCastManager.getDeviceName()));
+            mCastController.setSubTitle(getString(R.string.ccl_casting_to_device, state.getDeviceName()));
         }
         switch (mediaStatus) {
             case MediaStatus.PLAYER_STATE_PLAYING:
@@ -480,26 +467,21 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
                 }
                 break;
             case MediaStatus.PLAYER_STATE_IDLE:
-                LOGD(TAG, "Idle Reason: " + (mCastManager.getIdleReason()));
-                switch (mCastManager.getIdleReason()) {
+                LOGD(TAG, "Idle Reason: " + state.getIdleReason());
+                switch (state.getIdleReason()) {
                     case MediaStatus.IDLE_REASON_FINISHED:
-                        if (!mIsFresh && (mMediaStatus == null || mMediaStatus.getLoadingItemId() == MediaQueueItem
-                                .INVALID_ITEM_ID)) {
+                        if (!mIsFresh && state.getLoadingItemId() == MediaQueueItem.INVALID_ITEM_ID) {
                             mCastController.closeActivity();
                         }
                         break;
                     case MediaStatus.IDLE_REASON_CANCELED:
-                        try {
-                            if (mCastManager.isRemoteStreamLive()) {
-                                if (mPlaybackState != MediaStatus.PLAYER_STATE_IDLE) {
-                                    mPlaybackState = MediaStatus.PLAYER_STATE_IDLE;
-                                    mCastController.setPlaybackStatus(mPlaybackState);
-                                }
-                            } else {
-                                mCastController.closeActivity();
+                        if (state.isRemoteStreamLive()) {
+                            if (mPlaybackState != MediaStatus.PLAYER_STATE_IDLE) {
+                                mPlaybackState = MediaStatus.PLAYER_STATE_IDLE;
+                                mCastController.setPlaybackStatus(mPlaybackState);
                             }
-                        } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-                            LOGD(TAG, "Failed to determine if stream is live", e);
+                        } else {
+                            mCastController.closeActivity();
                         }
                         break;
                     case MediaStatus.IDLE_REASON_INTERRUPTED:
@@ -545,8 +527,13 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
                     return;
                 }
             }
-            mMediaStatus = mCastManager.getMediaStatus();
-            mCastManager.addVideoCastConsumer(mCastConsumer);
+            mCastManager.addVideoCastConsumer(mCastConsumer, ConsumerEvents.maskOf(
+                    ConsumerEvents.EVENT_DISCONNECTED, ConsumerEvents.EVENT_APPLICATION_DISCONNECTED,
+                    ConsumerEvents.EVENT_REMOTE_MEDIA_PLAYER_METADATA_UPDATED,
+                    ConsumerEvents.EVENT_MEDIA_LOAD_RESULT, ConsumerEvents.EVENT_FAILED,
+                    ConsumerEvents.EVENT_REMOTE_MEDIA_PLAYER_STATUS_UPDATED,
+                    ConsumerEvents.EVENT_MEDIA_QUEUE_UPDATED, ConsumerEvents.EVENT_CONNECTION_SUSPENDED,
+                    ConsumerEvents.EVENT_CONNECTIVITY_RECOVERED));
             if (!mIsFresh) {
                 updatePlayerStatus();
                 // updating metadata in case another client has changed it and we are resuming the
@@ -590,14 +577,11 @@ public class VideoCastControllerFragment extends Fragment implements OnVideoCast
      */
     private void showImage(final Uri uri) {
         if (uri == null && getActivity() != null) {
-            mCastController.setImage(BitmapFactory.decodeResource(getActivity().getResources(), R.drawable
-                    .album_art_placeholder_large));
+            mCastController.setImage(PlaceholderArtwork.getBitmap(getActivity(), ArtworkRequests.TIER_FULL_SCREEN));
             return;
         }
         Glide.with(this).clear(target);
-        Point screenSize = Utils.getDisplaySize(getActivity());
-        RequestOptions myOptions = new RequestOptions().override(screenSize.x, screenSize.y);
-        Glide.with(this).asBitmap().load(uri).apply(myOptions).into(target);
+        ArtworkRequests.load(Glide.with(this), uri, getActivity(), ArtworkRequests.TIER_FULL_SCREEN).into(target);
     }
 
     /**
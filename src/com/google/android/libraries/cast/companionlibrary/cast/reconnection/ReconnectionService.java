@@ -33,13 +33,9 @@ import com.google.android.libraries.cast.companionlibrary.cast.VideoCastManager;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
 import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
 import com.google.android.libraries.cast.companionlibrary.utils.Utils;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-
 
 import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
 import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
@@ -63,8 +59,7 @@ public class ReconnectionService extends Service {
     private VideoCastManager mCastManager;
     private BroadcastReceiver mWifiBroadcastReceiver;
     private boolean mWifiConnectivity = true;
-    private ScheduledFuture<?> mTerminationHandler;
-    private final ScheduledExecutorService mScheduler = Executors.newScheduledThreadPool(1);
+    private TickBus.Subscription mTerminationHandler;
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
@@ -151,6 +146,10 @@ public class ReconnectionService extends Service {
         }
 
         clearEndTimer();
+        if (mCastManager != null) {
+            mCastManager.onReconnectionServiceStopped();
+            mCastManager = null;
+        }
         super.onDestroy();
     }
 
@@ -178,13 +177,14 @@ public class ReconnectionService extends Service {
             return;
         }
         clearEndTimer();
-        mTerminationHandler = mScheduler
-                .schedule(mTerminationRunnable, timeLeft, TimeUnit.MILLISECONDS);
+        mTerminationHandler = TickBus.getInstance()
+                .schedule(mTerminationRunnable, timeLeft, TickBus.LANE_BACKGROUND);
     }
 
     private void clearEndTimer() {
-        if (mTerminationHandler != null && !mTerminationHandler.isCancelled()) {
-            mTerminationHandler.cancel(true);
+        if (mTerminationHandler != null) {
+            mTerminationHandler.cancel();
+            mTerminationHandler = null;
         }
     }
 
@@ -28,9 +28,11 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.os.SystemClock;
+import android.support.v4.media.session.MediaSessionCompat;
+import android.text.TextUtils;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.SimpleTarget;
 import com.bumptech.glide.request.transition.Transition;
 import com.google.android.gms.cast.MediaInfo;
@@ -40,17 +42,23 @@ import com.google.android.gms.cast.MediaStatus;
 import com.google.android.libraries.cast.companionlibrary.R;
 import com.google.android.libraries.cast.companionlibrary.cast.CastConfiguration;
 import com.google.android.libraries.cast.companionlibrary.cast.CastManagerBuilder;
+import com.google.android.libraries.cast.companionlibrary.cast.CastState;
 import com.google.android.libraries.cast.companionlibrary.cast.MediaQueue;
 import com.google.android.libraries.cast.companionlibrary.cast.VideoCastManager;
+import com.google.android.libraries.cast.companionlibrary.cast.callbacks.ConsumerEvents;
 import com.google.android.libraries.cast.companionlibrary.cast.callbacks.VideoCastConsumerImpl;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
 import com.google.android.libraries.cast.companionlibrary.remotecontrol.VideoIntentReceiver;
+import com.google.android.libraries.cast.companionlibrary.utils.ArtworkRequests;
 import com.google.android.libraries.cast.companionlibrary.utils.LogUtils;
+import com.google.android.libraries.cast.companionlibrary.utils.TickBus;
 import com.google.android.libraries.cast.companionlibrary.utils.Utils;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
@@ -89,6 +97,14 @@ public class VideoCastNotificationService extends Service {
     private static final long TEN_SECONDS_MILLIS = TimeUnit.SECONDS.toMillis(10);
     private static final long THIRTY_SECONDS_MILLIS = TimeUnit.SECONDS.toMillis(30);
 
+    /*
+     * The system drops the updates of a notification that come faster than a few per second, so
+     * they are spaced by at least this much; the one that is sent is always the latest.
+     */
+    private static final long MIN_UPDATE_INTERVAL_MS = 250;
+
+    private static volatile boolean sChannelCreated;
+
     private boolean mIsPlaying;
     private Class<?> mTargetActivity;
     private int mOldStatus = -1;
@@ -96,7 +112,6 @@ public class VideoCastNotificationService extends Service {
     private boolean mVisible;
     protected VideoCastManager mCastManager;
     private VideoCastConsumerImpl mConsumer;
-    private int mDimensionInPixels;
     private boolean mHasNext;
     private boolean mHasPrev;
     private List<Integer> mNotificationActions;
@@ -104,6 +119,21 @@ public class VideoCastNotificationService extends Service {
     private long mForwardTimeInMillis;
     private MediaInfo mediaInfo;
     private boolean isServiceIdle;
+    private final Map<String, PendingIntent> mActionIntents = new HashMap<>();
+    private MediaInfo mContentIntentMedia;
+    private PendingIntent mContentIntent;
+    private RenderKey mRenderKey;
+    private NotificationCompat.Builder mBuilder;
+    private long mLastUpdateTime;
+    private Notification mPostedNotification;
+    private TickBus.Subscription mPendingUpdate;
+    private final Runnable mUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mPendingUpdate = null;
+            updateNotification();
+        }
+    };
     private SimpleTarget<Bitmap> bitmapTarget = new SimpleTarget<Bitmap>() {
         @Override
         public void onResourceReady(@NonNull Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
@@ -126,17 +156,16 @@ public class VideoCastNotificationService extends Service {
         LOGD(TAG, "cast notification created");
         super.onCreate();
         mCastManager = CastManagerBuilder.getCastManager();
-        mDimensionInPixels = Utils.convertDpToPixel(VideoCastNotificationService.this, getResources().getDimension(R
-                .dimen.ccl_notification_image_size));
         readPersistedData();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             setUpNotification();
             startForeground(NOTIFICATION_ID, mNotification);
+            mPostedNotification = mNotification;
         }
         if (!mCastManager.isConnected() && !mCastManager.isConnecting()) {
             mCastManager.reconnectSessionIfPossible();
         }
-        MediaQueue mediaQueue = mCastManager.getMediaQueue();
+        MediaQueue mediaQueue = mCastManager.getCastState().getMediaQueue();
         if (mediaQueue != null) {
             int position = mediaQueue.getCurrentItemPosition();
             int size = mediaQueue.getCount();
@@ -158,7 +187,7 @@ public class VideoCastNotificationService extends Service {
 
             @Override
             public void onRemoteMediaPlayerStatusUpdated() {
-                int mediaStatus = mCastManager.getPlaybackStatus();
+                int mediaStatus = mCastManager.getCastState().getPlayerState();
                 VideoCastNotificationService.this.onRemoteMediaPlayerStatusUpdated(mediaStatus);
             }
 
@@ -168,11 +197,7 @@ public class VideoCastNotificationService extends Service {
                 mVisible = !visible;
 
                 if (mNotification == null) {
-                    try {
-                        setUpNotification(mCastManager.getRemoteMediaInformation());
-                    } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-                        LOGE(TAG, "onStartCommand() failed to get media", e);
-                    }
+                    setUpNotification(mCastManager.getCastState().getMediaInfo());
                 }
                 if (mVisible && mNotification != null) {
                     serviceActive();
@@ -186,15 +211,19 @@ public class VideoCastNotificationService extends Service {
                                             boolean shuffle) {
                 int size = 0;
                 int position = 0;
-                if (queueItems != null) {
-                    size = queueItems.size();
-                    position = queueItems.indexOf(item);
+                MediaQueue mediaQueue = mCastManager.getCastState().getMediaQueue();
+                if (mediaQueue != null) {
+                    size = mediaQueue.getCount();
+                    position = mediaQueue.getCurrentItemPosition();
                 }
                 mHasNext = position < (size - 1);
                 mHasPrev = position > 0;
             }
         };
-        mCastManager.addVideoCastConsumer(mConsumer);
+        mCastManager.addVideoCastConsumer(mConsumer, ConsumerEvents.maskOf(
+                ConsumerEvents.EVENT_APPLICATION_DISCONNECTED, ConsumerEvents.EVENT_DISCONNECTED,
+                ConsumerEvents.EVENT_REMOTE_MEDIA_PLAYER_STATUS_UPDATED,
+                ConsumerEvents.EVENT_UI_VISIBILITY_CHANGED, ConsumerEvents.EVENT_MEDIA_QUEUE_UPDATED));
         mNotificationActions = mCastManager.getCastConfiguration().getNotificationActions();
         List<Integer> notificationCompactActions = mCastManager.getCastConfiguration().getNotificationCompactActions();
         if (notificationCompactActions != null) {
@@ -219,13 +248,10 @@ public class VideoCastNotificationService extends Service {
             if (ACTION_VISIBILITY.equals(action)) {
                 mVisible = intent.getBooleanExtra(NOTIFICATION_VISIBILITY, false);
                 LOGD(TAG, "onStartCommand(): Action: ACTION_VISIBILITY " + mVisible);
-                onRemoteMediaPlayerStatusUpdated(mCastManager.getPlaybackStatus());
+                CastState state = mCastManager.getCastState();
+                onRemoteMediaPlayerStatusUpdated(state.getPlayerState());
                 if (mNotification == null) {
-                    try {
-                        setUpNotification(mCastManager.getRemoteMediaInformation());
-                    } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-                        LOGE(TAG, "onStartCommand() failed to get media", e);
-                    }
+                    setUpNotification(state.getMediaInfo());
                 }
                 if (mVisible && mNotification != null) {
                     serviceActive();
@@ -239,8 +265,11 @@ public class VideoCastNotificationService extends Service {
     }
 
     private void setUpNotification() {
-        String castingTo = getResources().getString(R.string.ccl_casting_to_device, mCastManager.getDeviceName());
-        createNotificationChannel(this);
+        String castingTo = getResources().getString(R.string.ccl_casting_to_device,
+                mCastManager.getCastState().getDeviceName());
+        ensureNotificationChannel();
+        mRenderKey = null;
+        mBuilder = null;
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this, "cast").setSmallIcon(R.drawable
                 .ic_stat_action_notification)
                 .setContentTitle(getString(R.string.ccl_notification_waiting))
@@ -254,8 +283,7 @@ public class VideoCastNotificationService extends Service {
         mNotification = builder.build();
     }
 
-    private void setUpNotification(final MediaInfo info) throws TransientNetworkDisconnectionException,
-            NoConnectionException {
+    private void setUpNotification(final MediaInfo info) {
         if (info == null) {
             return;
         }
@@ -263,13 +291,13 @@ public class VideoCastNotificationService extends Service {
         if (!info.getMetadata().hasImages()) {
             try {
                 build(info, null, mIsPlaying);
-            } catch (CastException e) {
+            } catch (CastException | NoConnectionException | TransientNetworkDisconnectionException e) {
                 LOGE(TAG, "Failed to build notification", e);
             }
         } else {
-            Uri imgUri = info.getMetadata().getImages().get(0).getUrl();
-            RequestOptions options = new RequestOptions().override(mDimensionInPixels, mDimensionInPixels).centerCrop();
-            Glide.with(getApplicationContext()).asBitmap().load(imgUri).apply(options).into(bitmapTarget);
+            Uri imgUri = ArtworkRequests.getIconUri(info);
+            ArtworkRequests.load(Glide.with(getApplicationContext()), imgUri, this, ArtworkRequests.TIER_THUMBNAIL)
+                    .into(bitmapTarget);
         }
     }
 
@@ -280,12 +308,35 @@ public class VideoCastNotificationService extends Service {
         NotificationManager mng = ((NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE));
         if (mng != null)
             mng.cancel(NOTIFICATION_ID);
+        mPostedNotification = null;
     }
 
     private void updateNotification() {
+        if (mNotification == null || mNotification == mPostedNotification) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        long wait = mLastUpdateTime + MIN_UPDATE_INTERVAL_MS - now;
+        if (wait > 0) {
+            // the pending update posts mNotification as it is when it runs
+            if (mPendingUpdate == null) {
+                mPendingUpdate = TickBus.getInstance().schedule(mUpdateRunnable, wait, TickBus.LANE_MAIN);
+            }
+            return;
+        }
+        mLastUpdateTime = now;
         NotificationManager mng = ((NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE));
-        if (mng != null)
+        if (mng != null) {
             mng.notify(NOTIFICATION_ID, mNotification);
+            mPostedNotification = mNotification;
+        }
+    }
+
+    private void cancelPendingUpdate() {
+        if (mPendingUpdate != null) {
+            mPendingUpdate.cancel();
+            mPendingUpdate = null;
+        }
     }
 
     protected void onRemoteMediaPlayerStatusUpdated(int mediaStatus) {
@@ -295,37 +346,35 @@ public class VideoCastNotificationService extends Service {
         }
         mOldStatus = mediaStatus;
         LOGD(TAG, "onRemoteMediaPlayerStatusUpdated() reached with status: " + mediaStatus);
-        try {
-            switch (mediaStatus) {
-                case MediaStatus.PLAYER_STATE_BUFFERING: // (== 4)
-                    mIsPlaying = false;
-                    setUpNotification(mCastManager.getRemoteMediaInformation());
-                    break;
-                case MediaStatus.PLAYER_STATE_PLAYING: // (== 2)
-                    mIsPlaying = true;
-                    setUpNotification(mCastManager.getRemoteMediaInformation());
-                    break;
-                case MediaStatus.PLAYER_STATE_PAUSED: // (== 3)
-                    mIsPlaying = false;
-                    setUpNotification(mCastManager.getRemoteMediaInformation());
-                    break;
-                case MediaStatus.PLAYER_STATE_IDLE: // (== 1)
-                    mIsPlaying = false;
-                    if (!mCastManager.shouldRemoteUiBeVisible(mediaStatus, mCastManager.getIdleReason())) {
-                        serviceIdle();
-                    } else {
-                        setUpNotification(mCastManager.getRemoteMediaInformation());
-                    }
-                    break;
-                case MediaStatus.PLAYER_STATE_UNKNOWN: // (== 0)
-                    mIsPlaying = false;
+        // a single snapshot, so that the media matches the state
+        CastState state = mCastManager.getCastState();
+        switch (mediaStatus) {
+            case MediaStatus.PLAYER_STATE_BUFFERING: // (== 4)
+                mIsPlaying = false;
+                setUpNotification(state.getMediaInfo());
+                break;
+            case MediaStatus.PLAYER_STATE_PLAYING: // (== 2)
+                mIsPlaying = true;
+                setUpNotification(state.getMediaInfo());
+                break;
+            case MediaStatus.PLAYER_STATE_PAUSED: // (== 3)
+                mIsPlaying = false;
+                setUpNotification(state.getMediaInfo());
+                break;
+            case MediaStatus.PLAYER_STATE_IDLE: // (== 1)
+                mIsPlaying = false;
+                if (!mCastManager.shouldRemoteUiBeVisible(mediaStatus, state.getIdleReason())) {
                     serviceIdle();
-                    break;
-                default:
-                    break;
-            }
-        } catch (TransientNetworkDisconnectionException | NoConnectionException e) {
-            LOGE(TAG, "Failed to update the playback status due to network issues", e);
+                } else {
+                    setUpNotification(state.getMediaInfo());
+                }
+                break;
+            case MediaStatus.PLAYER_STATE_UNKNOWN: // (== 0)
+                mIsPlaying = false;
+                serviceIdle();
+                break;
+            default:
+                break;
         }
     }
 
@@ -345,7 +394,9 @@ public class VideoCastNotificationService extends Service {
              */
             if (isServiceIdle) {
                 isServiceIdle = false;
+                cancelPendingUpdate();
                 startForeground(NOTIFICATION_ID, mNotification);
+                mPostedNotification = mNotification;
             } else
                 updateNotification();
         } else {
@@ -363,7 +414,9 @@ public class VideoCastNotificationService extends Service {
     private void serviceIdle() {
         isServiceIdle = true;
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            cancelPendingUpdate();
             stopForeground(true);
+            mPostedNotification = null;
         } else {
             setUpNotification();
             updateNotification();
@@ -378,9 +431,13 @@ public class VideoCastNotificationService extends Service {
     public void onDestroy() {
         LOGD(TAG, "on destroy called");
         Glide.with(getApplicationContext()).clear(bitmapTarget);
+        cancelPendingUpdate();
         removeNotification();
-        if (mCastManager != null && mConsumer != null) {
-            mCastManager.removeVideoCastConsumer(mConsumer);
+        if (mCastManager != null) {
+            mCastManager.onNotificationServiceStopped();
+            if (mConsumer != null) {
+                mCastManager.removeVideoCastConsumer(mConsumer);
+            }
             mCastManager = null;
         }
     }
@@ -393,8 +450,20 @@ public class VideoCastNotificationService extends Service {
             channel.enableVibration(false);
             channel.enableLights(false);
             channel.setShowBadge(false);
-            if (manager != null)
+            if (manager != null) {
                 manager.createNotificationChannel(channel);
+                sChannelCreated = true;
+            }
+        }
+    }
+
+    /*
+     * Creates the notification channel once per process; the LocaleReceiver creates it again
+     * when its name has to be translated.
+     */
+    private void ensureNotificationChannel() {
+        if (!sChannelCreated) {
+            createNotificationChannel(this);
         }
     }
 
@@ -409,15 +478,45 @@ public class VideoCastNotificationService extends Service {
 
         // Media metadata
         MediaMetadata metadata = info.getMetadata();
-        String castingTo = getResources().getString(R.string.ccl_casting_to_device, mCastManager.getDeviceName());
+        String castingTo = getResources().getString(R.string.ccl_casting_to_device,
+                mCastManager.getCastState().getDeviceName());
+        String title = metadata.getString(MediaMetadata.KEY_TITLE);
+        RenderKey renderKey = new RenderKey(info, title, castingTo, bitmap, isPlaying, mHasNext, mHasPrev,
+                mCastManager.getMediaSessionCompatToken());
+        RenderKey previous = mNotification == null ? null : mRenderKey;
+        if (renderKey.equals(previous)) {
+            LOGD(TAG, "build(): nothing has changed, keeping the current notification");
+            return;
+        }
+        mRenderKey = renderKey;
+
+        // actions cannot be replaced on a builder, so the builder is only created again when they
+        // or the media session change; otherwise only the parts that changed are set
+        if (mBuilder == null || previous == null || !renderKey.hasSameLayout(previous)) {
+            ensureNotificationChannel();
+            mBuilder = newMediaBuilder(info, isPlaying);
+            previous = null;
+        }
+        if (previous == null || !TextUtils.equals(title, previous.mTitle)) {
+            mBuilder.setContentTitle(title);
+        }
+        if (previous == null || !TextUtils.equals(castingTo, previous.mCastingTo)) {
+            mBuilder.setContentText(castingTo);
+        }
+        if (previous == null || bitmap != previous.mBitmap) {
+            mBuilder.setLargeIcon(bitmap);
+        }
+        mBuilder.setContentIntent(getContentIntent(info));
+        mNotification = mBuilder.build();
+    }
 
-        createNotificationChannel(this);
+    /*
+     * Creates a builder with the parts of the media notification that only change with the
+     * actions: the style, the flags and the actions themselves.
+     */
+    private NotificationCompat.Builder newMediaBuilder(MediaInfo info, boolean isPlaying) {
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this, "cast").setSmallIcon(R.drawable
                 .ic_stat_action_notification)
-                .setContentTitle(metadata.getString(MediaMetadata.KEY_TITLE))
-                .setContentText(castingTo)
-                .setContentIntent(getContentIntent(info))
-                .setLargeIcon(bitmap)
                 .setStyle(new androidx.media.app.NotificationCompat.MediaStyle()
                         .setShowActionsInCompactView(mNotificationCompactActionsArray)
                         .setMediaSession(mCastManager.getMediaSessionCompatToken()))
@@ -449,9 +548,7 @@ public class VideoCastNotificationService extends Service {
                     break;
             }
         }
-
-        mNotification = builder.build();
-
+        return builder;
     }
 
     /**
@@ -459,11 +556,7 @@ public class VideoCastNotificationService extends Service {
      * {@code millis} milliseconds.
      */
     protected NotificationCompat.Action getForwardAction(long millis) {
-        Intent intent = new Intent(this, VideoIntentReceiver.class);
-        intent.setAction(ACTION_FORWARD);
-        intent.setPackage(getPackageName());
-        intent.putExtra(EXTRA_FORWARD_STEP_MS, (int) millis);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+        PendingIntent pendingIntent = getActionIntent(ACTION_FORWARD, (int) millis);
         int iconResourceId = R.drawable.ic_notification_forward_48dp;
         if (millis == TEN_SECONDS_MILLIS) {
             iconResourceId = R.drawable.ic_notification_forward_10_24dp;
@@ -480,11 +573,7 @@ public class VideoCastNotificationService extends Service {
      * {@code millis} milliseconds.
      */
     protected NotificationCompat.Action getRewindAction(long millis) {
-        Intent intent = new Intent(this, VideoIntentReceiver.class);
-        intent.setAction(ACTION_REWIND);
-        intent.setPackage(getPackageName());
-        intent.putExtra(EXTRA_FORWARD_STEP_MS, (int) -millis);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+        PendingIntent pendingIntent = getActionIntent(ACTION_REWIND, (int) -millis);
         int iconResourceId = R.drawable.ic_notification_rewind_24dp;
         if (millis == TEN_SECONDS_MILLIS) {
             iconResourceId = R.drawable.ic_notification_rewind10_24dp;
@@ -504,10 +593,7 @@ public class VideoCastNotificationService extends Service {
         PendingIntent pendingIntent = null;
         int iconResourceId = R.drawable.ic_notification_skip_next_semi_24dp;
         if (mHasNext) {
-            Intent intent = new Intent(this, VideoIntentReceiver.class);
-            intent.setAction(ACTION_PLAY_NEXT);
-            intent.setPackage(getPackageName());
-            pendingIntent = PendingIntent.getBroadcast(this, 0, intent, 0);
+            pendingIntent = getActionIntent(ACTION_PLAY_NEXT, 0);
         }
 
         return new NotificationCompat.Action.Builder(iconResourceId, getString(R.string.ccl_skip_next),
@@ -523,10 +609,7 @@ public class VideoCastNotificationService extends Service {
         PendingIntent pendingIntent = null;
         int iconResourceId = R.drawable.ic_notification_skip_prev_semi_24dp;
         if (mHasPrev) {
-            Intent intent = new Intent(this, VideoIntentReceiver.class);
-            intent.setAction(ACTION_PLAY_PREV);
-            intent.setPackage(getPackageName());
-            pendingIntent = PendingIntent.getBroadcast(this, 0, intent, 0);
+            pendingIntent = getActionIntent(ACTION_PLAY_PREV, 0);
         }
 
         return new NotificationCompat.Action.Builder(iconResourceId, getString(R.string.ccl_skip_previous),
@@ -547,10 +630,7 @@ public class VideoCastNotificationService extends Service {
         }
         int pauseOrPlayTextResourceId = isPlaying ? R.string.ccl_pause : R.string.ccl_play;
         int pauseOrPlayResourceId = isPlaying ? pauseOrStopResourceId : R.drawable.ic_notification_play_24dp;
-        Intent intent = new Intent(this, VideoIntentReceiver.class);
-        intent.setAction(ACTION_TOGGLE_PLAYBACK);
-        intent.setPackage(getPackageName());
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(this, 0, intent, 0);
+        PendingIntent pendingIntent = getActionIntent(ACTION_TOGGLE_PLAYBACK, 0);
         return new NotificationCompat.Action.Builder(pauseOrPlayResourceId, getString(pauseOrPlayTextResourceId),
                 pendingIntent)
                 .build();
@@ -561,21 +641,44 @@ public class VideoCastNotificationService extends Service {
      * device.
      */
     protected NotificationCompat.Action getDisconnectAction() {
-        Intent intent = new Intent(this, VideoIntentReceiver.class);
-        intent.setAction(ACTION_STOP);
-        intent.setPackage(getPackageName());
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(this, 0, intent, 0);
+        PendingIntent pendingIntent = getActionIntent(ACTION_STOP, 0);
         return new NotificationCompat.Action.Builder(R.drawable.ic_notification_disconnect_24dp, getString(R.string
                 .ccl_disconnect), pendingIntent)
                 .build();
     }
 
+    /*
+     * Returns the PendingIntent that sends the given action to the VideoIntentReceiver; it is
+     * created once per action and forward step.
+     */
+    private PendingIntent getActionIntent(String action, int forwardStepMs) {
+        String key = action + forwardStepMs;
+        PendingIntent pendingIntent = mActionIntents.get(key);
+        if (pendingIntent == null) {
+            Intent intent = new Intent(this, VideoIntentReceiver.class);
+            intent.setAction(action);
+            intent.setPackage(getPackageName());
+            int flags = 0;
+            if (forwardStepMs != 0) {
+                intent.putExtra(EXTRA_FORWARD_STEP_MS, forwardStepMs);
+                flags = PendingIntent.FLAG_UPDATE_CURRENT;
+            }
+            pendingIntent = PendingIntent.getBroadcast(this, 0, intent, flags);
+            mActionIntents.put(key, pendingIntent);
+        }
+        return pendingIntent;
+    }
+
     /**
      * Returns the {@link PendingIntent} for showing the full screen cast controller page. We also
      * build an appropriate "back stack" so that when user is sent to that full screen controller,
-     * clicking on the Back button would allow navigation into the app.
+     * clicking on the Back button would allow navigation into the app. The intent carries the
+     * whole media, so it is reused only while the media is equal to the one it was created for.
      */
     protected PendingIntent getContentIntent(MediaInfo mediaInfo) {
+        if (mContentIntent != null && mediaInfo != null && mediaInfo.equals(mContentIntentMedia)) {
+            return mContentIntent;
+        }
         Intent contentIntent = new Intent(this, mTargetActivity);
         Bundle mediaWrapper = null;
         if (mediaInfo != null) {
@@ -590,7 +693,10 @@ public class VideoCastNotificationService extends Service {
             if (i != null)
                 i.putExtra(VideoCastManager.EXTRA_MEDIA, mediaWrapper);
         }
-        return stackBuilder.getPendingIntent(NOTIFICATION_ID, PendingIntent.FLAG_UPDATE_CURRENT);
+        PendingIntent pendingIntent = stackBuilder.getPendingIntent(NOTIFICATION_ID, PendingIntent.FLAG_UPDATE_CURRENT);
+        mContentIntentMedia = mediaInfo;
+        mContentIntent = pendingIntent;
+        return pendingIntent;
     }
 
     /*
@@ -602,4 +708,72 @@ public class VideoCastNotificationService extends Service {
             mTargetActivity = VideoCastManager.DEFAULT_TARGET_ACTIVITY;
         }
     }
+
+    /*
+     * What the media notification shows, including the media that its content intent carries; it
+     * is only built again when this changes.
+     */
+    private static final class RenderKey {
+
+        private final MediaInfo mInfo;
+        private final int mStreamType;
+        private final String mTitle;
+        private final String mCastingTo;
+        private final Bitmap mBitmap;
+        private final boolean mPlaying;
+        private final boolean mHasNext;
+        private final boolean mHasPrev;
+        private final MediaSessionCompat.Token mSessionToken;
+
+        RenderKey(MediaInfo info, String title, String castingTo, Bitmap bitmap, boolean playing, boolean hasNext,
+                boolean hasPrev, MediaSessionCompat.Token sessionToken) {
+            mInfo = info;
+            mStreamType = info.getStreamType();
+            mTitle = title;
+            mCastingTo = castingTo;
+            mBitmap = bitmap;
+            mPlaying = playing;
+            mHasNext = hasNext;
+            mHasPrev = hasPrev;
+            mSessionToken = sessionToken;
+        }
+
+        /*
+         * Returns true if the two keys have the same actions and media session, which are set
+         * when the builder is created.
+         */
+        boolean hasSameLayout(RenderKey other) {
+            return mStreamType == other.mStreamType
+                    && mPlaying == other.mPlaying
+                    && mHasNext == other.mHasNext
+                    && mHasPrev == other.mHasPrev
+                    && (mSessionToken == null ? other.mSessionToken == null
+                    : mSessionToken.equals(other.mSessionToken));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RenderKey)) {
+                return false;
+            }
+            RenderKey other = (RenderKey) o;
+            return mInfo.equals(other.mInfo)
+                    && TextUtils.equals(mTitle, other.mTitle)
+                    && TextUtils.equals(mCastingTo, other.mCastingTo)
+                    && mBitmap == other.mBitmap
+                    && hasSameLayout(other);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mInfo.hashCode();
+            result = 31 * result + (mTitle == null ? 0 : mTitle.hashCode());
+            result = 31 * result + System.identityHashCode(mBitmap);
+            result = 31 * result + (mPlaying ? 1 : 0);
+            return result;
+        }
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.utils;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.util.DisplayMetrics;
+import android.util.LongSparseArray;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.RequestOptions;
+import com.google.android.gms.cast.MediaInfo;
+import com.google.android.gms.cast.MediaMetadata;
+import com.google.android.libraries.cast.companionlibrary.R;
+
+/**
+ * The artwork pipeline shared by all the surfaces of the library. An image is resolved to one of a
+ * small set of size tiers, instead of one size per surface, and always loaded as a
+ * {@link Bitmap}: Glide only reuses a cached image for a request with the same size,
+ * transformations and resource type, so all the surfaces that show the same tier share a single
+ * decode, held in the memory cache and recycled through the bitmap pool. Concurrent requests for
+ * the same image and tier are merged by Glide into a single load. The prefetching of the upcoming
+ * item goes through this class as well, so that the images are found in the cache.
+ */
+public final class ArtworkRequests {
+
+    /**
+     * A small square image, cropped to its center: the notification, the mini controllers, the
+     * route controller dialog and the media session icon.
+     */
+    public static final int TIER_THUMBNAIL = 0;
+
+    /**
+     * An image that fits the screen in any orientation: the lock screen art and the background of
+     * the full screen controller. It is opaque, so it is decoded without an alpha channel.
+     */
+    public static final int TIER_FULL_SCREEN = 1;
+
+    private static final LongSparseArray<RequestOptions> sOptions = new LongSparseArray<>();
+
+    private ArtworkRequests() {
+    }
+
+    /**
+     * Returns the image shown in the notification, the mini controllers, the route controller
+     * dialog and the media session icon.
+     */
+    public static Uri getIconUri(MediaInfo info) {
+        return Utils.getImageUri(info, 0);
+    }
+
+    /**
+     * Returns the image shown on the lock screen. In ICS and JB, the image shown on the lock
+     * screen is a small size bitmap but for KitKat, the image is a full-screen image, so the
+     * second image is preferred if there is one.
+     */
+    public static Uri getLockScreenUri(MediaInfo info) {
+        MediaMetadata metadata = info.getMetadata();
+        if (metadata == null || !metadata.hasImages()) {
+            return null;
+        }
+        if (Build.VERSION.SDK_INT > Build.VERSION_CODES.JELLY_BEAN_MR2 && metadata.getImages().size() > 1) {
+            return metadata.getImages().get(1).getUrl();
+        }
+        return metadata.getImages().get(0).getUrl();
+    }
+
+    /**
+     * Returns the image shown in the background of the full screen controller.
+     */
+    public static Uri getFullScreenUri(MediaInfo info) {
+        return Utils.getImageUri(info, 1);
+    }
+
+    /**
+     * Loads the artwork at the given {@code uri} as a {@link Bitmap} of the given {@code tier}.
+     * All the surfaces load their artwork through this method so that each image is decoded at
+     * most once per tier and then shared through the memory cache and bitmap pool of Glide.
+     */
+    public static RequestBuilder<Bitmap> load(RequestManager glide, Uri uri, Context context, int tier) {
+        return glide.asBitmap().load(uri).apply(getOptions(context, tier));
+    }
+
+    /**
+     * Returns the options of the given {@code tier}, one of the {@code TIER_*} values, for the
+     * display metrics of {@code context}.
+     */
+    public static RequestOptions getOptions(Context context, int tier) {
+        if (tier != TIER_THUMBNAIL && tier != TIER_FULL_SCREEN) {
+            throw new IllegalArgumentException("Invalid tier " + tier);
+        }
+        Resources resources = context.getResources();
+        DisplayMetrics metrics = resources.getDisplayMetrics();
+        // the same bounds in both orientations, so that a rotation does not decode again
+        int shortSide = Math.min(metrics.widthPixels, metrics.heightPixels);
+        int longSide = Math.max(metrics.widthPixels, metrics.heightPixels);
+        // the tier is in the lowest bit, then the screen size and the density
+        long key = ((long) metrics.densityDpi << 41) | ((long) shortSide << 21) | ((long) longSide << 1)
+                | tier;
+        synchronized (sOptions) {
+            RequestOptions options = sOptions.get(key);
+            if (options == null) {
+                if (tier == TIER_THUMBNAIL) {
+                    int size = Math.max(Utils.convertDpToPixel(context, resources.getDimension(
+                            R.dimen.ccl_notification_image_size)), Math.max(
+                            resources.getDimensionPixelSize(R.dimen.ccl_mini_controller_icon_width),
+                            resources.getDimensionPixelSize(R.dimen.ccl_mini_controller_icon_height)));
+                    options = new RequestOptions().override(size, size).centerCrop().lock();
+                } else {
+                    options = new RequestOptions().override(longSide, longSide)
+                            .downsample(DownsampleStrategy.CENTER_INSIDE)
+                            .format(DecodeFormat.PREFER_RGB_565).lock();
+                }
+                sOptions.put(key, options);
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Arrays;
+
+import androidx.lifecycle.LiveData;
+
+/**
+ * A {@link LiveData} that only emits values that differ from the latest one. Values are compared
+ * by equality; arrays are compared by content. Like any {@link LiveData}, it is aware of the
+ * lifecycle of its observers and delivers the latest value to the ones that subscribe late.
+ * <p>
+ * Values can be set from any thread; they are delivered on the main thread, in the order they
+ * were set.
+ */
+public class DistinctLiveData<T> extends LiveData<T> {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Object mLock = new Object();
+    private T mLatest;
+    private boolean mHasLatest;
+    private int mPending;
+
+    public DistinctLiveData() {
+    }
+
+    public DistinctLiveData(T initialValue) {
+        super(initialValue);
+        mLatest = initialValue;
+        mHasLatest = true;
+    }
+
+    /**
+     * Sets the value if it differs from the latest one and returns {@code true}, or returns
+     * {@code false} if the value is a duplicate.
+     */
+    public boolean update(final T value) {
+        boolean direct;
+        synchronized (mLock) {
+            if (mHasLatest && isSame(mLatest, value)) {
+                return false;
+            }
+            mLatest = value;
+            mHasLatest = true;
+            // a value set on the main thread must not overtake the ones that are still posted
+            direct = mPending == 0 && Looper.myLooper() == Looper.getMainLooper();
+            if (!direct) {
+                mPending++;
+            }
+        }
+        if (direct) {
+            setValue(value);
+        } else {
+            sMainHandler.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    synchronized (mLock) {
+                        mPending--;
+                    }
+                    setValue(value);
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the two values are the same; subclasses can override this to relax
+     * or tighten the comparison.
+     */
+    protected boolean isSame(T first, T second) {
+        return Arrays.deepEquals(new Object[]{first}, new Object[]{second});
+    }
+}
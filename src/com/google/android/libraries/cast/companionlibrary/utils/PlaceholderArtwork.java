@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.utils;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.google.android.libraries.cast.companionlibrary.R;
+
+/**
+ * The placeholders shown in place of the artwork of a media that has none. Each placeholder is
+ * decoded once per screen density and size tier, and the same immutable {@link Bitmap} is then
+ * handed out to all the surfaces; it must not be recycled.
+ */
+public final class PlaceholderArtwork {
+
+    /**
+     * Decodes the placeholder resources; replaced in tests to count the decodes.
+     */
+    interface Decoder {
+
+        Bitmap decode(Resources resources, int resId);
+    }
+
+    private static final Decoder DEFAULT_DECODER = new Decoder() {
+
+        @Override
+        public Bitmap decode(Resources resources, int resId) {
+            return BitmapFactory.decodeResource(resources, resId);
+        }
+    };
+
+    private static final SparseArray<Bitmap> sBitmaps = new SparseArray<>();
+    private static Decoder sDecoder = DEFAULT_DECODER;
+
+    private PlaceholderArtwork() {
+    }
+
+    /**
+     * Returns the placeholder of the given {@code tier}, one of the
+     * {@code ArtworkRequests.TIER_*} values.
+     */
+    public static Bitmap getBitmap(Context context, int tier) {
+        int resId;
+        switch (tier) {
+            case ArtworkRequests.TIER_THUMBNAIL:
+                resId = R.drawable.album_art_placeholder;
+                break;
+            case ArtworkRequests.TIER_FULL_SCREEN:
+                resId = R.drawable.album_art_placeholder_large;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid tier " + tier);
+        }
+        Resources resources = context.getResources();
+        // the tiers fit in the low bits, the density in the others
+        int key = (resources.getDisplayMetrics().densityDpi << 1) | tier;
+        synchronized (sBitmaps) {
+            Bitmap bitmap = sBitmaps.get(key);
+            if (bitmap == null) {
+                bitmap = sDecoder.decode(resources, resId);
+                sBitmaps.put(key, bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /*
+     * Replaces the decoder, or restores the default one if null, and drops the cached bitmaps.
+     */
+    @VisibleForTesting
+    static void setDecoder(Decoder decoder) {
+        synchronized (sBitmaps) {
+            sDecoder = decoder == null ? DEFAULT_DECODER : decoder;
+            sBitmaps.clear();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.utils;
+
+import java.util.Arrays;
+
+/**
+ * A registry that keeps its items in an immutable array, replaced on every change. Iterating over
+ * {@link #snapshot()} takes no lock and allocates nothing, so it suits registries that are read
+ * on every tick or status update and changed rarely. Items are compared with
+ * {@link Object#equals(Object)}, and each one is registered at most once.
+ */
+public final class SnapshotRegistry<T> {
+
+    private final Object mLock = new Object();
+    private final T[] mEmpty;
+    private volatile T[] mItems;
+
+    /**
+     * @param empty An empty array of the type of the items, returned by {@link #snapshot()} when
+     * nothing is registered.
+     */
+    public SnapshotRegistry(T[] empty) {
+        if (empty.length != 0) {
+            throw new IllegalArgumentException("The array must be empty");
+        }
+        mEmpty = empty;
+        mItems = empty;
+    }
+
+    /**
+     * Registers {@code item}. Returns {@code false} if it was already registered.
+     */
+    public boolean add(T item) {
+        synchronized (mLock) {
+            T[] items = mItems;
+            if (indexOf(items, item) >= 0) {
+                return false;
+            }
+            T[] next = Arrays.copyOf(items, items.length + 1);
+            next[items.length] = item;
+            mItems = next;
+            return true;
+        }
+    }
+
+    /**
+     * Unregisters {@code item}. Returns {@code false} if it was not registered.
+     */
+    public boolean remove(Object item) {
+        synchronized (mLock) {
+            T[] items = mItems;
+            int index = indexOf(items, item);
+            if (index < 0) {
+                return false;
+            }
+            if (items.length == 1) {
+                mItems = mEmpty;
+                return true;
+            }
+            T[] next = Arrays.copyOf(items, items.length - 1);
+            System.arraycopy(items, index + 1, next, index, items.length - index - 1);
+            mItems = next;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the registered items. The array must not be modified; it is not affected by later
+     * changes to the registry.
+     */
+    public T[] snapshot() {
+        return mItems;
+    }
+
+    public boolean isEmpty() {
+        return mItems.length == 0;
+    }
+
+    private static int indexOf(Object[] items, Object item) {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].equals(item)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.utils;
+
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+
+/**
+ * A library-wide source of timer ticks. All the periodic and delayed work of the library is
+ * scheduled here so that it runs on, at most, two threads: the main thread for UI work and a single
+ * background thread for everything else.
+ * <p>
+ * Periodic subscriptions are aligned on multiples of their period and all the work that is due
+ * within a few milliseconds of each other is run in the same wakeup, so subscribers with the same
+ * period tick together.
+ */
+public final class TickBus {
+
+    private static final String TAG = LogUtils.makeLogTag(TickBus.class);
+
+    /**
+     * Ticks are delivered on the main thread.
+     */
+    public static final int LANE_MAIN = 0;
+
+    /**
+     * Ticks are delivered on the shared background thread of the library.
+     */
+    public static final int LANE_BACKGROUND = 1;
+
+    /*
+     * Work that is due within this window is run in the same wakeup.
+     */
+    private static final long TICK_SLACK_MS = 16;
+
+    private static TickBus sInstance;
+
+    private final Lane mMainLane = new Lane(new Handler(Looper.getMainLooper()));
+    private Lane mBackgroundLane;
+
+    /**
+     * The interface to be implemented by periodic subscribers.
+     */
+    public interface TickListener {
+
+        /**
+         * Called on every tick of the subscription.
+         *
+         * @param uptimeMillis The time of the tick, as returned by
+         * {@link SystemClock#uptimeMillis()}.
+         */
+        void onTick(long uptimeMillis);
+    }
+
+    private TickBus() {
+    }
+
+    public static synchronized TickBus getInstance() {
+        if (sInstance == null) {
+            sInstance = new TickBus();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Subscribes a {@code listener} to be called every {@code periodMs} milliseconds on the given
+     * {@code lane} until the returned {@link Subscription} is cancelled.
+     */
+    public Subscription subscribe(TickListener listener, long periodMs, int lane) {
+        checkPeriod(periodMs);
+        Subscription subscription = new Subscription(getLane(lane), listener, null, periodMs);
+        subscription.start(alignedTime(SystemClock.uptimeMillis(), periodMs));
+        return subscription;
+    }
+
+    /**
+     * Subscribes a {@code listener} to be called every {@code periodMs} milliseconds on the main
+     * thread, but only while the {@code owner} is at least started. The subscription is cancelled
+     * when the {@code owner} is destroyed.
+     */
+    public Subscription subscribe(LifecycleOwner owner, TickListener listener, long periodMs) {
+        checkPeriod(periodMs);
+        final Subscription subscription = new Subscription(mMainLane, listener, null, periodMs);
+        final Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return subscription;
+        }
+        if (lifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            subscription.start(alignedTime(SystemClock.uptimeMillis(), periodMs));
+        }
+        subscription.mLifecycle = lifecycle;
+        subscription.mLifecycleObserver = new LifecycleObserver() {
+            @OnLifecycleEvent(Lifecycle.Event.ON_START)
+            public void onStart() {
+                subscription.start(alignedTime(SystemClock.uptimeMillis(), subscription.mPeriod));
+            }
+
+            @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+            public void onStop() {
+                subscription.pause();
+            }
+
+            @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+            public void onDestroy() {
+                subscription.cancel();
+            }
+        };
+        lifecycle.addObserver(subscription.mLifecycleObserver);
+        return subscription;
+    }
+
+    /**
+     * Runs the {@code task} once, after {@code delayMs} milliseconds, on the given {@code lane}
+     * unless the returned {@link Subscription} is cancelled before that.
+     */
+    public Subscription schedule(Runnable task, long delayMs, int lane) {
+        Subscription subscription = new Subscription(getLane(lane), null, task, 0);
+        subscription.start(SystemClock.uptimeMillis() + Math.max(0, delayMs));
+        return subscription;
+    }
+
+    private synchronized Lane getLane(int lane) {
+        if (lane == LANE_MAIN) {
+            return mMainLane;
+        }
+        if (mBackgroundLane == null) {
+            HandlerThread thread = new HandlerThread("ccl-ticks", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            mBackgroundLane = new Lane(new Handler(thread.getLooper()));
+        }
+        return mBackgroundLane;
+    }
+
+    private static void checkPeriod(long periodMs) {
+        if (periodMs <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + periodMs);
+        }
+    }
+
+    private static long alignedTime(long now, long period) {
+        return (now / period + 1) * period;
+    }
+
+    /**
+     * A handle on a periodic subscription or a scheduled task.
+     */
+    public static final class Subscription {
+
+        private final Lane mLane;
+        private final TickListener mListener;
+        private final Runnable mTask;
+        private final long mPeriod;
+        private long mNextDue;
+        private boolean mActive;
+        private boolean mCancelled;
+        private Lifecycle mLifecycle;
+        private LifecycleObserver mLifecycleObserver;
+
+        private Subscription(Lane lane, TickListener listener, Runnable task, long period) {
+            mLane = lane;
+            mListener = listener;
+            mTask = task;
+            mPeriod = period;
+        }
+
+        /**
+         * Stops this subscription; no more ticks will be delivered once this returns if called on
+         * the thread of its lane.
+         */
+        public void cancel() {
+            synchronized (mLane) {
+                mCancelled = true;
+                mLane.remove(this);
+            }
+            if (mLifecycle != null) {
+                final Lifecycle lifecycle = mLifecycle;
+                final LifecycleObserver observer = mLifecycleObserver;
+                mLifecycle = null;
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    lifecycle.removeObserver(observer);
+                } else {
+                    new Handler(Looper.getMainLooper()).post(new Runnable() {
+                        @Override
+                        public void run() {
+                            lifecycle.removeObserver(observer);
+                        }
+                    });
+                }
+            }
+        }
+
+        /**
+         * Returns {@code true} if this subscription has not been cancelled and, for a one-time
+         * task, has not run yet.
+         */
+        public boolean isActive() {
+            synchronized (mLane) {
+                return !mCancelled && (mPeriod > 0 || mActive);
+            }
+        }
+
+        private boolean shouldRun() {
+            synchronized (mLane) {
+                return !mCancelled && (mPeriod == 0 || mActive);
+            }
+        }
+
+        private void start(long due) {
+            synchronized (mLane) {
+                if (mCancelled || mActive) {
+                    return;
+                }
+                mNextDue = due;
+                mLane.add(this);
+            }
+        }
+
+        private void pause() {
+            synchronized (mLane) {
+                mLane.remove(this);
+            }
+        }
+
+        private void run(long now) {
+            try {
+                if (mListener != null) {
+                    mListener.onTick(now);
+                } else {
+                    mTask.run();
+                }
+            } catch (RuntimeException e) {
+                LOGE(TAG, "Tick subscriber failed", e);
+            }
+        }
+    }
+
+    /*
+     * A single thread on which subscriptions run; there is at most one pending wakeup per lane.
+     */
+    private static final class Lane implements Runnable {
+
+        private final Handler mHandler;
+        private final List<Subscription> mSubscriptions = new ArrayList<>();
+        private final List<Subscription> mDue = new ArrayList<>();
+        private long mScheduledWakeup = Long.MAX_VALUE;
+
+        Lane(Handler handler) {
+            mHandler = handler;
+        }
+
+        // must be called while holding the lock on this lane
+        void add(Subscription subscription) {
+            subscription.mActive = true;
+            mSubscriptions.add(subscription);
+            scheduleWakeup();
+        }
+
+        // must be called while holding the lock on this lane
+        void remove(Subscription subscription) {
+            subscription.mActive = false;
+            mSubscriptions.remove(subscription);
+            if (mSubscriptions.isEmpty()) {
+                mHandler.removeCallbacks(this);
+                mScheduledWakeup = Long.MAX_VALUE;
+            }
+        }
+
+        private void scheduleWakeup() {
+            long next = Long.MAX_VALUE;
+            for (int i = 0; i < mSubscriptions.size(); i++) {
+                next = Math.min(next, mSubscriptions.get(i).mNextDue);
+            }
+            if (next == mScheduledWakeup) {
+                return;
+            }
+            mHandler.removeCallbacks(this);
+            mScheduledWakeup = next;
+            if (next != Long.MAX_VALUE) {
+                mHandler.postAtTime(this, next);
+            }
+        }
+
+        @Override
+        public void run() {
+            long now = SystemClock.uptimeMillis();
+            synchronized (this) {
+                mScheduledWakeup = Long.MAX_VALUE;
+                for (int i = 0; i < mSubscriptions.size(); i++) {
+                    Subscription subscription = mSubscriptions.get(i);
+                    if (subscription.mNextDue <= now + TICK_SLACK_MS) {
+                        mDue.add(subscription);
+                    }
+                }
+                for (int i = 0; i < mDue.size(); i++) {
+                    Subscription subscription = mDue.get(i);
+                    if (subscription.mPeriod > 0) {
+                        subscription.mNextDue = alignedTime(now, subscription.mPeriod);
+                    } else {
+                        remove(subscription);
+                    }
+                }
+                scheduleWakeup();
+            }
+            for (int i = 0; i < mDue.size(); i++) {
+                Subscription subscription = mDue.get(i);
+                // it may have been cancelled by a subscriber that ran before it
+                if (subscription.shouldRun()) {
+                    subscription.run(now);
+                }
+            }
+            mDue.clear();
+        }
+    }
+
+}
@@ -20,6 +20,8 @@ import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Point;
@@ -31,14 +33,19 @@ import android.net.wifi.WifiManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Looper;
+import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
+import android.util.Base64;
 import android.util.TypedValue;
 import android.view.Display;
 import android.view.WindowManager;
 import android.widget.Toast;
 
+import androidx.core.content.pm.PackageInfoCompat;
+
+import com.google.android.gms.cast.CastDevice;
 import com.google.android.gms.cast.MediaInfo;
 import com.google.android.gms.cast.MediaMetadata;
 import com.google.android.gms.cast.MediaQueueItem;
@@ -56,6 +63,7 @@ import java.util.Calendar;
 import java.util.List;
 
 
+import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGD;
 import static com.google.android.libraries.cast.companionlibrary.utils.LogUtils.LOGE;
 
 /**
@@ -81,6 +89,11 @@ public final class Utils {
     private static final String KEY_TRACK_LANGUAGE = "track-language";
     private static final String KEY_TRACK_CUSTOM_DATA = "track-custom-data";
     private static final String KEY_TRACKS_DATA = "track-data";
+    private static final String KEY_DEVICE_BUILD = "build";
+    private static final String KEY_DEVICE_ID = "id";
+    private static final String KEY_DEVICE_ADDRESS = "address";
+    private static final String KEY_DEVICE_PORT = "port";
+    private static final String KEY_DEVICE_PARCEL = "parcel";
     public static final boolean IS_KITKAT_OR_ABOVE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
 
     private Utils() {
@@ -321,6 +334,90 @@ public final class Utils {
         return mediaBuilder.build();
     }
 
+    /**
+     * Encodes a {@link CastDevice} in a string that can be persisted, e.g. in the preferences, and
+     * decoded by {@link #stringToCastDevice(Context, String)}. The device is saved as a parcel,
+     * whose format is only known to the Cast SDK bundled with this build of the app, so the string
+     * also holds that build and the id and address of the device to check the parcel against.
+     */
+    public static String castDeviceToString(Context context, CastDevice device) {
+        String build = getAppBuild(context);
+        if (device == null || device.getIpAddress() == null || build == null) {
+            return null;
+        }
+        Bundle bundle = new Bundle();
+        device.putInBundle(bundle);
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            JSONObject json = new JSONObject();
+            json.put(KEY_DEVICE_BUILD, build);
+            json.put(KEY_DEVICE_ID, device.getDeviceId());
+            json.put(KEY_DEVICE_ADDRESS, device.getIpAddress().getHostAddress());
+            json.put(KEY_DEVICE_PORT, device.getServicePort());
+            json.put(KEY_DEVICE_PARCEL, Base64.encodeToString(parcel.marshall(), Base64.NO_WRAP));
+            return json.toString();
+        } catch (JSONException e) {
+            LOGE(TAG, "castDeviceToString(): Failed to encode the device", e);
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Returns the {@link CastDevice} that was encoded by
+     * {@link #castDeviceToString(Context, CastDevice)}, or {@code null} if it was encoded by
+     * another build of the app or cannot be decoded to the same device.
+     */
+    public static CastDevice stringToCastDevice(Context context, String encoded) {
+        if (TextUtils.isEmpty(encoded)) {
+            return null;
+        }
+        Parcel parcel = Parcel.obtain();
+        try {
+            JSONObject json = new JSONObject(encoded);
+            String build = getAppBuild(context);
+            if (build == null || !build.equals(json.optString(KEY_DEVICE_BUILD))) {
+                LOGD(TAG, "stringToCastDevice(): the device was saved by another build");
+                return null;
+            }
+            byte[] bytes = Base64.decode(json.getString(KEY_DEVICE_PARCEL), Base64.NO_WRAP);
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            Bundle bundle = parcel.readBundle(CastDevice.class.getClassLoader());
+            CastDevice device = bundle == null ? null : CastDevice.getFromBundle(bundle);
+            if (device == null || device.getIpAddress() == null
+                    || !TextUtils.equals(device.getDeviceId(), json.getString(KEY_DEVICE_ID))
+                    || !TextUtils.equals(device.getIpAddress().getHostAddress(), json.getString(KEY_DEVICE_ADDRESS))
+                    || device.getServicePort() != json.getInt(KEY_DEVICE_PORT)) {
+                LOGD(TAG, "stringToCastDevice(): the decoded device does not match the saved one");
+                return null;
+            }
+            return device;
+        } catch (JSONException | RuntimeException e) {
+            LOGE(TAG, "stringToCastDevice(): Failed to decode the device", e);
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /*
+     * Returns a tag of the installed build of the app and of the OS, which changes with every
+     * update of either; the persisted device is a Parcel, whose format belongs to the OS.
+     */
+    private static String getAppBuild(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return PackageInfoCompat.getLongVersionCode(info) + "/" + info.lastUpdateTime + "/"
+                    + Build.FINGERPRINT;
+        } catch (PackageManager.NameNotFoundException e) {
+            LOGE(TAG, "getAppBuild(): Failed to get the package info", e);
+            return null;
+        }
+    }
+
     /**
      * Returns the SSID of the wifi connection, or <code>null</code> if there is no wifi.
      */
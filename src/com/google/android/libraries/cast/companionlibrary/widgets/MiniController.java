@@ -42,6 +42,7 @@ import com.google.android.libraries.cast.companionlibrary.cast.exceptions.CastEx
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.NoConnectionException;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.OnFailedListener;
 import com.google.android.libraries.cast.companionlibrary.cast.exceptions.TransientNetworkDisconnectionException;
+import com.google.android.libraries.cast.companionlibrary.utils.ArtworkRequests;
 import com.google.android.libraries.cast.companionlibrary.utils.Utils;
 
 /**
@@ -284,7 +285,7 @@ public class MiniController extends RelativeLayout implements IMiniController {
         }
 
         mIconUri = uri;
-        Glide.with(this).load(uri).into(mIcon);
+        ArtworkRequests.load(Glide.with(this), uri, getContext(), ArtworkRequests.TIER_THUMBNAIL).into(mIcon);
     }
 
     @Override
@@ -396,7 +397,8 @@ public class MiniController extends RelativeLayout implements IMiniController {
         }
 
         mUpcomingIconUri = uri;
-        Glide.with(this).load(uri).into(mUpcomingIcon);
+        ArtworkRequests.load(Glide.with(this), uri, getContext(), ArtworkRequests.TIER_THUMBNAIL)
+                .into(mUpcomingIcon);
     }
 
     private void setUpcomingTitle(String title) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.widgets;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Binds {@link MiniControllerModel}s to {@link IMiniController}s. It remembers the last model that
+ * was bound to each controller and only calls the setters of the fields that have changed since
+ * then, so that rebinding the same model is free.
+ */
+public final class MiniControllerBinder {
+
+    private final Map<IMiniController, MiniControllerModel> mBoundModels = new WeakHashMap<>();
+
+    /**
+     * Applies the fields of {@code model} that differ from the last model bound to
+     * {@code controller}. Returns {@code true} if anything was applied.
+     */
+    public synchronized boolean bind(IMiniController controller, MiniControllerModel model) {
+        int changes = model.diff(mBoundModels.get(controller));
+        if (changes == 0) {
+            return false;
+        }
+        if ((changes & MiniControllerModel.FIELD_STREAM_TYPE) != 0) {
+            controller.setStreamType(model.getStreamType());
+            // the play/pause button depends on the stream type
+            changes |= MiniControllerModel.FIELD_PLAYBACK_STATUS;
+        }
+        if ((changes & MiniControllerModel.FIELD_PLAYBACK_STATUS) != 0) {
+            controller.setPlaybackStatus(model.getPlayerState(), model.getIdleReason());
+        }
+        if ((changes & MiniControllerModel.FIELD_SUBTITLE) != 0) {
+            controller.setSubtitle(model.getSubtitle());
+        }
+        if ((changes & MiniControllerModel.FIELD_TITLE) != 0) {
+            controller.setTitle(model.getTitle());
+        }
+        if ((changes & MiniControllerModel.FIELD_ICON) != 0) {
+            controller.setIcon(model.getIconUri());
+        }
+        mBoundModels.put(controller, model);
+        return true;
+    }
+
+    /**
+     * Forgets what was bound to {@code controller}, so that the next {@link #bind} applies all the
+     * fields. This must be called when the controller stops being updated, e.g. when it is
+     * removed.
+     */
+    public synchronized void unbind(IMiniController controller) {
+        mBoundModels.remove(controller);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.widgets;
+
+import android.net.Uri;
+import android.text.TextUtils;
+
+import com.google.android.libraries.cast.companionlibrary.cast.MediaRenderModel;
+
+/**
+ * An immutable snapshot of what an {@link IMiniController} shows. It is built once per state of
+ * the session and shared by all the mini controllers; see {@link MiniControllerBinder}.
+ */
+public final class MiniControllerModel {
+
+    static final int FIELD_STREAM_TYPE = 1;
+    static final int FIELD_PLAYBACK_STATUS = 1 << 1;
+    static final int FIELD_TITLE = 1 << 2;
+    static final int FIELD_SUBTITLE = 1 << 3;
+    static final int FIELD_ICON = 1 << 4;
+    static final int FIELD_ALL = (1 << 5) - 1;
+
+    private final int mStreamType;
+    private final int mPlayerState;
+    private final int mIdleReason;
+    private final String mTitle;
+    private final String mSubtitle;
+    private final Uri mIconUri;
+
+    public MiniControllerModel(MediaRenderModel renderModel, int playerState, int idleReason, String subtitle) {
+        mStreamType = renderModel.getStreamType();
+        mPlayerState = playerState;
+        mIdleReason = idleReason;
+        mTitle = renderModel.getTitle();
+        mSubtitle = subtitle;
+        mIconUri = renderModel.getIconUri();
+    }
+
+    public int getStreamType() {
+        return mStreamType;
+    }
+
+    public int getPlayerState() {
+        return mPlayerState;
+    }
+
+    public int getIdleReason() {
+        return mIdleReason;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public String getSubtitle() {
+        return mSubtitle;
+    }
+
+    public Uri getIconUri() {
+        return mIconUri;
+    }
+
+    /*
+     * Returns a bit mask of the FIELD_* values that differ between this model and the previous
+     * one, which can be null.
+     */
+    int diff(MiniControllerModel previous) {
+        if (previous == null) {
+            return FIELD_ALL;
+        }
+        int changes = 0;
+        if (mStreamType != previous.mStreamType) {
+            changes |= FIELD_STREAM_TYPE;
+        }
+        if (mPlayerState != previous.mPlayerState || mIdleReason != previous.mIdleReason) {
+            changes |= FIELD_PLAYBACK_STATUS;
+        }
+        if (!TextUtils.equals(mTitle, previous.mTitle)) {
+            changes |= FIELD_TITLE;
+        }
+        if (!TextUtils.equals(mSubtitle, previous.mSubtitle)) {
+            changes |= FIELD_SUBTITLE;
+        }
+        if (mIconUri == null ? previous.mIconUri != null : !mIconUri.equals(previous.mIconUri)) {
+            changes |= FIELD_ICON;
+        }
+        return changes;
+    }
+}
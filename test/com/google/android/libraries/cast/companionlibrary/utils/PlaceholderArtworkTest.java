@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.libraries.cast.companionlibrary.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PlaceholderArtworkTest {
+
+    private int mDecodes;
+
+    @Before
+    public void setUp() {
+        PlaceholderArtwork.setDecoder(new PlaceholderArtwork.Decoder() {
+
+            @Override
+            public Bitmap decode(Resources resources, int resId) {
+                mDecodes++;
+                return Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        PlaceholderArtwork.setDecoder(null);
+    }
+
+    @Test
+    public void repeatedCallsDecodeOncePerTier() {
+        Context context = RuntimeEnvironment.application;
+        Bitmap thumbnail = PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_THUMBNAIL);
+        Bitmap fullScreen = PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_FULL_SCREEN);
+        for (int i = 0; i < 10; i++) {
+            assertSame(thumbnail, PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_THUMBNAIL));
+            assertSame(fullScreen, PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_FULL_SCREEN));
+        }
+        assertNotSame(thumbnail, fullScreen);
+        assertEquals(2, mDecodes);
+    }
+
+    @Test
+    public void densityChangeDecodesOncePerDensity() {
+        Context context = RuntimeEnvironment.application;
+        RuntimeEnvironment.setQualifiers("+mdpi");
+        Bitmap mdpi = PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_THUMBNAIL);
+        RuntimeEnvironment.setQualifiers("+xxhdpi");
+        Bitmap xxhdpi = PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_THUMBNAIL);
+        assertEquals(2, mDecodes);
+        assertNotSame(mdpi, xxhdpi);
+        for (int i = 0; i < 10; i++) {
+            assertSame(xxhdpi, PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_THUMBNAIL));
+        }
+        RuntimeEnvironment.setQualifiers("+mdpi");
+        assertSame(mdpi, PlaceholderArtwork.getBitmap(context, ArtworkRequests.TIER_THUMBNAIL));
+        assertEquals(2, mDecodes);
+    }
+}